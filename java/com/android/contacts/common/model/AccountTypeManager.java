@@ -26,6 +26,7 @@ import android.content.ContentResolver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
+import android.content.SharedPreferences;
 import android.content.SyncAdapterType;
 import android.content.SyncStatusObserver;
 import android.content.pm.PackageManager;
@@ -54,6 +55,10 @@ import com.android.contacts.common.model.account.SamsungAccountType;
 import com.android.contacts.common.model.dataitem.DataKind;
 import com.android.contacts.common.util.Constants;
 
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -173,6 +178,15 @@ class AccountTypeManagerImpl extends AccountTypeManager
    */
   private static final Uri SAMPLE_CONTACT_URI = ContactsContract.Contacts.getLookupUri(1, "xxx");
 
+  /** Accounts of the last load, so they are available right away on the next start. */
+  private static final String SNAPSHOT_PREFERENCES = "account_type_manager";
+  private static final String SNAPSHOT_KEY = "accounts";
+  private static final String SNAPSHOT_NAME = "name";
+  private static final String SNAPSHOT_TYPE = "type";
+  private static final String SNAPSHOT_DATA_SET = "dataSet";
+  private static final String SNAPSHOT_CONTACT_WRITABLE = "contactWritable";
+  private static final String SNAPSHOT_GROUP_WRITABLE = "groupWritable";
+
   private static final int MESSAGE_LOAD_DATA = 0;
   private static final int MESSAGE_PROCESS_BROADCAST_INTENT = 1;
   private static final Comparator<AccountWithDataSet> ACCOUNT_COMPARATOR = (a, b) -> {
@@ -244,6 +258,17 @@ class AccountTypeManagerImpl extends AccountTypeManager
       };
   /* A latch that ensures that asynchronous initialization completes before data is used */
   private volatile CountDownLatch mInitializationLatch = new CountDownLatch(1);
+  /**
+   * True until the first load completes if the account lists were restored from the snapshot.
+   * Account lists are then served without waiting, account types still require the load.
+   */
+  private volatile boolean mServingSnapshot;
+  private final SharedPreferences mSnapshotPreferences;
+  // Time callers spent waiting for the first load, guarded by mInitializationLatchStatsLock
+  private final Object mInitializationLatchStatsLock = new Object();
+  private int mLatchWaitCount;
+  private long mLatchWaitTotalMillis;
+  private long mLatchWaitMaxMillis;
 
   /** Internal constructor that only performs initial parsing. */
   public AccountTypeManagerImpl(Context context) {
@@ -252,6 +277,10 @@ class AccountTypeManagerImpl extends AccountTypeManager
 
     mAccountManager = AccountManager.get(mContext);
 
+    mSnapshotPreferences =
+        mContext.getSharedPreferences(SNAPSHOT_PREFERENCES, Context.MODE_PRIVATE);
+    restoreSnapshot();
+
     mListenerThread = new HandlerThread("AccountChangeListener");
     mListenerThread.start();
     mListenerHandler =
@@ -360,20 +389,142 @@ class AccountTypeManagerImpl extends AccountTypeManager
   /**
    * Returns instantly if accounts and account types have already been loaded. Otherwise waits for
    * the background thread to complete the loading.
+   *
+   * <p>The wait can't be cancelled. None of the callers can handle missing account types, so an
+   * interrupt is only restored once the load completes.
    */
   void ensureAccountsLoaded() {
     CountDownLatch latch = mInitializationLatch;
     if (latch == null) {
       return;
     }
+    final long startTime = SystemClock.elapsedRealtime();
     while (true) {
       try {
         latch.await();
-        return;
+        break;
       } catch (InterruptedException e) {
         Thread.currentThread().interrupt();
       }
     }
+    recordLatchWait(SystemClock.elapsedRealtime() - startTime);
+  }
+
+  /**
+   * Like {@link #ensureAccountsLoaded()}, but returns instantly if the account lists of the
+   * previous run are available. Only for methods that don't need any {@link AccountType}.
+   */
+  private void ensureAccountListsLoaded() {
+    if (!mServingSnapshot) {
+      ensureAccountsLoaded();
+    }
+  }
+
+  private void recordLatchWait(long waitMillis) {
+    synchronized (mInitializationLatchStatsLock) {
+      mLatchWaitCount++;
+      mLatchWaitTotalMillis += waitMillis;
+      mLatchWaitMaxMillis = Math.max(mLatchWaitMaxMillis, waitMillis);
+      Log.i(
+          TAG,
+          "Waited "
+              + waitMillis
+              + "ms for account types on "
+              + (Looper.myLooper() == Looper.getMainLooper() ? "main thread" : "background thread")
+              + " (waits: "
+              + mLatchWaitCount
+              + ", total: "
+              + mLatchWaitTotalMillis
+              + "ms, max: "
+              + mLatchWaitMaxMillis
+              + "ms)");
+    }
+  }
+
+  /** Restores the account lists of the previous run, if any. */
+  private void restoreSnapshot() {
+    String snapshot = mSnapshotPreferences.getString(SNAPSHOT_KEY, null);
+    if (snapshot == null) {
+      return;
+    }
+
+    final List<AccountWithDataSet> allAccounts = new ArrayList<>();
+    final List<AccountWithDataSet> contactWritableAccounts = new ArrayList<>();
+    final List<AccountWithDataSet> groupWritableAccounts = new ArrayList<>();
+    try {
+      JSONArray accounts = new JSONArray(snapshot);
+      for (int i = 0; i < accounts.length(); i++) {
+        JSONObject account = accounts.getJSONObject(i);
+        AccountWithDataSet accountWithDataSet =
+            new AccountWithDataSet(
+                account.getString(SNAPSHOT_NAME),
+                account.getString(SNAPSHOT_TYPE),
+                account.optString(SNAPSHOT_DATA_SET, null));
+        allAccounts.add(accountWithDataSet);
+        if (account.optBoolean(SNAPSHOT_CONTACT_WRITABLE)) {
+          contactWritableAccounts.add(accountWithDataSet);
+        }
+        if (account.optBoolean(SNAPSHOT_GROUP_WRITABLE)) {
+          groupWritableAccounts.add(accountWithDataSet);
+        }
+      }
+    } catch (JSONException e) {
+      Log.w(TAG, "Ignoring invalid account snapshot", e);
+      return;
+    }
+
+    synchronized (this) {
+      mAccounts = allAccounts;
+      mContactWritableAccounts = contactWritableAccounts;
+      mGroupWritableAccounts = groupWritableAccounts;
+    }
+    mServingSnapshot = true;
+  }
+
+  /**
+   * Persists the freshly loaded account lists if they differ from the ones served so far, logging
+   * what changed.
+   */
+  private void reconcileSnapshot(
+      List<AccountWithDataSet> previousAccounts,
+      List<AccountWithDataSet> allAccounts,
+      List<AccountWithDataSet> contactWritableAccounts,
+      List<AccountWithDataSet> groupWritableAccounts) {
+    Set<AccountWithDataSet> contactWritable = new HashSet<>(contactWritableAccounts);
+    Set<AccountWithDataSet> groupWritable = new HashSet<>(groupWritableAccounts);
+    JSONArray snapshot = new JSONArray();
+    try {
+      for (AccountWithDataSet account : allAccounts) {
+        snapshot.put(
+            new JSONObject()
+                .put(SNAPSHOT_NAME, account.name)
+                .put(SNAPSHOT_TYPE, account.type)
+                .putOpt(SNAPSHOT_DATA_SET, account.dataSet)
+                .put(SNAPSHOT_CONTACT_WRITABLE, contactWritable.contains(account))
+                .put(SNAPSHOT_GROUP_WRITABLE, groupWritable.contains(account)));
+      }
+    } catch (JSONException e) {
+      Log.w(TAG, "Failed to build account snapshot", e);
+      return;
+    }
+
+    String snapshotString = snapshot.toString();
+    if (snapshotString.equals(mSnapshotPreferences.getString(SNAPSHOT_KEY, null))) {
+      return;
+    }
+
+    Set<AccountWithDataSet> added = new HashSet<>(allAccounts);
+    added.removeAll(previousAccounts);
+    Set<AccountWithDataSet> removed = new HashSet<>(previousAccounts);
+    removed.removeAll(allAccounts);
+    Log.i(
+        TAG,
+        "Accounts changed since the last snapshot: "
+            + added.size()
+            + " added, "
+            + removed.size()
+            + " removed");
+    mSnapshotPreferences.edit().putString(SNAPSHOT_KEY, snapshotString).apply();
   }
 
   /**
@@ -524,7 +675,9 @@ class AccountTypeManagerImpl extends AccountTypeManager
     contactWritableAccounts.sort(ACCOUNT_COMPARATOR);
     groupWritableAccounts.sort(ACCOUNT_COMPARATOR);
 
+    final List<AccountWithDataSet> previousAccounts;
     synchronized (this) {
+      previousAccounts = mAccounts;
       mAccountTypesWithDataSets = accountTypesByTypeAndDataSet;
       mAccounts = allAccounts;
       mContactWritableAccounts = contactWritableAccounts;
@@ -552,10 +705,14 @@ class AccountTypeManagerImpl extends AccountTypeManager
       mInitializationLatch.countDown();
       mInitializationLatch = null;
     }
+    mServingSnapshot = false;
     if (Log.isLoggable(Constants.PERFORMANCE_TAG, Log.DEBUG)) {
       Log.d(Constants.PERFORMANCE_TAG, "AccountTypeManager.loadAccountsInBackground finish");
     }
 
+    reconcileSnapshot(
+        previousAccounts, allAccounts, contactWritableAccounts, groupWritableAccounts);
+
     // Check filter validity since filter may become obsolete after account update. It must be
     // done from UI thread.
     mMainThreadHandler.post(mCheckFilterValidityRunnable);
@@ -578,13 +735,13 @@ class AccountTypeManagerImpl extends AccountTypeManager
   /** Return list of all known, contact writable {@link AccountWithDataSet}'s. */
   @Override
   public List<AccountWithDataSet> getAccounts(boolean contactWritableOnly) {
-    ensureAccountsLoaded();
+    ensureAccountListsLoaded();
     return contactWritableOnly ? mContactWritableAccounts : mAccounts;
   }
 
   /** Return the list of all known, group writable {@link AccountWithDataSet}'s. */
   public List<AccountWithDataSet> getGroupWritableAccounts() {
-    ensureAccountsLoaded();
+    ensureAccountListsLoaded();
     return mGroupWritableAccounts;
   }
 
@@ -26,13 +26,11 @@ import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
 import android.os.Trace;
-import android.provider.BlockedNumberContract;
 import android.provider.CallLog;
 import android.provider.ContactsContract.CommonDataKinds.Phone;
 import android.telecom.PhoneAccountHandle;
 import android.telephony.PhoneNumberUtils;
 import android.text.TextUtils;
-import android.util.ArrayMap;
 import android.util.ArraySet;
 import android.util.SparseArray;
 import android.view.ActionMode;
@@ -60,10 +58,10 @@ import com.android.dialer.app.calllog.calllogcache.CallLogCache;
 import com.android.dialer.app.contactinfo.ContactInfoCache;
 import com.android.dialer.app.voicemail.VoicemailPlaybackPresenter;
 import com.android.dialer.app.voicemail.VoicemailPlaybackPresenter.OnVoicemailDeletedListener;
+import com.android.dialer.blocking.BlockedNumberMirror;
 import com.android.dialer.blocking.FilteredNumberAsyncQueryHandler;
 import com.android.dialer.calldetails.CallDetailsEntries;
 import com.android.dialer.calldetails.CallDetailsEntries.CallDetailsEntry;
-import com.android.dialer.calllogutils.CallbackActionHelper.CallbackAction;
 import com.android.dialer.calllogutils.PhoneCallDetails;
 import com.android.dialer.common.Assert;
 import com.android.dialer.common.FragmentUtils.FragmentUtilListener;
@@ -76,11 +74,11 @@ import com.android.dialer.phonenumbercache.CallLogQuery;
 import com.android.dialer.phonenumbercache.ContactInfo;
 import com.android.dialer.phonenumbercache.ContactInfoHelper;
 import com.android.dialer.phonenumberutil.PhoneNumberHelper;
+import com.android.dialer.spam.Spam;
 import com.android.dialer.telecom.TelecomUtil;
 import com.android.dialer.util.PermissionsUtil;
 
 import java.util.ArrayList;
-import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -377,26 +375,16 @@ public class CallLogAdapter extends GroupingListAdapter
   private final CallLogListItemViewHolder.OnClickListener blockReportSpamListener;
 
   /**
-   * Map, keyed by call ID, used to track the callback action for a call. Calls associated with the
-   * same callback action will be put into the same primary call group in {@link
-   * com.android.dialer.app.calllog.CallLogGroupBuilder}. This information is used to set the
-   * callback icon and trigger the corresponding action.
-   */
-  private final Map<Long, Integer> callbackActions = new ArrayMap<>();
-
-  /**
-   * Map, keyed by call ID, used to track the day group for a call. As call log entries are put into
-   * the primary call groups in {@link com.android.dialer.app.calllog.CallLogGroupBuilder}, they are
-   * also assigned a secondary "day group". This map tracks the day group assigned to all calls in
-   * the call log. This information is used to trigger the display of a day group header above the
+   * The ID, type, callback action and day group of every call in the cursor, by cursor position.
+   * Calls associated with the same callback action are put into the same primary call group in
+   * {@link com.android.dialer.app.calllog.CallLogGroupBuilder}, and they are also assigned a
+   * secondary "day group", which is used to trigger the display of a day group header above the
    * call log entry at the start of a day group. Note: Multiple calls are grouped into a single
    * primary "call group" in the call log, and the cursor used to bind rows includes all of these
-   * calls. When determining if a day group change has occurred it is necessary to look at the last
-   * entry in the call log to determine its day group. This map provides a means of determining the
-   * previous day group without having to reverse the cursor to the start of the previous day call
-   * log entry.
+   * calls. Reading the values from here means binding a row neither walks the cursor over its
+   * calls nor reverses it to the previous call to determine the previous day group.
    */
-  private final Map<Long, Integer> dayGroups = new ArrayMap<>();
+  private CallLogRowMetadata rowMetadata = CallLogRowMetadata.EMPTY;
 
   private boolean loading = true;
 
@@ -577,6 +565,7 @@ public class CallLogAdapter extends GroupingListAdapter
 
   @Override
   protected void addGroups(Cursor cursor) {
+    rowMetadata = CallLogRowMetadata.EMPTY;
     callLogGroupBuilder.addGroups(cursor);
   }
 
@@ -627,7 +616,7 @@ public class CallLogAdapter extends GroupingListAdapter
    */
   @Override
   public void onBindViewHolder(@NonNull ViewHolder viewHolder, int position) {
-    Trace.beginSection("onBindViewHolder: " + position);
+    Trace.beginSection("CallLogAdapter.onBindViewHolder");
     switch (getItemViewType(position)) {
       case VIEW_TYPE_ALERT:
         // Do nothing
@@ -694,7 +683,7 @@ public class CallLogAdapter extends GroupingListAdapter
     if (currentlyExpandedRowId == views.rowId) {
       views.inflateActionViewStub();
     }
-    loadAndRender(views, views.rowId, details, callDetailsEntries);
+    loadAndRender(views, views.rowId, c.getPosition(), details, callDetailsEntries);
   }
 
   private void updateCheckMarkedStatusOfEntry(CallLogListItemViewHolder views) {
@@ -709,12 +698,14 @@ public class CallLogAdapter extends GroupingListAdapter
   }
 
   private boolean isHiddenRow(@Nullable String number, long rowId) {
-    return hiddenRowIds.contains(rowId);
+    // Avoid boxing the ID when nothing is hidden, which is almost always.
+    return !hiddenRowIds.isEmpty() && hiddenRowIds.contains(rowId);
   }
 
   private void loadAndRender(
       final CallLogListItemViewHolder viewHolder,
       final long rowId,
+      final int cursorPosition,
       final PhoneCallDetails details,
       final CallDetailsEntries callDetailsEntries) {
     LogUtil.d("CallLogAdapter.loadAndRender", "position: %d", viewHolder.getAdapterPosition());
@@ -724,7 +715,13 @@ public class CallLogAdapter extends GroupingListAdapter
     viewHolder.isBlocked = false;
 
     viewHolder.setDetailedPhoneDetails(callDetailsEntries);
-    final LoadDataTask loadDataTask = new LoadDataTask(viewHolder, details, rowId);
+    final LoadDataTask loadDataTask =
+        new LoadDataTask(
+            viewHolder,
+            details,
+            rowId,
+            rowMetadata.getCallbackAction(cursorPosition),
+            rowMetadata.getDayGroup(cursorPosition));
 
     viewHolder.asyncTask = loadDataTask;
     loadDataTask.execute();
@@ -741,25 +738,33 @@ public class CallLogAdapter extends GroupingListAdapter
     private final CallLogListItemViewHolder mViewHolder;
     private final PhoneCallDetails mDetails;
     private final long mRowId;
+    private final int mCallbackAction;
+    private final int mDayGroup;
 
     private final ExecutorService mExecutor;
     private final Handler mHandler;
 
     public LoadDataTask(CallLogListItemViewHolder viewHolder, PhoneCallDetails details,
-                        long rowId) {
+                        long rowId, int callbackAction, int dayGroup) {
       mExecutor = Executors.newSingleThreadExecutor();
       mHandler = new Handler(Looper.getMainLooper());
       mViewHolder = viewHolder;
       mDetails = details;
       mRowId = rowId;
+      mCallbackAction = callbackAction;
+      mDayGroup = dayGroup;
     }
 
     public void execute() {
       mExecutor.execute(() -> {
         final boolean success;
-        mViewHolder.isBlocked = BlockedNumberContract.canCurrentUserBlockNumbers(activity) &&
-                BlockedNumberContract.isBlocked(activity, mViewHolder.number);
+        mViewHolder.isBlocked = BlockedNumberMirror.isBlocked(activity, mViewHolder.number);
         mDetails.isBlocked = mViewHolder.isBlocked;
+        mViewHolder.isSpam =
+            Spam.shouldShowAsSpam(
+                Spam.isSpam(activity, mViewHolder.number, mDetails.countryIso),
+                mDetails.callTypes[0]);
+        mDetails.isSpam = mViewHolder.isSpam;
         if (mIsCancelled) {
           success = false;
         } else {
@@ -769,11 +774,10 @@ public class CallLogAdapter extends GroupingListAdapter
         mHandler.post(() -> {
           mViewHolder.isLoaded = true;
           if (success) {
-            mViewHolder.callbackAction = getCallbackAction(mViewHolder.rowId);
-            int currentDayGroup = getDayGroup(mViewHolder.rowId);
-            if (currentDayGroup != mDetails.previousGroup) {
+            mViewHolder.callbackAction = mCallbackAction;
+            if (mDayGroup != mDetails.previousGroup) {
               mViewHolder.dayGroupHeaderVisibility = View.VISIBLE;
-              mViewHolder.dayGroupHeaderText = getGroupDescription(currentDayGroup);
+              mViewHolder.dayGroupHeaderText = getGroupDescription(mDayGroup);
             } else {
               mViewHolder.dayGroupHeaderVisibility = View.GONE;
             }
@@ -800,6 +804,7 @@ public class CallLogAdapter extends GroupingListAdapter
     final String postDialDigits = cursor.getString(CallLogQuery.POST_DIAL_DIGITS);
     final String viaNumber = cursor.getString(CallLogQuery.VIA_NUMBER);
     final int numberPresentation = cursor.getInt(CallLogQuery.NUMBER_PRESENTATION);
+    final int position = cursor.getPosition();
     final ContactInfo cachedContactInfo = ContactInfoHelper.getContactInfo(cursor);
     final PhoneCallDetails details =
         new PhoneCallDetails(number, numberPresentation, postDialDigits);
@@ -807,9 +812,9 @@ public class CallLogAdapter extends GroupingListAdapter
     details.countryIso = cursor.getString(CallLogQuery.COUNTRY_ISO);
     details.date = cursor.getLong(CallLogQuery.DATE);
     details.duration = cursor.getLong(CallLogQuery.DURATION);
-    details.features = getCallFeatures(cursor, count);
+    details.features = rowMetadata.getCombinedFeatures(position, count);
     details.geocode = cursor.getString(CallLogQuery.GEOCODED_LOCATION);
-    details.callTypes = getCallTypes(cursor, count);
+    details.callTypes = rowMetadata.getCallTypes(position, count);
 
     details.accountComponentName = cursor.getString(CallLogQuery.ACCOUNT_COMPONENT_NAME);
     details.accountId = cursor.getString(CallLogQuery.ACCOUNT_ID);
@@ -821,8 +826,8 @@ public class CallLogAdapter extends GroupingListAdapter
 
     views.rowId = cursor.getLong(CallLogQuery.ID);
     // Stash away the Ids of the calls so that we can support deleting a row in the call log.
-    views.callIds = getCallIds(cursor, count);
-    details.previousGroup = getPreviousDayGroup(cursor);
+    views.callIds = rowMetadata.getRowIds(position, count);
+    details.previousGroup = getPreviousDayGroup(position);
 
     // Store values used when the actions ViewStub is inflated on expansion.
     views.number = number;
@@ -1095,143 +1100,26 @@ public class CallLogAdapter extends GroupingListAdapter
    * Retrieves the day group of the previous call in the call log. Used to determine if the day
    * group has changed and to trigger display of the day group text.
    *
-   * @param cursor The call log cursor.
+   * @param position The cursor position of the call.
    * @return The previous day group, or DAY_GROUP_NONE if this is the first call.
    */
-  private int getPreviousDayGroup(Cursor cursor) {
-    // We want to restore the position in the cursor at the end.
-    int startingPosition = cursor.getPosition();
-    moveToPreviousNonHiddenRow(cursor);
-    if (cursor.isBeforeFirst()) {
-      cursor.moveToPosition(startingPosition);
-      return CallLogGroupBuilder.DAY_GROUP_NONE;
-    }
-    int result = getDayGroup(cursor.getLong(CallLogQuery.ID));
-    cursor.moveToPosition(startingPosition);
-    return result;
-  }
-
-  private void moveToPreviousNonHiddenRow(Cursor cursor) {
-    while (cursor.moveToPrevious() && hiddenRowIds.contains(cursor.getLong(CallLogQuery.ID))) {}
-  }
-
-  /**
-   * Given a call ID, look up its callback action. Callback action data are populated in {@link
-   * com.android.dialer.app.calllog.CallLogGroupBuilder}.
-   *
-   * @param callId The call ID to retrieve the callback action.
-   * @return The callback action for the call.
-   */
-  @MainThread
-  private int getCallbackAction(long callId) {
-    Integer result = callbackActions.get(callId);
-    if (result != null) {
-      return result;
-    }
-    return CallbackAction.NONE;
-  }
-
-  /**
-   * Given a call ID, look up the day group the call belongs to. Day group data are populated in
-   * {@link com.android.dialer.app.calllog.CallLogGroupBuilder}.
-   *
-   * @param callId The call ID to retrieve the day group.
-   * @return The day group for the call.
-   */
-  @MainThread
-  private int getDayGroup(long callId) {
-    Integer result = dayGroups.get(callId);
-    if (result != null) {
-      return result;
-    }
-    return CallLogGroupBuilder.DAY_GROUP_NONE;
-  }
-
-  /**
-   * Returns the call types for the given number of items in the cursor.
-   *
-   * <p>It uses the next {@code count} rows in the cursor to extract the types.
-   *
-   * <p>It position in the cursor is unchanged by this function.
-   */
-  private static int[] getCallTypes(Cursor cursor, int count) {
-    int position = cursor.getPosition();
-    int[] callTypes = new int[count];
-    for (int index = 0; index < count; ++index) {
-      callTypes[index] = cursor.getInt(CallLogQuery.CALL_TYPE);
-      cursor.moveToNext();
-    }
-    cursor.moveToPosition(position);
-    return callTypes;
-  }
-
-  /**
-   * Determine the features which were enabled for any of the calls that make up a call log entry.
-   *
-   * @param cursor The cursor.
-   * @param count The number of calls for the current call log entry.
-   * @return The features.
-   */
-  private int getCallFeatures(Cursor cursor, int count) {
-    int features = 0;
-    int position = cursor.getPosition();
-    for (int index = 0; index < count; ++index) {
-      features |= cursor.getInt(CallLogQuery.FEATURES);
-      cursor.moveToNext();
+  private int getPreviousDayGroup(int position) {
+    int previous = position - 1;
+    while (previous >= 0 && isHiddenRow(null, rowMetadata.getRowId(previous))) {
+      previous--;
     }
-    cursor.moveToPosition(position);
-    return features;
-  }
-
-  /**
-   * Stores the callback action associated with a call in the call log.
-   *
-   * @param rowId The row ID of the current call.
-   * @param callbackAction The current call's callback action.
-   */
-  @Override
-  @MainThread
-  public void setCallbackAction(long rowId, @CallbackAction int callbackAction) {
-    callbackActions.put(rowId, callbackAction);
+    return rowMetadata.getDayGroup(previous);
   }
 
   /**
-   * Stores the day group associated with a call in the call log.
+   * Stores the callback action and the day group of every call in the call log.
    *
-   * @param rowId The row ID of the current call.
-   * @param dayGroup The day group the call belongs in.
+   * @param metadata The values of the calls, by cursor position.
    */
   @Override
   @MainThread
-  public void setDayGroup(long rowId, int dayGroup) {
-    dayGroups.put(rowId, dayGroup);
-  }
-
-  /** Clears the day group associations on re-bind of the call log. */
-  @Override
-  @MainThread
-  public void clearDayGroups() {
-    dayGroups.clear();
-  }
-
-  /**
-   * Retrieves the call Ids represented by the current call log row.
-   *
-   * @param cursor Call log cursor to retrieve call Ids from.
-   * @param groupSize Number of calls associated with the current call log row.
-   * @return Array of call Ids.
-   */
-  private long[] getCallIds(final Cursor cursor, final int groupSize) {
-    // We want to restore the position in the cursor at the end.
-    int startingPosition = cursor.getPosition();
-    long[] ids = new long[groupSize];
-    // Copy the ids of the rows in the group.
-    for (int index = 0; index < groupSize; ++index) {
-      ids[index] = cursor.getLong(CallLogQuery.ID);
-      cursor.moveToNext();
-    }
-    cursor.moveToPosition(startingPosition);
-    return ids;
+  public void setRowMetadata(CallLogRowMetadata metadata) {
+    rowMetadata = metadata;
   }
 
   /**
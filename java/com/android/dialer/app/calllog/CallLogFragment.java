@@ -454,6 +454,7 @@ public class CallLogFragment extends Fragment
   @Override
   public void onDestroy() {
     LogUtil.enterBlock("CallLogFragment.onDestroy");
+    callLogQueryHandler.cancelRefresh();
     if (adapter != null) {
       adapter.changeCursor(null);
     }
@@ -477,7 +478,8 @@ public class CallLogFragment extends Fragment
 
   @Override
   public void fetchCalls() {
-    callLogQueryHandler.fetchCalls(callTypeFilter, dateLimit);
+    callLogQueryHandler.requestRefresh(
+        CallLogQueryHandler.QUERY_CALLS, callTypeFilter, dateLimit);
     if (!isCallLogActivity
         && getActivity() != null
         && !getActivity().isFinishing()
@@ -547,9 +549,11 @@ public class CallLogFragment extends Fragment
       contactInfoCache.invalidate();
       adapter.setLoading(true);
 
+      // Runs in one refresh with the calls.
       fetchCalls();
-      callLogQueryHandler.fetchVoicemailStatus();
-      callLogQueryHandler.fetchMissedCallsUnreadCount();
+      callLogQueryHandler.requestRefresh(
+          CallLogQueryHandler.QUERY_VOICEMAIL_STATUS
+              | CallLogQueryHandler.QUERY_MISSED_CALLS_UNREAD_COUNT);
       refreshDataRequired = false;
     } else {
       // Refresh the display of the existing data to update the timestamp text descriptions.
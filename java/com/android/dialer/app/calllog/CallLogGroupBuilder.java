@@ -17,6 +17,8 @@
 package com.android.dialer.app.calllog;
 
 import android.database.Cursor;
+import android.os.SystemClock;
+import android.os.Trace;
 import android.provider.CallLog.Calls;
 import android.telephony.PhoneNumberUtils;
 import android.text.TextUtils;
@@ -25,12 +27,13 @@ import androidx.annotation.Nullable;
 
 import com.android.contacts.common.util.DateUtils;
 import com.android.dialer.calllogutils.CallbackActionHelper;
-import com.android.dialer.calllogutils.CallbackActionHelper.CallbackAction;
+import com.android.dialer.common.LogUtil;
 import com.android.dialer.compat.telephony.TelephonyManagerCompat;
 import com.android.dialer.phonenumbercache.CallLogQuery;
 import com.android.dialer.phonenumberutil.PhoneNumberHelper;
 
 import java.time.ZoneId;
+import java.util.Arrays;
 
 /**
  * Groups together calls in the call log. The primary grouping attempts to group together calls to
@@ -60,6 +63,22 @@ public class CallLogGroupBuilder {
   /** The object on which the groups are created. */
   private final GroupCreator groupCreator;
 
+  // The previous grouping, indexed by cursor position. Only the rows that changed since, and the
+  // rows next to them, have to be grouped again.
+  private long[] rowIds = new long[0];
+  private long[] dates = new long[0];
+  private int[] callTypes = new int[0];
+  private int[] features = new int[0];
+  /** The size of the group starting at a position, 0 for positions within a group. */
+  private int[] groupSizes = new int[0];
+  private int[] callbackActions = new int[0];
+  private int[] dayGroups = new int[0];
+  /** When the previous grouping was done, day groups are only reused on the same day. */
+  private long groupingTime;
+
+  private int fullGroupingCount;
+  private int incrementalGroupingCount;
+
   public CallLogGroupBuilder(GroupCreator groupCreator) {
     this.groupCreator = groupCreator;
   }
@@ -72,6 +91,11 @@ public class CallLogGroupBuilder {
    *
    * <p>It assumes that the cursor will not change during its execution.
    *
+   * <p>Rows at the start and at the end of the cursor that are the same as in the previous cursor
+   * keep their previous grouping. Only the rows in between, e.g. a new call at the top, and the
+   * groups next to them are grouped again. Rows are the same if their ID, date, type and features
+   * are, the other columns used for grouping don't change once a call is logged.
+   *
    * @see GroupingListAdapter#addGroups(Cursor)
    */
   public void addGroups(Cursor cursor) {
@@ -79,115 +103,195 @@ public class CallLogGroupBuilder {
     if (count == 0) {
       return;
     }
-
-    // Clear any previous day grouping information.
-    groupCreator.clearDayGroups();
+    Trace.beginSection("CallLogGroupBuilder.addGroups");
+    final long startTime = SystemClock.elapsedRealtime();
 
     // Get current system time, used for calculating which day group calls belong to.
     long currentTime = System.currentTimeMillis();
-    cursor.moveToFirst();
-
-    // Determine the day group for the first call in the cursor.
-    final long firstDate = cursor.getLong(CallLogQuery.DATE);
-    final long firstRowId = cursor.getLong(CallLogQuery.ID);
-    int groupDayGroup = getDayGroup(firstDate, currentTime);
-    groupCreator.setDayGroup(firstRowId, groupDayGroup);
-
-    // Determine the callback action for the first call in the cursor.
-    String groupNumber = cursor.getString(CallLogQuery.NUMBER);
-    String groupAccountComponentName = cursor.getString(CallLogQuery.ACCOUNT_COMPONENT_NAME);
-    int groupFeatures = cursor.getInt(CallLogQuery.FEATURES);
-    int groupCallbackAction = CallbackActionHelper.getCallbackAction(groupNumber, groupFeatures);
-    groupCreator.setCallbackAction(firstRowId, groupCallbackAction);
-
-    // Instantiate other group values to those of the first call in the cursor.
-    String groupAccountId = cursor.getString(CallLogQuery.ACCOUNT_ID);
-    String groupPostDialDigits = cursor.getString(CallLogQuery.POST_DIAL_DIGITS);
-    String groupViaNumbers = cursor.getString(CallLogQuery.VIA_NUMBER);
-    int groupCallType = cursor.getInt(CallLogQuery.CALL_TYPE);
-    int groupSize = 1;
 
-    String number;
-    String numberPostDialDigits;
-    String numberViaNumbers;
-    int callType;
-    int callFeatures;
-    String accountComponentName;
-    String accountId;
-    int callbackAction;
+    final long[] newRowIds = new long[count];
+    final long[] newDates = new long[count];
+    final int[] newCallTypes = new int[count];
+    final int[] newFeatures = new int[count];
+    for (int i = 0; i < count; i++) {
+      cursor.moveToPosition(i);
+      newRowIds[i] = cursor.getLong(CallLogQuery.ID);
+      newDates[i] = cursor.getLong(CallLogQuery.DATE);
+      newCallTypes[i] = cursor.getInt(CallLogQuery.CALL_TYPE);
+      newFeatures[i] = cursor.getInt(CallLogQuery.FEATURES);
+    }
 
-    while (cursor.moveToNext()) {
-      // Obtain the values for the current call to group.
-      number = cursor.getString(CallLogQuery.NUMBER);
-      numberPostDialDigits = cursor.getString(CallLogQuery.POST_DIAL_DIGITS);
-      numberViaNumbers = cursor.getString(CallLogQuery.VIA_NUMBER);
-      callType = cursor.getInt(CallLogQuery.CALL_TYPE);
-      callFeatures = cursor.getInt(CallLogQuery.FEATURES);
-      accountComponentName = cursor.getString(CallLogQuery.ACCOUNT_COMPONENT_NAME);
-      accountId = cursor.getString(CallLogQuery.ACCOUNT_ID);
-      callbackAction = CallbackActionHelper.getCallbackAction(number, callFeatures);
+    final int[] newGroupSizes = new int[count];
+    final int[] newCallbackActions = new int[count];
+    final int[] newDayGroups = new int[count];
+
+    // Find the rows that are unchanged at the start and at the end of the cursor.
+    final int oldCount = rowIds.length;
+    int start = 0;
+    int unchangedEnd = count;
+    if (oldCount > 0 && DateUtils.getDayDifference(TIME_ZONE, groupingTime, currentTime) == 0) {
+      int prefix = 0;
+      while (prefix < count
+          && prefix < oldCount
+          && isSameRow(prefix, prefix, newRowIds, newDates, newCallTypes, newFeatures)) {
+        prefix++;
+      }
+      int suffix = 0;
+      while (suffix < count - prefix
+          && suffix < oldCount - prefix
+          && isSameRow(
+              count - 1 - suffix,
+              oldCount - 1 - suffix,
+              newRowIds,
+              newDates,
+              newCallTypes,
+              newFeatures)) {
+        suffix++;
+      }
+      unchangedEnd = count - suffix;
+
+      // The first changed row might join the group before it, so group again from its start.
+      if (prefix > 0) {
+        start = prefix - 1;
+        while (groupSizes[start] == 0) {
+          start--;
+        }
+      }
+      System.arraycopy(groupSizes, 0, newGroupSizes, 0, start);
+      System.arraycopy(callbackActions, 0, newCallbackActions, 0, start);
+      System.arraycopy(dayGroups, 0, newDayGroups, 0, start);
+    }
 
-      final boolean isSameNumber = equalNumbers(groupNumber, number);
-      final boolean isSamePostDialDigits = groupPostDialDigits.equals(numberPostDialDigits);
-      final boolean isSameViaNumbers = groupViaNumbers.equals(numberViaNumbers);
-      final boolean isSameAccount =
-          isSameAccount(groupAccountComponentName, accountComponentName, groupAccountId, accountId);
-      final boolean isSameCallbackAction = (groupCallbackAction == callbackAction);
+    if (start == 0) {
+      fullGroupingCount++;
+    } else {
+      incrementalGroupingCount++;
+    }
 
-      // Group calls with the following criteria:
-      // (1) Calls with the same number, account, and callback action should be in the same group;
-      // (2) Never group voice mails; and
-      // (3) Only group blocked calls with other blocked calls.
-      // (4) Only group calls that were assisted dialed with other calls that were assisted dialed.
-      if (isSameNumber
-          && isSameAccount
-          && isSamePostDialDigits
-          && isSameViaNumbers
-          && isSameCallbackAction
-          && areBothNotVoicemail(callType, groupCallType)
-          && (areBothNotBlocked(callType, groupCallType) || areBothBlocked(callType, groupCallType))
-          && meetsAssistedDialingGroupingCriteria(groupFeatures, callFeatures)) {
+    // Offset of a position in the previous grouping for the rows at the end.
+    final int shift = count - oldCount;
+    GroupValues group = new GroupValues();
+    GroupValues call = new GroupValues();
+
+    // Instantiate the group values to those of the first call to group.
+    cursor.moveToPosition(start);
+    group.read(cursor);
+    int groupStart = start;
+    int groupDayGroup = getDayGroup(newDates[start], currentTime);
+    int position = start + 1;
+    for (; position < count; position++) {
+      cursor.moveToPosition(position);
+      // Obtain the values for the current call to group.
+      call.read(cursor);
+      if (group.includes(call)) {
         // Increment the size of the group to include the current call, but do not create
         // the group until finding a call that does not match.
-        groupSize++;
-      } else {
-        // The call group has changed. Determine the day group for the new call group.
-        final long date = cursor.getLong(CallLogQuery.DATE);
-        groupDayGroup = getDayGroup(date, currentTime);
-
-        // Create a group for the previous group of calls, which does not include the
-        // current call.
-        groupCreator.addGroup(cursor.getPosition() - groupSize, groupSize);
-
-        // Start a new group; it will include at least the current call.
-        groupSize = 1;
-
-        // Update the group values to those of the current call.
-        groupNumber = number;
-        groupPostDialDigits = numberPostDialDigits;
-        groupViaNumbers = numberViaNumbers;
-        groupCallType = callType;
-        groupAccountComponentName = accountComponentName;
-        groupAccountId = accountId;
-        groupCallbackAction = callbackAction;
-        groupFeatures = callFeatures;
+        continue;
       }
 
-      // Save the callback action and the day group associated with the current call.
-      final long currentCallId = cursor.getLong(CallLogQuery.ID);
-      groupCreator.setCallbackAction(currentCallId, groupCallbackAction);
-      groupCreator.setDayGroup(currentCallId, groupDayGroup);
+      // The call group has changed. Create a group for the previous group of calls, which does
+      // not include the current call.
+      setGroup(
+          newGroupSizes,
+          newCallbackActions,
+          newDayGroups,
+          groupStart,
+          position,
+          group.callbackAction,
+          groupDayGroup);
+
+      if (position >= unchangedEnd && groupSizes[position - shift] > 0) {
+        // A group starts here as it did before, and the calls from here on are unchanged, so are
+        // their groups.
+        System.arraycopy(groupSizes, position - shift, newGroupSizes, position, count - position);
+        System.arraycopy(
+            callbackActions, position - shift, newCallbackActions, position, count - position);
+        System.arraycopy(dayGroups, position - shift, newDayGroups, position, count - position);
+        break;
+      }
+
+      // Start a new group; it will include at least the current call. Determine its day group.
+      GroupValues previousGroup = group;
+      group = call;
+      call = previousGroup;
+      groupStart = position;
+      groupDayGroup = getDayGroup(newDates[position], currentTime);
+    }
+
+    if (position == count) {
+      // Create a group for the last set of calls.
+      setGroup(
+          newGroupSizes,
+          newCallbackActions,
+          newDayGroups,
+          groupStart,
+          count,
+          group.callbackAction,
+          groupDayGroup);
+    }
+
+    // Save the groups, and the callback action and the day group associated with each call.
+    for (int i = 0; i < count; i++) {
+      if (newGroupSizes[i] > 0) {
+        groupCreator.addGroup(i, newGroupSizes[i]);
+      }
     }
+    groupCreator.setRowMetadata(
+        new CallLogRowMetadata(
+            newRowIds, newCallTypes, newFeatures, newCallbackActions, newDayGroups));
+
+    LogUtil.v(
+        "CallLogGroupBuilder.addGroups",
+        "grouped %d of %d calls again in %d ms (full: %d, incremental: %d)",
+        Math.min(position, count) - start,
+        count,
+        SystemClock.elapsedRealtime() - startTime,
+        fullGroupingCount,
+        incrementalGroupingCount);
+
+    rowIds = newRowIds;
+    dates = newDates;
+    callTypes = newCallTypes;
+    features = newFeatures;
+    groupSizes = newGroupSizes;
+    callbackActions = newCallbackActions;
+    dayGroups = newDayGroups;
+    groupingTime = currentTime;
+    Trace.endSection();
+  }
+
+  private boolean isSameRow(
+      int position,
+      int oldPosition,
+      long[] newRowIds,
+      long[] newDates,
+      int[] newCallTypes,
+      int[] newFeatures) {
+    return newRowIds[position] == rowIds[oldPosition]
+        && newDates[position] == dates[oldPosition]
+        && newCallTypes[position] == callTypes[oldPosition]
+        && newFeatures[position] == features[oldPosition];
+  }
 
-    // Create a group for the last set of calls.
-    groupCreator.addGroup(count - groupSize, groupSize);
+  /** Records the group of calls from {@code start} up to, excluding, {@code end}. */
+  private static void setGroup(
+      int[] groupSizes,
+      int[] callbackActions,
+      int[] dayGroups,
+      int start,
+      int end,
+      int callbackAction,
+      int dayGroup) {
+    groupSizes[start] = end - start;
+    Arrays.fill(callbackActions, start, end, callbackAction);
+    Arrays.fill(dayGroups, start, end, dayGroup);
   }
 
   /**
    * Returns true when the two input numbers can be considered identical enough for caller ID
    * purposes and put in a call log group.
    */
-  private boolean equalNumbers(@Nullable String number1, @Nullable String number2) {
+  private static boolean equalNumbers(@Nullable String number1, @Nullable String number2) {
     if (PhoneNumberHelper.isUriNumber(number1) || PhoneNumberHelper.isUriNumber(number2)) {
       return PhoneNumberHelper.compareSipAddresses(number1, number2);
     }
@@ -204,7 +308,7 @@ public class CallLogGroupBuilder {
     return PhoneNumberUtils.compare(number1, number2);
   }
 
-  private boolean isSameAccount(String name1, String name2, String id1, String id2) {
+  private static boolean isSameAccount(String name1, String name2, String id1, String id2) {
     return TextUtils.equals(name1, name2) && TextUtils.equals(id1, id2);
   }
 
@@ -215,7 +319,7 @@ public class CallLogGroupBuilder {
    * @param now The current date.
    * @return The date group the call belongs in.
    */
-  private int getDayGroup(long date, long now) {
+  private static int getDayGroup(long date, long now) {
     int days = DateUtils.getDayDifference(TIME_ZONE, date, now);
 
     if (days == 0) {
@@ -227,25 +331,72 @@ public class CallLogGroupBuilder {
     }
   }
 
-  private boolean areBothNotVoicemail(int callType, int groupCallType) {
+  private static boolean areBothNotVoicemail(int callType, int groupCallType) {
     return callType != Calls.VOICEMAIL_TYPE && groupCallType != Calls.VOICEMAIL_TYPE;
   }
 
-  private boolean areBothNotBlocked(int callType, int groupCallType) {
+  private static boolean areBothNotBlocked(int callType, int groupCallType) {
     return callType != Calls.BLOCKED_TYPE && groupCallType != Calls.BLOCKED_TYPE;
   }
 
-  private boolean areBothBlocked(int callType, int groupCallType) {
+  private static boolean areBothBlocked(int callType, int groupCallType) {
     return callType == Calls.BLOCKED_TYPE && groupCallType == Calls.BLOCKED_TYPE;
   }
 
-  private boolean meetsAssistedDialingGroupingCriteria(int groupFeatures, int callFeatures) {
+  private static boolean meetsAssistedDialingGroupingCriteria(int groupFeatures, int callFeatures) {
     int groupAssisted = (groupFeatures & TelephonyManagerCompat.FEATURES_ASSISTED_DIALING);
     int callAssisted = (callFeatures & TelephonyManagerCompat.FEATURES_ASSISTED_DIALING);
 
     return groupAssisted == callAssisted;
   }
 
+  /** The values of a call that determine its group. */
+  private static final class GroupValues {
+    String number;
+    String postDialDigits;
+    String viaNumbers;
+    int callType;
+    int features;
+    String accountComponentName;
+    String accountId;
+    int callbackAction;
+
+    void read(Cursor cursor) {
+      number = cursor.getString(CallLogQuery.NUMBER);
+      postDialDigits = cursor.getString(CallLogQuery.POST_DIAL_DIGITS);
+      viaNumbers = cursor.getString(CallLogQuery.VIA_NUMBER);
+      callType = cursor.getInt(CallLogQuery.CALL_TYPE);
+      features = cursor.getInt(CallLogQuery.FEATURES);
+      accountComponentName = cursor.getString(CallLogQuery.ACCOUNT_COMPONENT_NAME);
+      accountId = cursor.getString(CallLogQuery.ACCOUNT_ID);
+      callbackAction = CallbackActionHelper.getCallbackAction(number, features);
+    }
+
+    /** Whether the call belongs to the group this call is the first of. */
+    boolean includes(GroupValues call) {
+      final boolean isSameNumber = equalNumbers(number, call.number);
+      final boolean isSamePostDialDigits = postDialDigits.equals(call.postDialDigits);
+      final boolean isSameViaNumbers = viaNumbers.equals(call.viaNumbers);
+      final boolean isSameAccount =
+          isSameAccount(accountComponentName, call.accountComponentName, accountId, call.accountId);
+      final boolean isSameCallbackAction = (callbackAction == call.callbackAction);
+
+      // Group calls with the following criteria:
+      // (1) Calls with the same number, account, and callback action should be in the same group;
+      // (2) Never group voice mails; and
+      // (3) Only group blocked calls with other blocked calls.
+      // (4) Only group calls that were assisted dialed with other calls that were assisted dialed.
+      return isSameNumber
+          && isSameAccount
+          && isSamePostDialDigits
+          && isSameViaNumbers
+          && isSameCallbackAction
+          && areBothNotVoicemail(call.callType, callType)
+          && (areBothNotBlocked(call.callType, callType) || areBothBlocked(call.callType, callType))
+          && meetsAssistedDialingGroupingCriteria(features, call.features);
+    }
+  }
+
   public interface GroupCreator {
 
     /**
@@ -258,26 +409,12 @@ public class CallLogGroupBuilder {
     void addGroup(int cursorPosition, int size);
 
     /**
-     * Defines the interface for tracking each call's callback action. Calls in a call group are
-     * associated with the same callback action as the first call in the group. The value of a
-     * callback action should be one of the categories in {@link CallbackAction}.
+     * Defines the interface for tracking the values of each call of the cursor being grouped:
+     * its callback action and its day group, which are those of the first call in its group. The
+     * day group assigns calls to the buckets: Today, Yesterday, Last week, and Other.
      *
-     * @param rowId The row ID of the current call.
-     * @param callbackAction The current call's callback action.
+     * @param metadata The values of the calls, by cursor position.
      */
-    void setCallbackAction(long rowId, @CallbackAction int callbackAction);
-
-    /**
-     * Defines the interface for tracking the day group each call belongs to. Calls in a call group
-     * are assigned the same day group as the first call in the group. The day group assigns calls
-     * to the buckets: Today, Yesterday, Last week, and Other
-     *
-     * @param rowId The row ID of the current call.
-     * @param dayGroup The day group the call belongs to.
-     */
-    void setDayGroup(long rowId, int dayGroup);
-
-    /** Defines the interface for clearing the day groupings information on rebind/regroup. */
-    void clearDayGroups();
+    void setRowMetadata(CallLogRowMetadata metadata);
   }
 }
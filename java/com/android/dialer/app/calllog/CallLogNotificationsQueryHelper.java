@@ -24,10 +24,13 @@ import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.net.Uri;
+import android.os.SystemClock;
+import android.os.Trace;
 import android.provider.CallLog.Calls;
 import android.provider.VoicemailContract.Voicemails;
 import android.telephony.PhoneNumberUtils;
 import android.text.TextUtils;
+import android.util.ArrayMap;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -46,6 +49,7 @@ import com.android.dialer.util.PermissionsUtil;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 /** Helper class operating on call log notifications. */
@@ -228,6 +232,35 @@ public class CallLogNotificationsQueryHelper {
     return contactInfo;
   }
 
+  /**
+   * Returns the {@link ContactInfo} of each call, as {@link #getContactInfo(String, int, String)}
+   * would, in the same order. Calls from the same number are looked up only once.
+   */
+  @WorkerThread
+  public List<ContactInfo> getContactInfos(List<NewCall> calls) {
+    Trace.beginSection("CallLogNotificationsQueryHelper.getContactInfos");
+    long startMillis = SystemClock.elapsedRealtime();
+    List<ContactInfo> contactInfos = new ArrayList<>(calls.size());
+    Map<String, ContactInfo> contactInfosByNumber = new ArrayMap<>();
+    for (NewCall call : calls) {
+      String key = call.numberPresentation + "|" + call.countryIso + "|" + call.number;
+      ContactInfo contactInfo = contactInfosByNumber.get(key);
+      if (contactInfo == null) {
+        contactInfo = getContactInfo(call.number, call.numberPresentation, call.countryIso);
+        contactInfosByNumber.put(key, contactInfo);
+      }
+      contactInfos.add(contactInfo);
+    }
+    LogUtil.i(
+        "CallLogNotificationsQueryHelper.getContactInfos",
+        "%d calls, %d lookups in %d ms",
+        calls.size(),
+        contactInfosByNumber.size(),
+        SystemClock.elapsedRealtime() - startMillis);
+    Trace.endSection();
+    return contactInfos;
+  }
+
   /** Allows determining the new calls for which a notification should be generated. */
   public interface NewCallsQuery {
 
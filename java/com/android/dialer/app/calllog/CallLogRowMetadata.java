@@ -0,0 +1,76 @@
+/*
+ * SPDX-FileCopyrightText: The LineageOS Project
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.android.dialer.app.calllog;
+
+import com.android.dialer.calllogutils.CallbackActionHelper.CallbackAction;
+
+import java.util.Arrays;
+
+/**
+ * Per-call values of a call log cursor, indexed by cursor position, as computed by {@link
+ * CallLogGroupBuilder}.
+ *
+ * <p>Binding a row reads them from here instead of walking the cursor or looking them up by call
+ * ID. The arrays are not modified once created.
+ */
+final class CallLogRowMetadata {
+
+  static final CallLogRowMetadata EMPTY =
+      new CallLogRowMetadata(new long[0], new int[0], new int[0], new int[0], new int[0]);
+
+  private final long[] rowIds;
+  private final int[] callTypes;
+  private final int[] features;
+  private final int[] callbackActions;
+  private final int[] dayGroups;
+
+  CallLogRowMetadata(
+      long[] rowIds, int[] callTypes, int[] features, int[] callbackActions, int[] dayGroups) {
+    this.rowIds = rowIds;
+    this.callTypes = callTypes;
+    this.features = features;
+    this.callbackActions = callbackActions;
+    this.dayGroups = dayGroups;
+  }
+
+  long getRowId(int position) {
+    return rowIds[position];
+  }
+
+  /** Returns the IDs of the {@code count} calls starting at {@code position}. */
+  long[] getRowIds(int position, int count) {
+    return Arrays.copyOfRange(rowIds, position, position + count);
+  }
+
+  /** Returns the types of the {@code count} calls starting at {@code position}. */
+  int[] getCallTypes(int position, int count) {
+    return Arrays.copyOfRange(callTypes, position, position + count);
+  }
+
+  /** Returns the features enabled for any of the {@code count} calls from {@code position}. */
+  int getCombinedFeatures(int position, int count) {
+    int combined = 0;
+    for (int i = position; i < position + count; i++) {
+      combined |= features[i];
+    }
+    return combined;
+  }
+
+  @CallbackAction
+  int getCallbackAction(int position) {
+    if (position < 0 || position >= callbackActions.length) {
+      return CallbackAction.NONE;
+    }
+    return callbackActions[position];
+  }
+
+  int getDayGroup(int position) {
+    if (position < 0 || position >= dayGroups.length) {
+      return CallLogGroupBuilder.DAY_GROUP_NONE;
+    }
+    return dayGroups[position];
+  }
+}
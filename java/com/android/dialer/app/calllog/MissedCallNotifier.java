@@ -30,6 +30,7 @@ import android.graphics.Bitmap;
 import android.graphics.drawable.Icon;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.provider.CallLog.Calls;
 import android.service.notification.StatusBarNotification;
 import android.telecom.PhoneAccount;
@@ -39,6 +40,7 @@ import android.telephony.PhoneNumberUtils;
 import android.text.BidiFormatter;
 import android.text.TextDirectionHeuristics;
 import android.text.TextUtils;
+import android.util.ArrayMap;
 import android.util.ArraySet;
 
 import androidx.annotation.NonNull;
@@ -68,8 +70,11 @@ import com.android.dialer.theme.base.ThemeComponent;
 import com.android.dialer.util.DialerUtils;
 import com.android.dialer.util.IntentUtil;
 
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /** Creates a notification for calls that the user missed (neither answered nor rejected). */
@@ -107,6 +112,7 @@ public class MissedCallNotifier implements Worker<Pair<Integer, String>, Void> {
   @WorkerThread
   void updateMissedCallNotification(int count, @Nullable String number) {
     LogUtil.enterBlock("MissedCallNotifier.updateMissedCallNotification");
+    long startMillis = SystemClock.elapsedRealtime();
 
     final String titleText;
     CharSequence expandedText; // The text in the notification's line 1 and 2.
@@ -145,6 +151,37 @@ public class MissedCallNotifier implements Worker<Pair<Integer, String>, Void> {
 
     Notification.Builder groupSummary = createNotificationBuilder();
     boolean useCallList = newCalls != null;
+    StatusBarNotification[] activeNotifications = null;
+    List<NewCall> callsToNotify = new ArrayList<>();
+    List<String> tags = new ArrayList<>();
+    Map<String, Integer> callIndices = new ArrayMap<>();
+    List<ContactInfo> contactInfos = null;
+    if (useCallList) {
+      // Snapshot the active notifications once, for filtering and throttling. The group summary
+      // posted below doesn't count towards either.
+      activeNotifications = DialerNotificationManager.getActiveNotifications(context);
+
+      // Do not repost active notifications to prevent erasing post call notes.
+      Set<String> activeAndThrottledTags = new ArraySet<>();
+      for (StatusBarNotification activeNotification : activeNotifications) {
+        activeAndThrottledTags.add(activeNotification.getTag());
+      }
+      // Do not repost throttled notifications
+      activeAndThrottledTags.addAll(DialerNotificationManager.getThrottledNotificationTags());
+
+      for (NewCall call : newCalls) {
+        String callTag = getNotificationTagForCall(call);
+        if (!activeAndThrottledTags.contains(callTag)) {
+          tags.add(callTag);
+          callIndices.put(callTag, callsToNotify.size());
+          callsToNotify.add(call);
+        }
+      }
+      // Only the calls notified about are looked up, in one batch, and the single call shown by
+      // the summary. A call notified about is then at the same index in both lists.
+      contactInfos =
+          callLogNotificationsQueryHelper.getContactInfos(count == 1 ? newCalls : callsToNotify);
+    }
 
     if (count == 1) {
       LogUtil.i(
@@ -165,8 +202,10 @@ public class MissedCallNotifier implements Worker<Pair<Integer, String>, Void> {
 
       // TODO: look up caller ID that is not in contacts.
       ContactInfo contactInfo =
-          callLogNotificationsQueryHelper.getContactInfo(
-              call.number, call.numberPresentation, call.countryIso);
+          useCallList
+              ? contactInfos.get(0)
+              : callLogNotificationsQueryHelper.getContactInfo(
+                  call.number, call.numberPresentation, call.countryIso);
       if (contactInfo.userType == ContactsUtils.USER_TYPE_WORK) {
         titleText = context.getSystemService(DevicePolicyManager.class).getResources().getString(
                 NOTIFICATION_MISSED_WORK_CALL_TITLE,
@@ -229,29 +268,26 @@ public class MissedCallNotifier implements Worker<Pair<Integer, String>, Void> {
         notification);
 
     if (useCallList) {
-      // Do not repost active notifications to prevent erasing post call notes.
-      Set<String> activeAndThrottledTags = new ArraySet<>();
-      for (StatusBarNotification activeNotification :
-          DialerNotificationManager.getActiveNotifications(context)) {
-        activeAndThrottledTags.add(activeNotification.getTag());
-      }
-      // Do not repost throttled notifications
-      for (StatusBarNotification throttledNotification :
-          DialerNotificationManager.getThrottledNotificationSet()) {
-        activeAndThrottledTags.add(throttledNotification.getTag());
-      }
-
-      for (NewCall call : newCalls) {
-        String callTag = getNotificationTagForCall(call);
-        if (!activeAndThrottledTags.contains(callTag)) {
-          DialerNotificationManager.notify(
-              context,
-              callTag,
-              MissedCallConstants.NOTIFICATION_ID,
-              getNotificationForCall(call, null));
-        }
-      }
+      List<ContactInfo> notifiedContactInfos = contactInfos;
+      // Calls from the same contact share its photo.
+      Map<ContactInfo, Bitmap> photoIcons = new IdentityHashMap<>();
+      DialerNotificationManager.notifyAll(
+          context,
+          activeNotifications,
+          MissedCallConstants.GROUP_KEY,
+          MissedCallConstants.NOTIFICATION_ID,
+          tags,
+          tag -> {
+            int index = callIndices.get(tag);
+            return getNotificationForCall(
+                callsToNotify.get(index), notifiedContactInfos.get(index), photoIcons, null);
+          });
     }
+    LogUtil.i(
+        "MissedCallNotifier.updateMissedCallNotification",
+        "notified %d missed calls in %d ms",
+        count,
+        SystemClock.elapsedRealtime() - startMillis);
   }
 
   /**
@@ -295,10 +331,10 @@ public class MissedCallNotifier implements Worker<Pair<Integer, String>, Void> {
   }
 
   private Notification getNotificationForCall(
-      @NonNull NewCall call, @Nullable String postCallMessage) {
-    ContactInfo contactInfo =
-        callLogNotificationsQueryHelper.getContactInfo(
-            call.number, call.numberPresentation, call.countryIso);
+      @NonNull NewCall call,
+      @NonNull ContactInfo contactInfo,
+      @NonNull Map<ContactInfo, Bitmap> photoIcons,
+      @Nullable String postCallMessage) {
 
     // Create a public viewable version of the notification, suitable for display when sensitive
     // notification content is hidden.
@@ -326,8 +362,13 @@ public class MissedCallNotifier implements Worker<Pair<Integer, String>, Void> {
           context.getString(R.string.post_call_notification_message, expandedText, postCallMessage);
     }
 
-    ContactPhotoLoader loader = new ContactPhotoLoader(context, contactInfo);
-    Bitmap photoIcon = loader.loadPhotoIcon();
+    Bitmap photoIcon;
+    if (photoIcons.containsKey(contactInfo)) {
+      photoIcon = photoIcons.get(contactInfo);
+    } else {
+      photoIcon = new ContactPhotoLoader(context, contactInfo).loadPhotoIcon();
+      photoIcons.put(contactInfo, photoIcon);
+    }
     if (photoIcon != null) {
       builder.setLargeIcon(photoIcon);
     }
@@ -18,7 +18,6 @@ package com.android.dialer.app.calllog;
 
 import android.content.Context;
 import android.net.Uri;
-import android.provider.BlockedNumberContract;
 import android.service.notification.StatusBarNotification;
 import android.text.TextUtils;
 import android.util.ArrayMap;
@@ -29,6 +28,7 @@ import androidx.annotation.WorkerThread;
 
 import com.android.dialer.app.R;
 import com.android.dialer.app.calllog.CallLogNotificationsQueryHelper.NewCall;
+import com.android.dialer.blocking.BlockedNumberMirror;
 import com.android.dialer.blocking.FilteredNumberAsyncQueryHandler;
 import com.android.dialer.common.Assert;
 import com.android.dialer.common.LogUtil;
@@ -180,8 +180,7 @@ class VisualVoicemailUpdateTask implements Worker<VisualVoicemailUpdateTask.Inpu
     Assert.isWorkerThread();
     List<NewCall> result = new ArrayList<>();
     for (NewCall newCall : newCalls) {
-      if (BlockedNumberContract.canCurrentUserBlockNumbers(context)
-        && BlockedNumberContract.isBlocked(context, newCall.number)) {
+      if (BlockedNumberMirror.isBlocked(context, newCall.number)) {
         LogUtil.i(
             "VisualVoicemailUpdateTask.filterBlockedNumbers",
             "found voicemail from blocked number, deleting");
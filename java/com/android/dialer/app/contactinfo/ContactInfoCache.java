@@ -21,6 +21,7 @@ import android.os.Handler;
 import android.os.Looper;
 import android.os.Message;
 import android.os.SystemClock;
+import android.os.Trace;
 import android.text.TextUtils;
 
 import androidx.annotation.NonNull;
@@ -112,7 +113,10 @@ public class ContactInfoCache {
       ContactInfo callLogContactInfo,
       boolean remoteLookupIfNotFoundLocally) {
     NumberWithCountryIso numberCountryIso = new NumberWithCountryIso(number, countryIso);
+    // Shows time spent waiting for the query thread's writes in a system trace.
+    Trace.beginSection("ContactInfoCache.getCachedValue");
     ExpirableCache.CachedValue<ContactInfo> cachedInfo = cache.getCachedValue(numberCountryIso);
+    Trace.endSection();
     ContactInfo info = cachedInfo == null ? null : cachedInfo.getValue();
     int requestType =
         remoteLookupIfNotFoundLocally
@@ -246,6 +250,7 @@ public class ContactInfoCache {
    */
   public void stop() {
     stopRequestProcessing();
+    LogUtil.v("ContactInfoCache.stop", "%s", cache);
   }
 
   /**
@@ -55,6 +55,9 @@ public class ContactPhotoLoader {
   }
 
   private static Bitmap drawableToBitmap(Drawable drawable, int width, int height) {
+    if (drawable instanceof LetterTileDrawable) {
+      return ((LetterTileDrawable) drawable).getBitmap(width, height);
+    }
     Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
     Canvas canvas = new Canvas(bitmap);
     drawable.setBounds(0, 0, canvas.getWidth(), canvas.getHeight());
@@ -24,6 +24,7 @@ import androidx.fragment.app.Fragment;
 import androidx.fragment.app.FragmentManager;
 
 import com.android.dialer.phonenumbercache.ContactInfo;
+import com.android.dialer.util.ConcurrentExpirableCache;
 import com.android.dialer.util.ExpirableCache;
 
 /**
@@ -37,7 +38,7 @@ public class ExpirableCacheHeadlessFragment extends Fragment {
   private static final int CONTACT_INFO_CACHE_SIZE = 100;
 
   private final ExpirableCache<NumberWithCountryIso, ContactInfo> retainedCache =
-      ExpirableCache.create(CONTACT_INFO_CACHE_SIZE);
+      ConcurrentExpirableCache.create(CONTACT_INFO_CACHE_SIZE);
 
   @NonNull
   public static ExpirableCacheHeadlessFragment attach(FragmentManager fragmentManager) {
@@ -0,0 +1,327 @@
+/*
+ * SPDX-FileCopyrightText: The LineageOS Project
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.android.dialer.blocking;
+
+import android.content.Context;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.provider.BlockedNumberContract;
+import android.provider.BlockedNumberContract.BlockedNumbers;
+import android.telephony.PhoneNumberUtils;
+import android.text.TextUtils;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.android.dialer.common.Assert;
+import com.android.dialer.common.LogUtil;
+import com.android.dialer.common.concurrent.DialerExecutorComponent;
+import com.android.dialer.common.database.Selection;
+import com.android.dialer.location.GeoUtil;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory copy of the system blocked numbers, so checking whether a number is blocked doesn't
+ * query the provider.
+ *
+ * <p>The E.164 and original numbers of the blocked list are held in sets, behind a small Bloom
+ * filter that rejects most numbers which aren't blocked without hashing into the sets. The copy is
+ * loaded in the background when first needed, and dropped when a content observer reports that the
+ * blocked numbers changed. Until it is loaded again, and when the blocked numbers can't be read,
+ * e.g. because the current user can't block numbers, callers query the provider as before.
+ */
+public final class BlockedNumberMirror {
+
+  /** Numbers per provider query, well below SQLite's limit of 999 bound parameters. */
+  private static final int QUERY_CHUNK_SIZE = 500;
+
+  /** How long to wait before loading again after the blocked numbers couldn't be read. */
+  private static final long RETRY_DELAY_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+  private static BlockedNumberMirror instance;
+
+  private final Context appContext;
+
+  /** Null until loaded, and after the blocked numbers changed. */
+  @Nullable private volatile Snapshot snapshot;
+
+  /** Incremented on every change, so loads that raced with one aren't kept. */
+  private int generation;
+
+  private boolean loading;
+  private long lastFailureMillis = -1;
+  private int loadCount;
+
+  private BlockedNumberMirror(Context appContext) {
+    this.appContext = appContext;
+  }
+
+  public static synchronized BlockedNumberMirror getInstance(Context context) {
+    if (instance == null) {
+      instance = new BlockedNumberMirror(context.getApplicationContext());
+      instance
+          .appContext
+          .getContentResolver()
+          .registerContentObserver(
+              BlockedNumbers.CONTENT_URI,
+              true, // BlockedNumbers notifies on the item
+              new ContentObserver(null) {
+                @Override
+                public void onChange(boolean selfChange, Uri uri) {
+                  instance.invalidate();
+                }
+              });
+    }
+    return instance;
+  }
+
+  /**
+   * Returns whether the number is blocked. The answer comes from memory once the mirror is loaded,
+   * otherwise from the provider, while the mirror is loaded in the background.
+   */
+  @AnyThread
+  public static boolean isBlocked(Context context, @Nullable String number) {
+    Snapshot snapshot = getInstance(context).getSnapshot();
+    if (snapshot != null) {
+      return snapshot.isBlocked(number, GeoUtil.getCurrentCountryIso(context));
+    }
+    return BlockedNumberContract.canCurrentUserBlockNumbers(context)
+        && BlockedNumberContract.isBlocked(context, number);
+  }
+
+  /** Returns the loaded blocked numbers, or null after starting to load them. */
+  @AnyThread
+  @Nullable
+  public Snapshot getSnapshot() {
+    Snapshot current = snapshot;
+    if (current != null) {
+      return current;
+    }
+    synchronized (this) {
+      if (!loading
+          && (lastFailureMillis == -1
+              || SystemClock.elapsedRealtime() - lastFailureMillis >= RETRY_DELAY_MILLIS)) {
+        loading = true;
+        DialerExecutorComponent.get(appContext).backgroundExecutor().execute(this::loadSnapshot);
+      }
+    }
+    return null;
+  }
+
+  /** Returns the blocked numbers, loading them if needed, or null if they can't be read. */
+  @WorkerThread
+  @Nullable
+  public Snapshot loadSnapshot() {
+    Assert.isWorkerThread();
+    Snapshot current = snapshot;
+    if (current != null) {
+      synchronized (this) {
+        loading = false;
+      }
+      return current;
+    }
+
+    int startGeneration;
+    synchronized (this) {
+      startGeneration = generation;
+    }
+    long startMillis = SystemClock.elapsedRealtime();
+    Snapshot loaded = null;
+    try {
+      loaded = querySnapshot();
+    } catch (SecurityException | IllegalArgumentException e) {
+      LogUtil.e("BlockedNumberMirror.loadSnapshot", "can't read blocked numbers", e);
+    }
+
+    synchronized (this) {
+      loading = false;
+      lastFailureMillis = loaded == null ? SystemClock.elapsedRealtime() : -1;
+      if (loaded != null && generation == startGeneration) {
+        snapshot = loaded;
+        loadCount++;
+      }
+      LogUtil.i(
+          "BlockedNumberMirror.loadSnapshot",
+          "%s %d numbers in %d ms (loads: %d)",
+          loaded == null ? "failed to load" : "loaded",
+          loaded == null ? 0 : loaded.size(),
+          SystemClock.elapsedRealtime() - startMillis,
+          loadCount);
+    }
+    return loaded;
+  }
+
+  /** Drops the loaded blocked numbers, e.g. right after blocking or unblocking numbers. */
+  @AnyThread
+  public synchronized void invalidate() {
+    generation++;
+    snapshot = null;
+  }
+
+  @WorkerThread
+  @Nullable
+  private Snapshot querySnapshot() {
+    try (Cursor cursor =
+        appContext
+            .getContentResolver()
+            .query(
+                BlockedNumbers.CONTENT_URI,
+                new String[] {
+                  BlockedNumbers.COLUMN_E164_NUMBER, BlockedNumbers.COLUMN_ORIGINAL_NUMBER
+                },
+                null,
+                null,
+                null)) {
+      if (cursor == null) {
+        return null;
+      }
+      ImmutableSet.Builder<String> e164Numbers = ImmutableSet.builder();
+      ImmutableSet.Builder<String> originalNumbers = ImmutableSet.builder();
+      while (cursor.moveToNext()) {
+        String e164Number = cursor.getString(0);
+        if (!TextUtils.isEmpty(e164Number)) {
+          e164Numbers.add(e164Number);
+        }
+        String originalNumber = cursor.getString(1);
+        if (!TextUtils.isEmpty(originalNumber)) {
+          originalNumbers.add(originalNumber);
+        }
+      }
+      return new Snapshot(e164Numbers.build(), originalNumbers.build());
+    }
+  }
+
+  /**
+   * Returns the numbers among {@code numbers} that are blocked in the given column, querying the
+   * provider in chunks.
+   *
+   * @param column {@link BlockedNumbers#COLUMN_E164_NUMBER} or {@link
+   *     BlockedNumbers#COLUMN_ORIGINAL_NUMBER}
+   */
+  @WorkerThread
+  public static Set<String> queryBlockedNumbers(
+      Context context, String column, Collection<String> numbers) {
+    Assert.isWorkerThread();
+    List<String> blocked = new ArrayList<>();
+    for (List<String> chunk : Iterables.partition(numbers, QUERY_CHUNK_SIZE)) {
+      Selection selection = Selection.column(column).in(chunk);
+      try (Cursor cursor =
+          context
+              .getContentResolver()
+              .query(
+                  BlockedNumbers.CONTENT_URI,
+                  new String[] {column},
+                  selection.getSelection(),
+                  selection.getSelectionArgs(),
+                  null)) {
+        while (cursor != null && cursor.moveToNext()) {
+          blocked.add(cursor.getString(0));
+        }
+      }
+    }
+    return ImmutableSet.copyOf(blocked);
+  }
+
+  /** The blocked numbers at one point in time. */
+  public static final class Snapshot {
+
+    private static final int HASH_COUNT = 3;
+
+    private final ImmutableSet<String> e164Numbers;
+    private final ImmutableSet<String> originalNumbers;
+
+    /** Bloom filter over both sets, with about 16 bits per number. */
+    private final long[] filter;
+
+    private final int filterMask;
+
+    Snapshot(ImmutableSet<String> e164Numbers, ImmutableSet<String> originalNumbers) {
+      this.e164Numbers = e164Numbers;
+      this.originalNumbers = originalNumbers;
+      int bits = 64;
+      while (bits < (e164Numbers.size() + originalNumbers.size()) * 16) {
+        bits <<= 1;
+      }
+      filter = new long[bits / 64];
+      filterMask = bits - 1;
+      for (String number : e164Numbers) {
+        addToFilter(number);
+      }
+      for (String number : originalNumbers) {
+        addToFilter(number);
+      }
+    }
+
+    /** Whether the E.164 number is blocked. */
+    public boolean isE164Blocked(@Nullable String e164Number) {
+      return mightContain(e164Number) && e164Numbers.contains(e164Number);
+    }
+
+    /** Whether the number, exactly as given, is blocked. */
+    public boolean isOriginalBlocked(@Nullable String number) {
+      return mightContain(number) && originalNumbers.contains(number);
+    }
+
+    /**
+     * Whether the number is blocked, either as given or in its E.164 form, like {@link
+     * BlockedNumberContract#isBlocked(Context, String)}.
+     */
+    public boolean isBlocked(@Nullable String number, @Nullable String countryIso) {
+      if (TextUtils.isEmpty(number)) {
+        return false;
+      }
+      if (isOriginalBlocked(number)) {
+        return true;
+      }
+      return isE164Blocked(PhoneNumberUtils.formatNumberToE164(number, countryIso));
+    }
+
+    /** The number of blocked numbers, each of which has an original number. */
+    int size() {
+      return originalNumbers.size();
+    }
+
+    private void addToFilter(String number) {
+      int hash = number.hashCode();
+      int step = spread(hash);
+      for (int i = 0; i < HASH_COUNT; i++) {
+        int bit = (hash + i * step) & filterMask;
+        filter[bit >>> 6] |= 1L << bit;
+      }
+    }
+
+    private boolean mightContain(@Nullable String number) {
+      if (number == null) {
+        return false;
+      }
+      int hash = number.hashCode();
+      int step = spread(hash);
+      for (int i = 0; i < HASH_COUNT; i++) {
+        int bit = (hash + i * step) & filterMask;
+        if ((filter[bit >>> 6] & (1L << bit)) == 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /** A second hash derived from the first, odd so that it visits all bits. */
+    private static int spread(int hash) {
+      hash *= 0x9E3779B9;
+      return (hash ^ (hash >>> 16)) | 1;
+    }
+  }
+}
@@ -23,7 +23,6 @@ import android.content.ContentResolver;
 import android.content.ContentValues;
 import android.content.Context;
 import android.content.OperationApplicationException;
-import android.database.Cursor;
 import android.os.RemoteException;
 import android.provider.BlockedNumberContract;
 import android.provider.BlockedNumberContract.BlockedNumbers;
@@ -39,8 +38,8 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.util.concurrent.ListenableFuture;
 
 import java.util.ArrayList;
-import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /** Blocks and unblocks number. */
 public final class Blocking {
@@ -91,6 +90,8 @@ public final class Blocking {
                         .build());
               }
               applyBatchOps(context.getContentResolver(), operations);
+              // Don't wait for the content observer, the caller may check the numbers right away.
+              BlockedNumberMirror.getInstance(context).invalidate();
               return null;
             });
   }
@@ -129,6 +130,8 @@ public final class Blocking {
                         .build());
               }
               applyBatchOps(context.getContentResolver(), operations);
+              // Don't wait for the content observer, the caller may check the numbers right away.
+              BlockedNumberMirror.getInstance(context).invalidate();
               return null;
             });
   }
@@ -148,38 +151,37 @@ public final class Blocking {
         .submit(
             () -> {
               Map<String, Boolean> blockedStatus = new ArrayMap<>();
-              List<String> e164Numbers = new ArrayList<>();
+              BlockedNumberMirror.Snapshot snapshot =
+                  BlockedNumberMirror.getInstance(context).loadSnapshot();
+              if (snapshot != null) {
+                for (String number : numbers) {
+                  blockedStatus.put(number, snapshot.isBlocked(number, countryIso));
+                }
+                return ImmutableMap.copyOf(blockedStatus);
+              }
 
+              Map<String, String> e164Numbers = new ArrayMap<>();
               for (String number : numbers) {
                 // Initialize as unblocked
                 blockedStatus.put(number, false);
                 String e164Number = PhoneNumberUtils.formatNumberToE164(number, countryIso);
                 if (e164Number != null) {
-                  e164Numbers.add(e164Number);
+                  e164Numbers.put(number, e164Number);
                 }
               }
 
-              Selection selection =
-                  Selection.builder()
-                      .or(Selection.column(BlockedNumbers.COLUMN_ORIGINAL_NUMBER).in(numbers))
-                      .or(Selection.column(BlockedNumbers.COLUMN_E164_NUMBER).in(e164Numbers))
-                      .build();
-
-              try (Cursor cursor =
-                  context
-                      .getContentResolver()
-                      .query(
-                          BlockedNumbers.CONTENT_URI,
-                          new String[] {BlockedNumbers.COLUMN_ORIGINAL_NUMBER},
-                          selection.getSelection(),
-                          selection.getSelectionArgs(),
-                          null)) {
-                if (cursor == null) {
-                  return ImmutableMap.copyOf(blockedStatus);
-                }
-                while (cursor.moveToNext()) {
-                  // Update blocked status
-                  blockedStatus.put(cursor.getString(0), true);
+              for (String number :
+                  BlockedNumberMirror.queryBlockedNumbers(
+                      context, BlockedNumbers.COLUMN_ORIGINAL_NUMBER, numbers)) {
+                // Update blocked status
+                blockedStatus.put(number, true);
+              }
+              Set<String> blockedE164Numbers =
+                  BlockedNumberMirror.queryBlockedNumbers(
+                      context, BlockedNumbers.COLUMN_E164_NUMBER, e164Numbers.values());
+              for (Map.Entry<String, String> entry : e164Numbers.entrySet()) {
+                if (blockedE164Numbers.contains(entry.getValue())) {
+                  blockedStatus.put(entry.getKey(), true);
                 }
               }
               return ImmutableMap.copyOf(blockedStatus);
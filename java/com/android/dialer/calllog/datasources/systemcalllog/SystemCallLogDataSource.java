@@ -22,6 +22,7 @@ import android.content.ContentValues;
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.database.Cursor;
+import android.os.SystemClock;
 import android.provider.CallLog;
 import android.provider.CallLog.Calls;
 import android.provider.VoicemailContract;
@@ -29,6 +30,7 @@ import android.provider.VoicemailContract.Voicemails;
 import android.telephony.PhoneNumberUtils;
 import android.text.TextUtils;
 import android.util.ArraySet;
+import android.util.Pair;
 
 import androidx.annotation.Nullable;
 import androidx.annotation.WorkerThread;
@@ -52,8 +54,11 @@ import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.inject.Inject;
@@ -228,6 +233,7 @@ public class SystemCallLogDataSource implements CallLogDataSource {
     long previousTimestampProcessed = sharedPreferences.getLong(PREF_LAST_TIMESTAMP_PROCESSED, 0L);
 
     DialerPhoneNumberUtil dialerPhoneNumberUtil = new DialerPhoneNumberUtil();
+    long startMillis = SystemClock.elapsedRealtime();
 
     // TODO(zachh): Really should be getting last 1000 by timestamp, not by last modified.
     try (Cursor cursor =
@@ -274,8 +280,29 @@ public class SystemCallLogDataSource implements CallLogDataSource {
       int featuresColumn = cursor.getColumnIndexOrThrow(Calls.FEATURES);
       int postDialDigitsColumn = cursor.getColumnIndexOrThrow(Calls.POST_DIAL_DIGITS);
 
+      // Frequent numbers appear in many rows, parse and format each only once.
+      List<Pair<String, String>> numbersToParse = new ArrayList<>(cursor.getCount());
+      do {
+        String number = cursor.getString(numberColumn);
+        if (!TextUtils.isEmpty(number)) {
+          String postDialDigits = cursor.getString(postDialDigitsColumn);
+          numbersToParse.add(
+              Pair.create(
+                  postDialDigits == null ? number : number + postDialDigits,
+                  cursor.getString(countryIsoColumn)));
+        }
+      } while (cursor.moveToNext());
+      Map<Pair<String, String>, DialerPhoneNumber> parsedNumbers =
+          dialerPhoneNumberUtil.parseAll(numbersToParse);
+      Map<Pair<String, String>, String> formattedNumbers = new HashMap<>();
+      for (Pair<String, String> number : parsedNumbers.keySet()) {
+        String formattedNumber = PhoneNumberUtils.formatNumber(number.first, number.second);
+        formattedNumbers.put(number, formattedNumber == null ? number.first : formattedNumber);
+      }
+
       // The cursor orders by LAST_MODIFIED DESC, so the first result is the most recent timestamp
       // processed.
+      cursor.moveToFirst();
       lastTimestampProcessed = cursor.getLong(lastModifiedColumn);
       do {
         long id = cursor.getLong(idColumn);
@@ -311,16 +338,10 @@ public class SystemCallLogDataSource implements CallLogDataSource {
         if (!TextUtils.isEmpty(numberAsStr)) {
           String numberWithPostDialDigits =
               postDialDigits == null ? numberAsStr : numberAsStr + postDialDigits;
-          DialerPhoneNumber dialerPhoneNumber =
-              dialerPhoneNumberUtil.parse(numberWithPostDialDigits, countryIso);
-
-          contentValues.put(AnnotatedCallLog.NUMBER, dialerPhoneNumber.toByteArray());
-          String formattedNumber =
-              PhoneNumberUtils.formatNumber(numberWithPostDialDigits, countryIso);
-          if (formattedNumber == null) {
-            formattedNumber = numberWithPostDialDigits;
-          }
-          contentValues.put(AnnotatedCallLog.FORMATTED_NUMBER, formattedNumber);
+          Pair<String, String> numberKey = Pair.create(numberWithPostDialDigits, countryIso);
+
+          contentValues.put(AnnotatedCallLog.NUMBER, parsedNumbers.get(numberKey).toByteArray());
+          contentValues.put(AnnotatedCallLog.FORMATTED_NUMBER, formattedNumbers.get(numberKey));
         } else {
           contentValues.put(
               AnnotatedCallLog.NUMBER, DialerPhoneNumber.getDefaultInstance().toByteArray());
@@ -345,6 +366,14 @@ public class SystemCallLogDataSource implements CallLogDataSource {
           mutations.insert(id, contentValues);
         }
       } while (cursor.moveToNext());
+
+      LogUtil.i(
+          "SystemCallLogDataSource.handleInsertsAndUpdates",
+          "processed %d entries in %d ms, %d distinct numbers, parse cache: %s",
+          cursor.getCount(),
+          SystemClock.elapsedRealtime() - startMillis,
+          parsedNumbers.size(),
+          DialerPhoneNumberUtil.getParseCacheStats());
     }
   }
 
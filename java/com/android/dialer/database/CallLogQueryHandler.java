@@ -30,23 +30,44 @@ import android.net.Uri;
 import android.os.Handler;
 import android.os.Looper;
 import android.os.Message;
+import android.os.SystemClock;
 import android.provider.CallLog.Calls;
 import android.provider.VoicemailContract.Status;
 import android.provider.VoicemailContract.Voicemails;
+import android.util.SparseIntArray;
 
+import androidx.annotation.MainThread;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.android.contacts.common.database.EmptyCursor;
 import com.android.contacts.common.database.NoNullCursorAsyncQueryHandler;
+import com.android.dialer.common.Assert;
 import com.android.dialer.common.LogUtil;
+import com.android.dialer.common.concurrent.DialerExecutorComponent;
 import com.android.dialer.phonenumbercache.CallLogQuery;
 import com.android.dialer.telecom.TelecomUtil;
 import com.android.dialer.util.PermissionsUtil;
 import com.android.dialer.voicemailstatus.VoicemailStatusQuery;
 import com.android.voicemail.VoicemailComponent;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
 
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.List;
 
-/** Handles asynchronous queries to the call log. */
+/**
+ * Handles asynchronous queries to the call log.
+ *
+ * <p>The {@code fetch} methods run their query on the worker thread of the {@link
+ * AsyncQueryHandler}, one after the other. {@link #requestRefresh(int, int, long)} instead collects
+ * the queries requested in a burst, e.g. by content observers, and runs them concurrently on the
+ * background executor. Their results are delivered together, unless the same query was requested
+ * again meanwhile.
+ */
 public class CallLogQueryHandler extends NoNullCursorAsyncQueryHandler {
 
   /**
@@ -55,6 +76,18 @@ public class CallLogQueryHandler extends NoNullCursorAsyncQueryHandler {
    */
   public static final int CALL_TYPE_ALL = -1;
 
+  /** Query for {@link #requestRefresh(int, int, long)}, like {@link #fetchCalls(int, long)}. */
+  public static final int QUERY_CALLS = 1;
+  /** Query for {@link #requestRefresh(int)}, like {@link #fetchVoicemailStatus()}. */
+  public static final int QUERY_VOICEMAIL_STATUS = 1 << 1;
+  /** Query for {@link #requestRefresh(int)}, like {@link #fetchVoicemailUnreadCount()}. */
+  public static final int QUERY_VOICEMAIL_UNREAD_COUNT = 1 << 2;
+  /** Query for {@link #requestRefresh(int)}, like {@link #fetchMissedCallsUnreadCount()}. */
+  public static final int QUERY_MISSED_CALLS_UNREAD_COUNT = 1 << 3;
+
+  /** Minimum time between refreshes, so that bursts of requests run once. */
+  private static final long MIN_REFRESH_INTERVAL_MILLIS = 300;
+
   private static final int NUM_LOGS_TO_DISPLAY = 1000;
   /** The token for the query to fetch the old entries from the call log. */
   private static final int QUERY_CALLLOG_TOKEN = 54;
@@ -72,6 +105,24 @@ public class CallLogQueryHandler extends NoNullCursorAsyncQueryHandler {
 
   private final Context context;
 
+  private final Handler mainHandler = new Handler(Looper.getMainLooper());
+  private final Runnable refreshRunnable = this::executeRefresh;
+
+  /** The queries to run with the next refresh, 0 if none is scheduled. */
+  private int pendingQueries;
+
+  private int pendingCallType = CALL_TYPE_ALL;
+  private long pendingNewerThan;
+  private long lastRefreshMillis;
+
+  /** The refresh that last ran each query, by token. Older results of the query are dropped. */
+  private final SparseIntArray latestRefreshGenerations = new SparseIntArray();
+
+  private int refreshGeneration;
+  private int refreshesRequested;
+  private int refreshesExecuted;
+  private int resultsDropped;
+
   public CallLogQueryHandler(Context context, ContentResolver contentResolver, Listener listener) {
     this(context, contentResolver, listener, -1);
   }
@@ -98,6 +149,7 @@ public class CallLogQueryHandler extends NoNullCursorAsyncQueryHandler {
    */
   public void fetchCalls(int callType, long newerThan) {
     cancelFetch();
+    supersedeRefresh(QUERY_CALLS, QUERY_CALLLOG_TOKEN);
     if (PermissionsUtil.hasPhonePermissions(context)) {
       fetchCalls(QUERY_CALLLOG_TOKEN, callType, false /* newOnly */, newerThan);
     } else {
@@ -106,23 +158,10 @@ public class CallLogQueryHandler extends NoNullCursorAsyncQueryHandler {
   }
 
   public void fetchVoicemailStatus() {
-    StringBuilder where = new StringBuilder();
-    List<String> selectionArgs = new ArrayList<>();
-
-    VoicemailComponent.get(context)
-        .getVoicemailClient()
-        .appendOmtpVoicemailStatusSelectionClause(context, where, selectionArgs);
-
+    supersedeRefresh(QUERY_VOICEMAIL_STATUS, QUERY_VOICEMAIL_STATUS_TOKEN);
     if (TelecomUtil.hasReadWriteVoicemailPermissions(context)) {
       LogUtil.i("CallLogQueryHandler.fetchVoicemailStatus", "fetching voicemail status");
-      startQuery(
-          QUERY_VOICEMAIL_STATUS_TOKEN,
-          null,
-          Status.CONTENT_URI,
-          VoicemailStatusQuery.getProjection(),
-          where.toString(),
-          selectionArgs.toArray(new String[0]),
-          null);
+      startQuery(getVoicemailStatusQuery());
     } else {
       LogUtil.i(
           "CallLogQueryHandler.fetchVoicemailStatus",
@@ -131,29 +170,64 @@ public class CallLogQueryHandler extends NoNullCursorAsyncQueryHandler {
   }
 
   public void fetchVoicemailUnreadCount() {
+    supersedeRefresh(QUERY_VOICEMAIL_UNREAD_COUNT, QUERY_VOICEMAIL_UNREAD_COUNT_TOKEN);
     if (TelecomUtil.hasReadWriteVoicemailPermissions(context)) {
-      // Only count voicemails that have not been read and have not been deleted.
-      StringBuilder where =
-          new StringBuilder(Voicemails.IS_READ + "=0" + " AND " + Voicemails.DELETED + "=0 ");
-      List<String> selectionArgs = new ArrayList<>();
-
-      VoicemailComponent.get(context)
-          .getVoicemailClient()
-          .appendOmtpVoicemailSelectionClause(context, where, selectionArgs);
-
-      startQuery(
-          QUERY_VOICEMAIL_UNREAD_COUNT_TOKEN,
-          null,
-          Voicemails.CONTENT_URI,
-          new String[] {Voicemails._ID},
-          where.toString(),
-          selectionArgs.toArray(new String[0]),
-          null);
+      startQuery(getVoicemailUnreadCountQuery());
     }
   }
 
   /** Fetches the list of calls in the call log. */
   private void fetchCalls(int token, int callType, boolean newOnly, long newerThan) {
+    startQuery(getCallsQuery(token, callType, newOnly, newerThan));
+  }
+
+  private Query getVoicemailStatusQuery() {
+    StringBuilder where = new StringBuilder();
+    List<String> selectionArgs = new ArrayList<>();
+
+    VoicemailComponent.get(context)
+        .getVoicemailClient()
+        .appendOmtpVoicemailStatusSelectionClause(context, where, selectionArgs);
+
+    return new Query(
+        QUERY_VOICEMAIL_STATUS_TOKEN,
+        Status.CONTENT_URI,
+        VoicemailStatusQuery.getProjection(),
+        where.toString(),
+        selectionArgs.toArray(new String[0]),
+        null);
+  }
+
+  private Query getVoicemailUnreadCountQuery() {
+    // Only count voicemails that have not been read and have not been deleted.
+    StringBuilder where =
+        new StringBuilder(Voicemails.IS_READ + "=0" + " AND " + Voicemails.DELETED + "=0 ");
+    List<String> selectionArgs = new ArrayList<>();
+
+    VoicemailComponent.get(context)
+        .getVoicemailClient()
+        .appendOmtpVoicemailSelectionClause(context, where, selectionArgs);
+
+    return new Query(
+        QUERY_VOICEMAIL_UNREAD_COUNT_TOKEN,
+        Voicemails.CONTENT_URI,
+        new String[] {Voicemails._ID},
+        where.toString(),
+        selectionArgs.toArray(new String[0]),
+        null);
+  }
+
+  private Query getMissedCallsUnreadCountQuery() {
+    return new Query(
+        QUERY_MISSED_CALLS_UNREAD_COUNT_TOKEN,
+        Calls.CONTENT_URI,
+        new String[] {Calls._ID},
+        getUnreadMissedCallsQuery(),
+        null,
+        null);
+  }
+
+  private Query getCallsQuery(int token, int callType, boolean newOnly, long newerThan) {
     StringBuilder where = new StringBuilder();
     List<String> selectionArgs = new ArrayList<>();
 
@@ -204,9 +278,8 @@ public class CallLogQueryHandler extends NoNullCursorAsyncQueryHandler {
             .buildUpon()
             .appendQueryParameter(Calls.LIMIT_PARAM_KEY, Integer.toString(limit))
             .build();
-    startQuery(
+    return new Query(
         token,
-        null,
         uri,
         CallLogQuery.getProjection(),
         selection,
@@ -214,6 +287,17 @@ public class CallLogQueryHandler extends NoNullCursorAsyncQueryHandler {
         Calls.DEFAULT_SORT_ORDER);
   }
 
+  private void startQuery(Query query) {
+    startQuery(
+        query.token,
+        null,
+        query.uri,
+        query.projection,
+        query.selection,
+        query.selectionArgs,
+        query.orderBy);
+  }
+
   /** Cancel any pending fetch request. */
   private void cancelFetch() {
     cancelOperation(QUERY_CALLLOG_TOKEN);
@@ -239,18 +323,195 @@ public class CallLogQueryHandler extends NoNullCursorAsyncQueryHandler {
 
   /** Fetch all missed calls received since last time the tab was opened. */
   public void fetchMissedCallsUnreadCount() {
+    supersedeRefresh(QUERY_MISSED_CALLS_UNREAD_COUNT, QUERY_MISSED_CALLS_UNREAD_COUNT_TOKEN);
     if (!PermissionsUtil.hasPhonePermissions(context)) {
       return;
     }
 
-    startQuery(
-        QUERY_MISSED_CALLS_UNREAD_COUNT_TOKEN,
-        null,
-        Calls.CONTENT_URI,
-        new String[] {Calls._ID},
-        getUnreadMissedCallsQuery(),
-        null,
-        null);
+    startQuery(getMissedCallsUnreadCountQuery());
+  }
+
+  /**
+   * Requests a refresh running the given queries, which mustn't include {@link #QUERY_CALLS}.
+   *
+   * @see #requestRefresh(int, int, long)
+   */
+  @MainThread
+  public void requestRefresh(int queries) {
+    Assert.checkArgument((queries & QUERY_CALLS) == 0);
+    requestRefresh(queries, CALL_TYPE_ALL, 0);
+  }
+
+  /**
+   * Requests a refresh running the given queries, a combination of the {@code QUERY_} flags.
+   *
+   * <p>Requests made in the same message loop, or shortly after the last refresh, are collected and
+   * run together in one refresh. The results are passed to the listener like
+   * those of the {@code fetch} methods.
+   *
+   * @param callType the call type for {@link #QUERY_CALLS}, see {@link #fetchCalls(int, long)}
+   * @param newerThan the date for {@link #QUERY_CALLS}, see {@link #fetchCalls(int, long)}
+   */
+  @MainThread
+  public void requestRefresh(int queries, int callType, long newerThan) {
+    Assert.isMainThread();
+    refreshesRequested++;
+    if ((queries & QUERY_CALLS) != 0) {
+      pendingCallType = callType;
+      pendingNewerThan = newerThan;
+    }
+    if (pendingQueries == 0) {
+      long delayMillis =
+          Math.max(0, lastRefreshMillis + MIN_REFRESH_INTERVAL_MILLIS - SystemClock.uptimeMillis());
+      mainHandler.postDelayed(refreshRunnable, delayMillis);
+    }
+    pendingQueries |= queries;
+  }
+
+  /**
+   * Cancels the scheduled refresh, and drops the results of refreshes still running. Should be
+   * called when the listener goes away.
+   */
+  @MainThread
+  public void cancelRefresh() {
+    Assert.isMainThread();
+    mainHandler.removeCallbacks(refreshRunnable);
+    pendingQueries = 0;
+    latestRefreshGenerations.clear();
+  }
+
+  /**
+   * Removes the query from the scheduled refresh, and drops its results from refreshes still
+   * running, as a direct fetch of the query is newer than both.
+   */
+  private void supersedeRefresh(int query, int token) {
+    latestRefreshGenerations.delete(token);
+    if (pendingQueries == 0) {
+      return;
+    }
+    pendingQueries &= ~query;
+    if (pendingQueries == 0) {
+      mainHandler.removeCallbacks(refreshRunnable);
+    }
+  }
+
+  @MainThread
+  private void executeRefresh() {
+    int queries = pendingQueries;
+    pendingQueries = 0;
+    lastRefreshMillis = SystemClock.uptimeMillis();
+    int generation = ++refreshGeneration;
+    refreshesExecuted++;
+
+    List<Query> toRun = new ArrayList<>();
+    if ((queries & QUERY_CALLS) != 0) {
+      cancelFetch();
+      if (PermissionsUtil.hasPhonePermissions(context)) {
+        toRun.add(
+            getCallsQuery(
+                QUERY_CALLLOG_TOKEN, pendingCallType, false /* newOnly */, pendingNewerThan));
+      } else {
+        updateAdapterData(null);
+      }
+    }
+    if ((queries & QUERY_VOICEMAIL_STATUS) != 0) {
+      if (TelecomUtil.hasReadWriteVoicemailPermissions(context)) {
+        toRun.add(getVoicemailStatusQuery());
+      } else {
+        LogUtil.i(
+            "CallLogQueryHandler.executeRefresh",
+            "fetching voicemail status failed due to permissions");
+      }
+    }
+    if ((queries & QUERY_VOICEMAIL_UNREAD_COUNT) != 0
+        && TelecomUtil.hasReadWriteVoicemailPermissions(context)) {
+      toRun.add(getVoicemailUnreadCountQuery());
+    }
+    if ((queries & QUERY_MISSED_CALLS_UNREAD_COUNT) != 0
+        && PermissionsUtil.hasPhonePermissions(context)) {
+      toRun.add(getMissedCallsUnreadCountQuery());
+    }
+    LogUtil.i(
+        "CallLogQueryHandler.executeRefresh",
+        "refresh %d running %d queries (requested: %d, executed: %d, results dropped: %d)",
+        generation,
+        toRun.size(),
+        refreshesRequested,
+        refreshesExecuted,
+        resultsDropped);
+    if (toRun.isEmpty()) {
+      return;
+    }
+
+    ListeningExecutorService executor = DialerExecutorComponent.get(context).backgroundExecutor();
+    List<ListenableFuture<Cursor>> futures = new ArrayList<>();
+    for (Query query : toRun) {
+      latestRefreshGenerations.put(query.token, generation);
+      futures.add(executor.submit(() -> runQuery(query)));
+    }
+    Futures.addCallback(
+        Futures.successfulAsList(futures),
+        new FutureCallback<List<Cursor>>() {
+          @Override
+          public void onSuccess(List<Cursor> cursors) {
+            deliverRefresh(generation, toRun, cursors);
+          }
+
+          @Override
+          public void onFailure(Throwable throwable) {
+            // successfulAsList() only fails if it is cancelled, which it isn't.
+            throw new AssertionError(throwable);
+          }
+        },
+        DialerExecutorComponent.get(context).uiExecutor());
+  }
+
+  /** Runs the query, returning null if it failed like those caught by the worker handler. */
+  @WorkerThread
+  @Nullable
+  private Cursor runQuery(Query query) {
+    try {
+      Cursor cursor =
+          context
+              .getContentResolver()
+              .query(
+                  query.uri,
+                  query.projection,
+                  query.selection,
+                  query.selectionArgs,
+                  query.orderBy);
+      if (cursor == null) {
+        return new EmptyCursor(query.projection);
+      }
+      // Fill the cursor window here rather than on the main thread, like AsyncQueryHandler.
+      cursor.getCount();
+      return cursor;
+    } catch (SQLiteDiskIOException | SQLiteFullException | SQLiteDatabaseCorruptException e) {
+      LogUtil.e("CallLogQueryHandler.runQuery", "exception on background thread", e);
+    } catch (IllegalArgumentException e) {
+      LogUtil.e("CallLogQueryHandler.runQuery", "contactsProvider not present on device", e);
+    } catch (SecurityException e) {
+      LogUtil.e("CallLogQueryHandler.runQuery", "no permission to access ContactsProvider.", e);
+    }
+    return null;
+  }
+
+  @MainThread
+  private void deliverRefresh(int generation, List<Query> queries, List<Cursor> cursors) {
+    for (int i = 0; i < queries.size(); i++) {
+      int token = queries.get(i).token;
+      Cursor cursor = cursors.get(i);
+      if (cursor == null) {
+        continue;
+      }
+      if (latestRefreshGenerations.get(token) != generation) {
+        // The query was requested again, or fetched directly, since this refresh started.
+        resultsDropped++;
+        cursor.close();
+        continue;
+      }
+      onNotNullableQueryComplete(token, null, cursor);
+    }
   }
 
   @Override
@@ -323,6 +584,32 @@ public class CallLogQueryHandler extends NoNullCursorAsyncQueryHandler {
     }
   }
 
+  /** The arguments of a query. */
+  private static final class Query {
+
+    final int token;
+    final Uri uri;
+    final String[] projection;
+    @Nullable final String selection;
+    @Nullable final String[] selectionArgs;
+    @Nullable final String orderBy;
+
+    Query(
+        int token,
+        Uri uri,
+        String[] projection,
+        @Nullable String selection,
+        @Nullable String[] selectionArgs,
+        @Nullable String orderBy) {
+      this.token = token;
+      this.uri = uri;
+      this.projection = projection;
+      this.selection = selection;
+      this.selectionArgs = selectionArgs;
+      this.orderBy = orderBy;
+    }
+  }
+
   /** Listener to completion of various queries. */
   public interface Listener {
 
@@ -828,12 +828,22 @@ public class DialerDatabaseHelper extends SQLiteOpenHelper {
   @WorkerThread
   public synchronized ArrayList<ContactNumber> getLooseMatches(
       String query, SmartDialNameMatcher nameMatcher) {
+    return queryLooseMatches(query, nameMatcher).getTopMatches();
+  }
+
+  /**
+   * Like {@link #getLooseMatches}, but also returns every matching row seen, so results for a
+   * longer query can be computed with {@link #narrowLooseMatches} without querying the database.
+   */
+  @WorkerThread
+  public synchronized LooseMatches queryLooseMatches(
+      String query, SmartDialNameMatcher nameMatcher) {
     final SQLiteDatabase db = getReadableDatabase();
 
     /** Uses SQL query wildcard '%' to represent prefix matching. */
     final String looseQuery = query + "%";
 
-    final ArrayList<ContactNumber> result = new ArrayList<>();
+    final LooseMatches result = new LooseMatches();
 
     final String currentTimeStamp = Long.toString(System.currentTimeMillis());
 
@@ -874,6 +884,7 @@ public class DialerDatabaseHelper extends SQLiteOpenHelper {
                 + SmartDialSortingOrder.SORT_ORDER,
             new String[] {currentTimeStamp});
     if (cursor == null) {
+      result.complete = true;
       return result;
     }
     try {
@@ -886,54 +897,70 @@ public class DialerDatabaseHelper extends SQLiteOpenHelper {
       final int columnLookupKey = 5;
       final int columnCarrierPresence = 6;
 
-      final Set<ContactMatch> duplicates = new HashSet<>();
-      int counter = 0;
       /** Iterates the cursor to find top contact suggestions without duplication. */
-      while ((cursor.moveToNext()) && (counter < MAX_ENTRIES)) {
+      boolean full = false;
+      while (!full && cursor.moveToNext()) {
         if (cursor.isNull(columnDataId)) {
           LogUtil.i(
               "DialerDatabaseHelper.getLooseMatches",
               "_id column null. Row was deleted during iteration, skipping");
           continue;
         }
-        final long dataID = cursor.getLong(columnDataId);
         final String displayName = cursor.getString(columnDisplayNamePrimary);
         final String phoneNumber = cursor.getString(columnNumber);
-        final long id = cursor.getLong(columnId);
-        final long photoId = cursor.getLong(columnPhotoId);
-        final String lookupKey = cursor.getString(columnLookupKey);
-        final int carrierPresence = cursor.getInt(columnCarrierPresence);
-
-        /**
-         * If a contact already exists and another phone number of the contact is being processed,
-         * skip the second instance.
-         */
-        final ContactMatch contactMatch = new ContactMatch(lookupKey, id);
-        if (duplicates.contains(contactMatch)) {
-          continue;
-        }
 
         /**
          * If the contact has either the name or number that matches the query, add to the result.
          */
-        final boolean nameMatches = nameMatcher.matches(context, displayName);
-        final boolean numberMatches =
-            (nameMatcher.matchesNumber(context, phoneNumber, query) != null);
-        if (nameMatches || numberMatches) {
-          /** If a contact has not been added, add it to the result and the hash set. */
-          duplicates.add(contactMatch);
-          result.add(
-              new ContactNumber(
-                  id, dataID, displayName, phoneNumber, lookupKey, photoId, carrierPresence));
-          counter++;
+        if (matchesNameOrNumber(query, nameMatcher, displayName, phoneNumber)) {
+          full =
+              !result.add(
+                  new ContactNumber(
+                      cursor.getLong(columnId),
+                      cursor.getLong(columnDataId),
+                      displayName,
+                      phoneNumber,
+                      cursor.getString(columnLookupKey),
+                      cursor.getLong(columnPhotoId),
+                      cursor.getInt(columnCarrierPresence)));
         }
       }
+      result.complete = !full;
     } finally {
       cursor.close();
     }
     return result;
   }
 
+  /**
+   * Computes the matches for {@code query} from the complete matches of a prefix of it. Every row
+   * matching a query also matches all prefixes of it, so no database query is needed.
+   */
+  public LooseMatches narrowLooseMatches(
+      LooseMatches parent, String query, SmartDialNameMatcher nameMatcher) {
+    if (!parent.isComplete()) {
+      throw new IllegalArgumentException("Can only narrow complete matches");
+    }
+    final LooseMatches result = new LooseMatches();
+    boolean full = false;
+    for (ContactNumber candidate : parent.candidates) {
+      if (matchesNameOrNumber(query, nameMatcher, candidate.displayName, candidate.phoneNumber)) {
+        full = !result.add(candidate);
+        if (full) {
+          break;
+        }
+      }
+    }
+    result.complete = !full;
+    return result;
+  }
+
+  private boolean matchesNameOrNumber(
+      String query, SmartDialNameMatcher nameMatcher, String displayName, String phoneNumber) {
+    return nameMatcher.matchesWithoutPositions(context, displayName)
+        || nameMatcher.matchesNumber(context, phoneNumber, query) != null;
+  }
+
   public interface Tables {
     /** Saves the necessary smart dial information of all contacts. */
     String SMARTDIAL_TABLE = "smartdial_table";
@@ -1200,6 +1227,43 @@ public class DialerDatabaseHelper extends SQLiteOpenHelper {
     }
   }
 
+  /** Result of a loose match query. */
+  public static class LooseMatches {
+
+    /** Every matching row, in sort order, including further rows of already matched contacts. */
+    private final ArrayList<ContactNumber> candidates = new ArrayList<>();
+
+    private final ArrayList<ContactNumber> topMatches = new ArrayList<>();
+    private final Set<ContactMatch> duplicates = new HashSet<>();
+    private boolean complete;
+
+    /** Adds a matching row. Returns false once {@link #MAX_ENTRIES} contacts have been found. */
+    private boolean add(ContactNumber row) {
+      candidates.add(row);
+      /**
+       * If a contact already exists and another phone number of the contact is being processed,
+       * skip the second instance.
+       */
+      if (duplicates.add(new ContactMatch(row.lookupKey, row.id))) {
+        topMatches.add(row);
+      }
+      return topMatches.size() < MAX_ENTRIES;
+    }
+
+    /** Top candidate contacts, without duplicates. */
+    public ArrayList<ContactNumber> getTopMatches() {
+      return new ArrayList<>(topMatches);
+    }
+
+    /**
+     * Whether all matching rows were seen, i.e. the search didn't stop at {@link #MAX_ENTRIES}
+     * contacts. Only then can the matches be narrowed for a longer query.
+     */
+    public boolean isComplete() {
+      return complete;
+    }
+  }
+
   /** Data format for finding duplicated contacts. */
   private static class ContactMatch {
 
@@ -0,0 +1,170 @@
+/*
+ * SPDX-FileCopyrightText: The LineageOS Project
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.android.dialer.dialpadview;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.telephony.PhoneNumberUtils;
+import android.text.Editable;
+import android.text.Selection;
+import android.text.TextWatcher;
+import android.view.Choreographer;
+import android.view.Choreographer.FrameCallback;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.android.dialer.common.LogUtil;
+import com.android.dialer.common.concurrent.DialerExecutorComponent;
+import com.android.dialer.common.concurrent.ThreadUtil;
+import com.android.dialer.dialpadview.DialpadNumberFormatter.Result;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Formats the dialpad digits as the user types them, without formatting on the main thread.
+ *
+ * <p>Every change is formatted by a {@link DialpadNumberFormatter} on a serial background executor.
+ * Changes that are already obsolete when their turn comes are skipped. The result of the latest
+ * change is applied right before the next frame, unless the text was changed again meanwhile.
+ *
+ * <p>Like {@link android.telephony.PhoneNumberFormattingTextWatcher}, formatting stops when the user
+ * types or deletes a separator, and restarts once the text is cleared.
+ */
+final class DialpadFormattingTextWatcher implements TextWatcher {
+
+  private final DialpadNumberFormatter formatter;
+  private final Executor executor;
+  private final FrameCallback applyCallback = frameTimeNanos -> applyPendingResult();
+
+  /** Incremented on every change by the user, results of older changes are dropped. */
+  private final AtomicInteger generation = new AtomicInteger();
+
+  @Nullable private Editable editable;
+  @Nullable private Result pendingResult;
+  private int pendingGeneration;
+  private boolean frameCallbackPosted;
+  private boolean selfChange;
+  private boolean stopFormatting;
+
+  // Only accessed on the executor.
+  private int formattedCount;
+  private int skippedCount;
+
+  /** Must not be created on the main thread, see {@link DialpadNumberFormatter}. */
+  @WorkerThread
+  DialpadFormattingTextWatcher(Context context, String countryIso) {
+    formatter = new DialpadNumberFormatter(countryIso);
+    executor =
+        MoreExecutors.newSequentialExecutor(
+            DialerExecutorComponent.get(context).lightweightExecutor());
+  }
+
+  @Override
+  public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+    if (selfChange || stopFormatting) {
+      return;
+    }
+    // If the user manually deleted any non-dialable characters, stop formatting
+    if (count > 0 && hasSeparator(s, start, count)) {
+      stopFormatting = true;
+    }
+  }
+
+  @Override
+  public void onTextChanged(CharSequence s, int start, int before, int count) {
+    if (selfChange || stopFormatting) {
+      return;
+    }
+    // If the user inserted any non-dialable characters, stop formatting
+    if (count > 0 && hasSeparator(s, start, count)) {
+      stopFormatting = true;
+    }
+  }
+
+  @Override
+  public void afterTextChanged(Editable s) {
+    if (selfChange) {
+      return;
+    }
+    // Whatever is being formatted is obsolete now.
+    int changeGeneration = generation.incrementAndGet();
+    if (stopFormatting) {
+      // Restart the formatting when all texts were cleared.
+      stopFormatting = s.length() != 0;
+      return;
+    }
+
+    editable = s;
+    String text = s.toString();
+    int cursor = Selection.getSelectionEnd(s);
+    long changeMillis = SystemClock.elapsedRealtime();
+    executor.execute(() -> format(changeGeneration, text, cursor, changeMillis));
+  }
+
+  @WorkerThread
+  private void format(int changeGeneration, String text, int cursor, long changeMillis) {
+    if (changeGeneration != generation.get()) {
+      skippedCount++;
+      return;
+    }
+    long startMillis = SystemClock.elapsedRealtime();
+    Result result = formatter.format(text, cursor);
+    formattedCount++;
+    LogUtil.v(
+        "DialpadFormattingTextWatcher.format",
+        "%d chars in %d ms, %d ms after the change (formatted: %d, skipped: %d)",
+        text.length(),
+        SystemClock.elapsedRealtime() - startMillis,
+        SystemClock.elapsedRealtime() - changeMillis,
+        formattedCount,
+        skippedCount);
+    ThreadUtil.postOnUiThread(() -> onFormatted(changeGeneration, result));
+  }
+
+  @MainThread
+  private void onFormatted(int changeGeneration, Result result) {
+    if (changeGeneration != generation.get()) {
+      return;
+    }
+    pendingResult = result;
+    pendingGeneration = changeGeneration;
+    if (!frameCallbackPosted) {
+      frameCallbackPosted = true;
+      Choreographer.getInstance().postFrameCallback(applyCallback);
+    }
+  }
+
+  @MainThread
+  private void applyPendingResult() {
+    frameCallbackPosted = false;
+    Result result = pendingResult;
+    pendingResult = null;
+    if (result == null || editable == null || pendingGeneration != generation.get()) {
+      return;
+    }
+
+    selfChange = true;
+    if (!result.text.contentEquals(editable)) {
+      editable.replace(0, editable.length(), result.text);
+    }
+    Selection.setSelection(editable, Math.min(result.cursor, editable.length()));
+    PhoneNumberUtils.addTtsSpan(editable, 0 /* start */, editable.length() /* endExclusive */);
+    selfChange = false;
+  }
+
+  private static boolean hasSeparator(CharSequence s, int start, int count) {
+    for (int i = start; i < start + count; i++) {
+      if (!PhoneNumberUtils.isNonSeparator(s.charAt(i))) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
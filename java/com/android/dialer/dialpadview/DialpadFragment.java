@@ -43,12 +43,10 @@ import android.provider.Settings;
 import android.telecom.PhoneAccount;
 import android.telecom.PhoneAccountHandle;
 import android.telecom.TelecomManager;
-import android.telephony.PhoneNumberFormattingTextWatcher;
 import android.telephony.PhoneNumberUtils;
 import android.telephony.ServiceState;
 import android.telephony.TelephonyManager;
 import android.text.Editable;
-import android.text.Selection;
 import android.text.TextUtils;
 import android.text.TextWatcher;
 import android.util.AttributeSet;
@@ -100,12 +98,9 @@ import com.android.dialer.util.PermissionsUtil;
 import com.android.dialer.util.ViewUtil;
 import com.android.dialer.widget.FloatingActionButtonController;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
-import com.google.common.base.Ascii;
 
 import java.util.HashSet;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /** Fragment that displays a twelve-key phone dialpad. */
 public class DialpadFragment extends Fragment
@@ -376,7 +371,8 @@ public class DialpadFragment extends Fragment
             .createUiTaskBuilder(
                 getParentFragmentManager(),
                 "DialpadFragment.initPhoneNumberFormattingTextWatcher",
-                new InitPhoneNumberFormattingTextWatcherWorker())
+                new InitPhoneNumberFormattingTextWatcherWorker(
+                    getContext().getApplicationContext()))
             .onSuccess(watcher -> dialpadView.getDigits().addTextChangedListener(watcher))
             .build();
     Trace.endSection();
@@ -1885,197 +1881,23 @@ public class DialpadFragment extends Fragment
    *
    * <p>Input: the ISO 3166-1 two-letter country code of the country the user is in.
    *
-   * <p>Output: an instance of {@link DialerPhoneNumberFormattingTextWatcher}. Note: It is unusual
-   * to return a non-data value from a worker. But {@link DialerPhoneNumberFormattingTextWatcher}
-   * depends on libphonenumber API, which cannot be initialized on the main thread.
+   * <p>Output: an instance of {@link DialpadFormattingTextWatcher}. Note: It is unusual to return a
+   * non-data value from a worker. But {@link DialpadFormattingTextWatcher} depends on libphonenumber
+   * API, which cannot be initialized on the main thread.
    */
   private static class InitPhoneNumberFormattingTextWatcherWorker
-      implements Worker<String, DialerPhoneNumberFormattingTextWatcher> {
+      implements Worker<String, DialpadFormattingTextWatcher> {
 
-    @Nullable
-    @Override
-    public DialerPhoneNumberFormattingTextWatcher doInBackground(@Nullable String countryCode) {
-      return new DialerPhoneNumberFormattingTextWatcher(countryCode);
-    }
-  }
+    private final Context appContext;
 
-  /**
-   * An extension of Android telephony's {@link PhoneNumberFormattingTextWatcher}. This watcher
-   * skips formatting Argentina mobile numbers for domestic calls.
-   *
-   * <p>As of Nov. 28, 2017, the as-you-type-formatting provided by libphonenumber's
-   * AsYouTypeFormatter (which {@link PhoneNumberFormattingTextWatcher} depends on) can't correctly
-   * format Argentina mobile numbers for domestic calls (a bug). We temporarily disable the
-   * formatting for such numbers until libphonenumber is fixed (which will come as early as the next
-   * Android release).
-   */
-  public static class DialerPhoneNumberFormattingTextWatcher
-      extends PhoneNumberFormattingTextWatcher {
-    private static final Pattern AR_DOMESTIC_CALL_MOBILE_NUMBER_PATTERN;
-
-    // This static initialization block builds a pattern for domestic calls to Argentina mobile
-    // numbers:
-    // (1) Local calls: 15 <local number>
-    // (2) Long distance calls: <area code> 15 <local number>
-    // See https://en.wikipedia.org/wiki/Telephone_numbers_in_Argentina for detailed explanations.
-    static {
-      String regex =
-          "0?("
-              + "  ("
-              + "   11|"
-              + "   2("
-              + "     2("
-              + "       02?|"
-              + "       [13]|"
-              + "       2[13-79]|"
-              + "       4[1-6]|"
-              + "       5[2457]|"
-              + "       6[124-8]|"
-              + "       7[1-4]|"
-              + "       8[13-6]|"
-              + "       9[1267]"
-              + "     )|"
-              + "     3("
-              + "       02?|"
-              + "       1[467]|"
-              + "       2[03-6]|"
-              + "       3[13-8]|"
-              + "       [49][2-6]|"
-              + "       5[2-8]|"
-              + "       [67]"
-              + "     )|"
-              + "     4("
-              + "       7[3-578]|"
-              + "       9"
-              + "     )|"
-              + "     6("
-              + "       [0136]|"
-              + "       2[24-6]|"
-              + "       4[6-8]?|"
-              + "       5[15-8]"
-              + "     )|"
-              + "     80|"
-              + "     9("
-              + "       0[1-3]|"
-              + "       [19]|"
-              + "       2\\d|"
-              + "       3[1-6]|"
-              + "       4[02568]?|"
-              + "       5[2-4]|"
-              + "       6[2-46]|"
-              + "       72?|"
-              + "       8[23]?"
-              + "     )"
-              + "   )|"
-              + "   3("
-              + "     3("
-              + "       2[79]|"
-              + "       6|"
-              + "       8[2578]"
-              + "     )|"
-              + "     4("
-              + "       0[0-24-9]|"
-              + "       [12]|"
-              + "       3[5-8]?|"
-              + "       4[24-7]|"
-              + "       5[4-68]?|"
-              + "       6[02-9]|"
-              + "       7[126]|"
-              + "       8[2379]?|"
-              + "       9[1-36-8]"
-              + "     )|"
-              + "     5("
-              + "       1|"
-              + "       2[1245]|"
-              + "       3[237]?|"
-              + "       4[1-46-9]|"
-              + "       6[2-4]|"
-              + "       7[1-6]|"
-              + "       8[2-5]?"
-              + "     )|"
-              + "     6[24]|"
-              + "     7("
-              + "       [069]|"
-              + "       1[1568]|"
-              + "       2[15]|"
-              + "       3[145]|"
-              + "       4[13]|"
-              + "       5[14-8]|"
-              + "       7[2-57]|"
-              + "       8[126]"
-              + "     )|"
-              + "     8("
-              + "       [01]|"
-              + "       2[15-7]|"
-              + "       3[2578]?|"
-              + "       4[13-6]|"
-              + "       5[4-8]?|"
-              + "       6[1-357-9]|"
-              + "       7[36-8]?|"
-              + "       8[5-8]?|"
-              + "       9[124]"
-              + "     )"
-              + "   )"
-              + " )?15"
-              + ").*";
-      AR_DOMESTIC_CALL_MOBILE_NUMBER_PATTERN = Pattern.compile(regex.replaceAll("\\s+", ""));
-    }
-
-    private final String countryCode;
-
-    DialerPhoneNumberFormattingTextWatcher(String countryCode) {
-      super(countryCode);
-      this.countryCode = countryCode;
+    InitPhoneNumberFormattingTextWatcherWorker(Context appContext) {
+      this.appContext = appContext;
     }
 
+    @Nullable
     @Override
-    public synchronized void afterTextChanged(Editable s) {
-      // When the country code is NOT "AR", Android telephony's PhoneNumberFormattingTextWatcher can
-      // correctly handle the input so we will let it do its job.
-      if (!Ascii.toUpperCase(countryCode).equals("AR")) {
-        super.afterTextChanged(s);
-        return;
-      }
-
-      // When the country code is "AR", PhoneNumberFormattingTextWatcher can also format the input
-      // correctly if the number is NOT for a domestic call to a mobile phone.
-      String rawNumber = getRawNumber(s);
-      Matcher matcher = AR_DOMESTIC_CALL_MOBILE_NUMBER_PATTERN.matcher(rawNumber);
-      if (!matcher.matches()) {
-        super.afterTextChanged(s);
-        return;
-      }
-
-      // As modifying the input will trigger another call to afterTextChanged(Editable), we must
-      // check whether the input's format has already been removed and return if it has
-      // been to avoid infinite recursion.
-      if (rawNumber.contentEquals(s)) {
-        return;
-      }
-
-      // If we reach this point, the country code must be "AR" and variable "s" represents a number
-      // for a domestic call to a mobile phone. "s" is incorrectly formatted by Android telephony's
-      // PhoneNumberFormattingTextWatcher so we remove its format by replacing it with the raw
-      // number.
-      s.replace(0, s.length(), rawNumber);
-
-      // Make sure the cursor is at the end of the text.
-      Selection.setSelection(s, s.length());
-
-      PhoneNumberUtils.addTtsSpan(s, 0 /* start */, s.length() /* endExclusive */);
-    }
-
-    private static String getRawNumber(Editable s) {
-      StringBuilder rawNumberBuilder = new StringBuilder();
-
-      for (int i = 0; i < s.length(); i++) {
-        char c = s.charAt(i);
-        if (PhoneNumberUtils.isNonSeparator(c)) {
-          rawNumberBuilder.append(c);
-        }
-      }
-
-      return rawNumberBuilder.toString();
+    public DialpadFormattingTextWatcher doInBackground(@Nullable String countryCode) {
+      return new DialpadFormattingTextWatcher(appContext, countryCode);
     }
   }
 }
@@ -0,0 +1,234 @@
+/*
+ * SPDX-FileCopyrightText: The LineageOS Project
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.android.dialer.dialpadview;
+
+import android.telephony.PhoneNumberUtils;
+
+import com.google.common.base.Ascii;
+import com.google.i18n.phonenumbers.AsYouTypeFormatter;
+import com.google.i18n.phonenumbers.PhoneNumberUtil;
+
+import java.util.regex.Pattern;
+
+/**
+ * Formats the number typed on the dialpad as the user types it.
+ *
+ * <p>Unlike {@link android.telephony.PhoneNumberFormattingTextWatcher}, which feeds the whole number
+ * to a cleared formatter on every change, the {@link AsYouTypeFormatter} of the country is kept
+ * between changes. When digits are only appended, e.g. while typing or when pasting at the end,
+ * just the new digits are fed to it. Any other change restarts it from the first digit, so a long
+ * pasted number is still formatted in one pass.
+ *
+ * <p>The as-you-type formatting of libphonenumber can't correctly format Argentina mobile numbers
+ * for domestic calls (as of Nov. 28, 2017), so such numbers are left unformatted.
+ *
+ * <p>Not thread safe, but doesn't need to be used on the main thread. Creating it loads the
+ * libphonenumber metadata, which can't be done on the main thread.
+ */
+final class DialpadNumberFormatter {
+  private static final Pattern AR_DOMESTIC_CALL_MOBILE_NUMBER_PATTERN;
+
+  // This static initialization block builds a pattern for domestic calls to Argentina mobile
+  // numbers:
+  // (1) Local calls: 15 <local number>
+  // (2) Long distance calls: <area code> 15 <local number>
+  // See https://en.wikipedia.org/wiki/Telephone_numbers_in_Argentina for detailed explanations.
+  static {
+    String regex =
+        "0?("
+            + "  ("
+            + "   11|"
+            + "   2("
+            + "     2("
+            + "       02?|"
+            + "       [13]|"
+            + "       2[13-79]|"
+            + "       4[1-6]|"
+            + "       5[2457]|"
+            + "       6[124-8]|"
+            + "       7[1-4]|"
+            + "       8[13-6]|"
+            + "       9[1267]"
+            + "     )|"
+            + "     3("
+            + "       02?|"
+            + "       1[467]|"
+            + "       2[03-6]|"
+            + "       3[13-8]|"
+            + "       [49][2-6]|"
+            + "       5[2-8]|"
+            + "       [67]"
+            + "     )|"
+            + "     4("
+            + "       7[3-578]|"
+            + "       9"
+            + "     )|"
+            + "     6("
+            + "       [0136]|"
+            + "       2[24-6]|"
+            + "       4[6-8]?|"
+            + "       5[15-8]"
+            + "     )|"
+            + "     80|"
+            + "     9("
+            + "       0[1-3]|"
+            + "       [19]|"
+            + "       2\\d|"
+            + "       3[1-6]|"
+            + "       4[02568]?|"
+            + "       5[2-4]|"
+            + "       6[2-46]|"
+            + "       72?|"
+            + "       8[23]?"
+            + "     )"
+            + "   )|"
+            + "   3("
+            + "     3("
+            + "       2[79]|"
+            + "       6|"
+            + "       8[2578]"
+            + "     )|"
+            + "     4("
+            + "       0[0-24-9]|"
+            + "       [12]|"
+            + "       3[5-8]?|"
+            + "       4[24-7]|"
+            + "       5[4-68]?|"
+            + "       6[02-9]|"
+            + "       7[126]|"
+            + "       8[2379]?|"
+            + "       9[1-36-8]"
+            + "     )|"
+            + "     5("
+            + "       1|"
+            + "       2[1245]|"
+            + "       3[237]?|"
+            + "       4[1-46-9]|"
+            + "       6[2-4]|"
+            + "       7[1-6]|"
+            + "       8[2-5]?"
+            + "     )|"
+            + "     6[24]|"
+            + "     7("
+            + "       [069]|"
+            + "       1[1568]|"
+            + "       2[15]|"
+            + "       3[145]|"
+            + "       4[13]|"
+            + "       5[14-8]|"
+            + "       7[2-57]|"
+            + "       8[126]"
+            + "     )|"
+            + "     8("
+            + "       [01]|"
+            + "       2[15-7]|"
+            + "       3[2578]?|"
+            + "       4[13-6]|"
+            + "       5[4-8]?|"
+            + "       6[1-357-9]|"
+            + "       7[36-8]?|"
+            + "       8[5-8]?|"
+            + "       9[124]"
+            + "     )"
+            + "   )"
+            + " )?15"
+            + ").*";
+    AR_DOMESTIC_CALL_MOBILE_NUMBER_PATTERN = Pattern.compile(regex.replaceAll("\\s+", ""));
+  }
+
+  private final boolean isArgentina;
+  private final AsYouTypeFormatter formatter;
+
+  /** The dialable characters fed to {@link #formatter} since it was last cleared. */
+  private final StringBuilder fedDigits = new StringBuilder();
+
+  /** The output of {@link #formatter} for {@link #fedDigits}. */
+  private String formattedDigits = "";
+
+  DialpadNumberFormatter(String countryIso) {
+    isArgentina = countryIso != null && Ascii.toUpperCase(countryIso).equals("AR");
+    formatter = PhoneNumberUtil.getInstance().getAsYouTypeFormatter(countryIso);
+  }
+
+  /**
+   * Formats the text, keeping the cursor behind the same dialable character.
+   *
+   * @param text The text as shown, possibly formatted already
+   * @param cursor The position of the cursor in {@code text}
+   */
+  Result format(CharSequence text, int cursor) {
+    StringBuilder digits = new StringBuilder(text.length());
+    int digitsBeforeCursor = 0;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (PhoneNumberUtils.isNonSeparator(c)) {
+        digits.append(c);
+        if (i < cursor) {
+          digitsBeforeCursor++;
+        }
+      }
+    }
+
+    String formatted;
+    if (isArgentina && AR_DOMESTIC_CALL_MOBILE_NUMBER_PATTERN.matcher(digits).matches()) {
+      formatted = digits.toString();
+    } else {
+      formatted = formatDigits(digits);
+    }
+    return new Result(formatted, getCursorAfterDigits(formatted, digitsBeforeCursor));
+  }
+
+  private String formatDigits(CharSequence digits) {
+    if (!startsWith(digits, fedDigits)) {
+      formatter.clear();
+      fedDigits.setLength(0);
+      formattedDigits = "";
+    }
+    for (int i = fedDigits.length(); i < digits.length(); i++) {
+      char c = digits.charAt(i);
+      formattedDigits = formatter.inputDigit(c);
+      fedDigits.append(c);
+    }
+    return formattedDigits;
+  }
+
+  private static boolean startsWith(CharSequence s, CharSequence prefix) {
+    if (s.length() < prefix.length()) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length(); i++) {
+      if (s.charAt(i) != prefix.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Returns the position right after the given number of dialable characters. */
+  private static int getCursorAfterDigits(String formatted, int digitCount) {
+    if (digitCount == 0) {
+      return 0;
+    }
+    int count = 0;
+    for (int i = 0; i < formatted.length(); i++) {
+      if (PhoneNumberUtils.isNonSeparator(formatted.charAt(i)) && ++count == digitCount) {
+        return i + 1;
+      }
+    }
+    return formatted.length();
+  }
+
+  /** A formatted number and where to put the cursor in it. */
+  static final class Result {
+    final String text;
+    final int cursor;
+
+    Result(String text, int cursor) {
+      this.text = text;
+      this.cursor = cursor;
+    }
+  }
+}
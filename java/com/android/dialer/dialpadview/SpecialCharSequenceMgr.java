@@ -103,11 +103,14 @@ public class SpecialCharSequenceMgr {
     // get rid of the separators so that the string gets parsed correctly
     String dialString = PhoneNumberUtils.stripSeparators(input);
 
-    if (handleDeviceIdDisplay(context, dialString)
-        || handleRegulatoryInfoDisplay(context, dialString)
-        || handlePinEntry(context, dialString)
-        || handleAdnEntry(context, dialString, textField)
-        || handleSecretCode(context, dialString)) {
+    // All of the sequences below end with '#' or '*'. Checking this first avoids querying system
+    // services on every key press while typing a regular number.
+    if (mayBeSpecialSequence(dialString)
+        && (handleDeviceIdDisplay(context, dialString)
+            || handleRegulatoryInfoDisplay(context, dialString)
+            || handlePinEntry(context, dialString)
+            || handleAdnEntry(context, dialString, textField)
+            || handleSecretCode(context, dialString))) {
       return true;
     }
 
@@ -118,6 +121,14 @@ public class SpecialCharSequenceMgr {
     return false;
   }
 
+  private static boolean mayBeSpecialSequence(String dialString) {
+    if (dialString.isEmpty()) {
+      return false;
+    }
+    char last = dialString.charAt(dialString.length() - 1);
+    return last == '#' || last == '*';
+  }
+
   /**
    * Cleanup everything around this class. Must be run inside the main thread.
    *
@@ -0,0 +1,98 @@
+/*
+ * SPDX-FileCopyrightText: The LineageOS Project
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.android.dialer.lettertile;
+
+import android.graphics.Bitmap;
+import android.util.LruCache;
+
+import androidx.annotation.Nullable;
+
+import com.google.auto.value.AutoValue;
+
+/**
+ * Rendered letter tiles, shared by everything that turns a {@link LetterTileDrawable} into a
+ * bitmap, e.g. notification icons, launcher shortcuts and the contact photo loaders.
+ *
+ * <p>Tiles are keyed by everything that affects how they are drawn. The cache is bounded by the
+ * bytes of its bitmaps rather than their number, as tiles range from list avatars to launcher
+ * icons.
+ */
+final class LetterTileCache {
+
+  private static final int MAX_BYTES = 4 * 1024 * 1024;
+
+  private static LetterTileCache instance;
+
+  private final LruCache<TileKey, Bitmap> cache;
+
+  private LetterTileCache(int maxBytes) {
+    cache =
+        new LruCache<TileKey, Bitmap>(maxBytes) {
+          @Override
+          protected int sizeOf(TileKey key, Bitmap bitmap) {
+            return bitmap.getAllocationByteCount();
+          }
+        };
+  }
+
+  static synchronized LetterTileCache getInstance() {
+    if (instance == null) {
+      instance =
+          new LetterTileCache((int) Math.min(MAX_BYTES, Runtime.getRuntime().maxMemory() / 64));
+    }
+    return instance;
+  }
+
+  @Nullable
+  Bitmap get(TileKey key) {
+    return cache.get(key);
+  }
+
+  void put(TileKey key, Bitmap bitmap) {
+    cache.put(key, bitmap);
+  }
+
+  @Override
+  public String toString() {
+    return cache.toString();
+  }
+
+  /** Everything that determines how a tile is drawn. */
+  @AutoValue
+  abstract static class TileKey {
+
+    /** The letter drawn on the tile, 0 for the icon of the contact type. */
+    abstract char letter();
+
+    abstract int color();
+
+    abstract boolean circle();
+
+    @LetterTileDrawable.ContactType
+    abstract int contactType();
+
+    abstract float scale();
+
+    abstract float offset();
+
+    abstract int width();
+
+    abstract int height();
+
+    static TileKey create(
+        char letter,
+        int color,
+        boolean circle,
+        @LetterTileDrawable.ContactType int contactType,
+        float scale,
+        float offset,
+        int width,
+        int height) {
+      return new AutoValue_LetterTileCache_TileKey(
+          letter, color, circle, contactType, scale, offset, width, height);
+    }
+  }
+}
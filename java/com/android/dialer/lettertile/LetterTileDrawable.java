@@ -27,8 +27,8 @@ import android.graphics.Outline;
 import android.graphics.Paint;
 import android.graphics.Paint.Align;
 import android.graphics.Rect;
-import android.graphics.Typeface;
 import android.graphics.drawable.Drawable;
+import android.os.SystemClock;
 import android.telecom.TelecomManager;
 import android.text.TextUtils;
 
@@ -38,6 +38,7 @@ import androidx.annotation.Nullable;
 
 import com.android.dialer.R;
 import com.android.dialer.common.Assert;
+import com.android.dialer.common.LogUtil;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
@@ -95,6 +96,9 @@ public class LetterTileDrawable extends Drawable {
   private final Rect rect = new Rect();
   private final char[] firstChar = new char[1];
 
+  /** Last value passed to {@link #setAlpha(int)}, which the bitmap cache doesn't key on. */
+  private int alpha = 255;
+
   /** Letter tile */
   @NonNull
   private final TypedArray colors;
@@ -131,7 +135,7 @@ public class LetterTileDrawable extends Drawable {
     defaultSpamAvatar = res.getDrawable(R.drawable.quantum_ic_report_vd_theme_24, null);
     defaultConferenceAvatar = res.getDrawable(R.drawable.quantum_ic_group_vd_theme_24, null);
 
-    paint.setTypeface(Typeface.create("sans-serif-medium", Typeface.NORMAL));
+    paint.setTypeface(LetterTileGlyphs.TYPEFACE);
     paint.setTextAlign(Align.CENTER);
     paint.setAntiAlias(true);
     paint.setFilterBitmap(true);
@@ -190,9 +194,46 @@ public class LetterTileDrawable extends Drawable {
     drawLetterTile(canvas);
   }
 
+  /**
+   * Returns the tile drawn into a bitmap of the given size. Unless an alpha or color filter is set,
+   * the bitmap is shared with everyone asking for the same tile, so it must not be modified or
+   * recycled.
+   */
   public Bitmap getBitmap(int width, int height) {
-    Bitmap bitmap = Bitmap.createBitmap(width, height, Config.ARGB_8888);
     this.setBounds(0, 0, width, height);
+    if (alpha != 255 || paint.getColorFilter() != null) {
+      // Not part of the key, but rarely set on tiles drawn into bitmaps.
+      return render(width, height);
+    }
+    LetterTileCache cache = LetterTileCache.getInstance();
+    LetterTileCache.TileKey key =
+        LetterTileCache.TileKey.create(
+            letter == null ? 0 : letter,
+            color,
+            isCircle,
+            contactType,
+            scale,
+            offset,
+            width,
+            height);
+    Bitmap bitmap = cache.get(key);
+    if (bitmap == null) {
+      long startNanos = SystemClock.elapsedRealtimeNanos();
+      bitmap = render(width, height);
+      cache.put(key, bitmap);
+      LogUtil.d(
+          "LetterTileDrawable.getBitmap",
+          "rendered %dx%d tile in %d us, %s",
+          width,
+          height,
+          (SystemClock.elapsedRealtimeNanos() - startNanos) / 1000,
+          cache);
+    }
+    return bitmap;
+  }
+
+  private Bitmap render(int width, int height) {
+    Bitmap bitmap = Bitmap.createBitmap(width, height, Config.ARGB_8888);
     Canvas canvas = new Canvas(bitmap);
     this.draw(canvas);
     return bitmap;
@@ -217,9 +258,15 @@ public class LetterTileDrawable extends Drawable {
       firstChar[0] = letter;
 
       // Scale text by canvas bounds and user selected scaling factor
-      paint.setTextSize(scale * letterToTileRatio * minDimension);
-      paint.getTextBounds(firstChar, 0, 1, rect);
-      paint.setTypeface(Typeface.create("sans-serif", Typeface.NORMAL));
+      float textSize = scale * letterToTileRatio * minDimension;
+      paint.setTextSize(textSize);
+      float centerY;
+      if (LetterTileGlyphs.contains(letter)) {
+        centerY = LetterTileGlyphs.getCenterY(letter, textSize);
+      } else {
+        paint.getTextBounds(firstChar, 0, 1, rect);
+        centerY = rect.exactCenterY();
+      }
       paint.setColor(tileFontColor);
 
       // Draw the letter in the canvas, vertically shifted up or down by the user-defined
@@ -229,7 +276,7 @@ public class LetterTileDrawable extends Drawable {
           0,
           1,
           bounds.centerX(),
-          bounds.centerY() + offset * bounds.height() - rect.exactCenterY(),
+          bounds.centerY() + offset * bounds.height() - centerY,
           paint);
     } else {
       // Draw the default image if there is no letter/digit to be drawn
@@ -274,6 +321,7 @@ public class LetterTileDrawable extends Drawable {
 
   @Override
   public void setAlpha(final int alpha) {
+    this.alpha = alpha;
     paint.setAlpha(alpha);
   }
 
@@ -0,0 +1,61 @@
+/*
+ * SPDX-FileCopyrightText: The LineageOS Project
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.android.dialer.lettertile;
+
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+
+/**
+ * Vertical centers of the Latin capital letters, which almost all letter tiles show.
+ *
+ * <p>Centering a letter on a tile needs the bounds of its glyph. Instead of measuring the glyph on
+ * every draw, the glyphs of 'A' to 'Z' are measured once at a large text size, and their centers
+ * scaled to the size being drawn.
+ */
+final class LetterTileGlyphs {
+
+  static final Typeface TYPEFACE = Typeface.create("sans-serif", Typeface.NORMAL);
+
+  /** Large enough that rounding the measured bounds to pixels doesn't matter when scaling. */
+  private static final float REFERENCE_TEXT_SIZE = 256f;
+
+  private static float[] referenceCenters;
+
+  private LetterTileGlyphs() {}
+
+  /** Whether {@link #getCenterY(char, float)} knows the letter. */
+  static boolean contains(char letter) {
+    return 'A' <= letter && letter <= 'Z';
+  }
+
+  /**
+   * Returns the vertical center of the glyph of the letter relative to the baseline at the given
+   * text size, like {@link Rect#exactCenterY()} of its text bounds.
+   */
+  static float getCenterY(char letter, float textSize) {
+    return getReferenceCenters()[letter - 'A'] * textSize / REFERENCE_TEXT_SIZE;
+  }
+
+  private static synchronized float[] getReferenceCenters() {
+    if (referenceCenters == null) {
+      Paint paint = new Paint();
+      paint.setTypeface(TYPEFACE);
+      paint.setAntiAlias(true);
+      paint.setTextSize(REFERENCE_TEXT_SIZE);
+      Rect bounds = new Rect();
+      char[] glyph = new char[1];
+      float[] centers = new float['Z' - 'A' + 1];
+      for (int i = 0; i < centers.length; i++) {
+        glyph[0] = (char) ('A' + i);
+        paint.getTextBounds(glyph, 0, 1, bounds);
+        centers[i] = bounds.exactCenterY();
+      }
+      referenceCenters = centers;
+    }
+    return referenceCenters;
+  }
+}
@@ -40,6 +40,7 @@ public abstract class ForwardLookup {
       if (provider.equals(LookupSettings.FLP_OPENSTREETMAP)) {
         INSTANCE = new OpenStreetMapForwardLookup(context);
       }
+      ForwardLookupCache.getInstance().clear();
     }
 
     return INSTANCE;
@@ -54,5 +55,42 @@ public abstract class ForwardLookup {
     }
   }
 
+  /** Receives the results of a lookup one by one. */
+  public interface ResultListener {
+    /** Returns false if no more results are wanted, which ends the lookup early. */
+    boolean onResult(ContactInfo info);
+  }
+
   public abstract List<ContactInfo> lookup(Context context, String filter, Location lastLocation);
+
+  /**
+   * Performs the lookup, passing each result to the listener as soon as it is available.
+   *
+   * <p>Providers that parse their results incrementally should override this, so the first
+   * results are available early and no more results than wanted are parsed. The default
+   * implementation passes on the results of {@link #lookup(Context, String, Location)}.
+   *
+   * @return false if the lookup failed
+   */
+  public boolean lookup(Context context, String filter, Location lastLocation,
+      ResultListener listener) {
+    List<ContactInfo> results = lookup(context, filter, lastLocation);
+    if (results == null) {
+      return false;
+    }
+    for (ContactInfo info : results) {
+      if (!listener.onResult(info)) {
+        break;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Whether {@link #lookup} returns every entry whose name contains the filter, ignoring case. If
+   * so, results for a longer filter can be derived from cached results for its prefix.
+   */
+  public boolean matchesNameSubstring() {
+    return false;
+  }
 }
@@ -0,0 +1,188 @@
+/*
+ * SPDX-FileCopyrightText: The LineageOS Project
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.android.dialer.lookup;
+
+import android.content.Context;
+import android.location.Location;
+import android.os.SystemClock;
+import android.text.TextUtils;
+import android.util.Log;
+import android.util.LruCache;
+
+import com.android.dialer.phonenumbercache.ContactInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Caches forward lookup results, so typing and deleting characters doesn't repeat network requests.
+ *
+ * <p>Results are keyed by the normalized query and a location cell of about one kilometer, and
+ * expire after {@link #TTL_MILLIS}. For providers that return every entry whose name contains the
+ * query, the results of a shorter query are a superset of the results of a longer query starting
+ * with it. A longer query is then answered by filtering the cached results of its longest cached
+ * prefix, e.g. "pizza" from "pizz", without a request.
+ *
+ * <p>A lookup that stopped parsing once it had the wanted number of results is cached as
+ * incomplete. It only answers lookups wanting at most as many results, and isn't used as a prefix.
+ */
+public class ForwardLookupCache {
+  private static final String TAG = ForwardLookupCache.class.getSimpleName();
+
+  private static final long TTL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+  private static final int MAX_ENTRIES = 32;
+
+  /** Size of a location cell in degrees, about 1.1 km of latitude. */
+  private static final double CELL_DEGREES = 0.01;
+
+  /** Queries without regex metacharacters, for which name matching is a plain substring search. */
+  private static final Pattern LITERAL_QUERY_PATTERN = Pattern.compile("[\\p{L}\\p{N} '&-]+");
+  private static final Pattern WHITESPACE_PATTERN = Pattern.compile("\\s+");
+
+  private static ForwardLookupCache instance;
+
+  private final LruCache<String, Entry> cache = new LruCache<>(MAX_ENTRIES);
+
+  private int hitCount;
+  private int prefixHitCount;
+  private int missCount;
+
+  public static synchronized ForwardLookupCache getInstance() {
+    if (instance == null) {
+      instance = new ForwardLookupCache();
+    }
+    return instance;
+  }
+
+  /**
+   * Passes the results of the lookup to the listener, performing it only if neither the query nor
+   * a prefix of it is cached for the location.
+   *
+   * @param maxResults The number of results wanted, or -1 for all. A lookup stops parsing once it
+   *     has this many, so its results are cached as incomplete.
+   * @return false if the lookup failed
+   */
+  public boolean lookup(ForwardLookup lookup, Context context, String filter, Location location,
+      int maxResults, ForwardLookup.ResultListener listener) {
+    String query = normalize(filter);
+    String cell = getCell(location);
+    String providerKey = lookup.getClass().getName() + "|" + cell + "|";
+
+    List<ContactInfo> results =
+        getCached(providerKey, query, maxResults, lookup.matchesNameSubstring());
+    if (results != null) {
+      for (ContactInfo info : results) {
+        if (!listener.onResult(info)) {
+          break;
+        }
+      }
+      return true;
+    }
+
+    List<ContactInfo> parsed = new ArrayList<>();
+    boolean[] complete = {true};
+    boolean success = lookup.lookup(context, filter, location, info -> {
+      parsed.add(info);
+      if (!listener.onResult(info) || parsed.size() == maxResults) {
+        complete[0] = false;
+        return false;
+      }
+      return true;
+    });
+    if (success) {
+      // Failed requests are not cached, so they are retried with the next query.
+      put(providerKey + query, parsed, complete[0]);
+    }
+    return success;
+  }
+
+  /** Drops all cached results, e.g. when the lookup provider changes. */
+  public synchronized void clear() {
+    cache.evictAll();
+  }
+
+  private synchronized List<ContactInfo> getCached(String providerKey, String query,
+      int maxResults, boolean prefixReuse) {
+    long now = SystemClock.elapsedRealtime();
+    Entry entry = cache.get(providerKey + query);
+    if (entry != null && !entry.isExpired(now) && entry.hasResults(maxResults)) {
+      hitCount++;
+      logStats("hit");
+      return entry.results;
+    }
+
+    if (prefixReuse && LITERAL_QUERY_PATTERN.matcher(query).matches()) {
+      for (int length = query.length() - 1; length > 0; length--) {
+        Entry prefixEntry = cache.get(providerKey + query.substring(0, length));
+        // Results for a longer query may be missing from incomplete results of the prefix.
+        if (prefixEntry == null || prefixEntry.isExpired(now) || !prefixEntry.complete) {
+          continue;
+        }
+        List<ContactInfo> results = new ArrayList<>();
+        for (ContactInfo info : prefixEntry.results) {
+          if (info.name != null && info.name.toLowerCase(Locale.ROOT).contains(query)) {
+            results.add(info);
+          }
+        }
+        // Keep the expiry of the results this was derived from.
+        cache.put(providerKey + query, new Entry(results, true, prefixEntry.expiryMillis));
+        prefixHitCount++;
+        logStats("prefix hit");
+        return results;
+      }
+    }
+
+    missCount++;
+    logStats("miss");
+    return null;
+  }
+
+  private synchronized void put(String key, List<ContactInfo> results, boolean complete) {
+    cache.put(key, new Entry(results, complete, SystemClock.elapsedRealtime() + TTL_MILLIS));
+  }
+
+  private void logStats(String result) {
+    Log.v(TAG, result + " (hits: " + hitCount + ", prefix hits: " + prefixHitCount
+        + ", misses: " + missCount + ")");
+  }
+
+  private static String normalize(String filter) {
+    if (TextUtils.isEmpty(filter)) {
+      return "";
+    }
+    return WHITESPACE_PATTERN.matcher(filter.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+  }
+
+  private static String getCell(Location location) {
+    return Math.round(location.getLatitude() / CELL_DEGREES) + ","
+        + Math.round(location.getLongitude() / CELL_DEGREES);
+  }
+
+  private static class Entry {
+    final List<ContactInfo> results;
+    /** False if the lookup stopped before all results were parsed. */
+    final boolean complete;
+    final long expiryMillis;
+
+    Entry(List<ContactInfo> results, boolean complete, long expiryMillis) {
+      this.results = results;
+      this.complete = complete;
+      this.expiryMillis = expiryMillis;
+    }
+
+    boolean isExpired(long now) {
+      return now >= expiryMillis;
+    }
+
+    /** Whether the entry can answer a lookup wanting the given number of results. */
+    boolean hasResults(int maxResults) {
+      return complete || (maxResults != -1 && results.size() >= maxResults);
+    }
+  }
+}
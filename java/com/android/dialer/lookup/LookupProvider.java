@@ -28,6 +28,7 @@ import android.location.LocationManager;
 import android.net.Uri;
 import android.os.CancellationSignal;
 import android.os.ParcelFileDescriptor;
+import android.os.SystemClock;
 import android.provider.ContactsContract;
 import android.provider.ContactsContract.CommonDataKinds.StructuredPostal;
 import android.provider.ContactsContract.Contacts;
@@ -45,9 +46,7 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
 import java.util.LinkedList;
-import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
@@ -123,6 +122,12 @@ public class LookupProvider extends ContentProvider {
   @Override
   public Cursor query(Uri uri, final String[] projection, String selection,
       String[] selectionArgs, String sortOrder) {
+    return query(uri, projection, selection, selectionArgs, sortOrder, null);
+  }
+
+  @Override
+  public Cursor query(Uri uri, final String[] projection, String selection,
+      String[] selectionArgs, String sortOrder, CancellationSignal cancellationSignal) {
     if (DEBUG) Log.v(TAG, "query: " + uri);
 
     Location lastLocation = null;
@@ -163,7 +168,7 @@ public class LookupProvider extends ContentProvider {
 
         return execute(
                 () -> handleFilter(match, projection, filter, finalMaxResults, finalLastLocation),
-                "FilterThread");
+                "FilterThread", cancellationSignal);
     }
 
     return null;
@@ -211,6 +216,8 @@ public class LookupProvider extends ContentProvider {
             throw new FileNotFoundException("Cached image does not exist");
           }
 
+          // The caller reads the cached file through its descriptor directly, so the image is
+          // neither buffered nor copied through a pipe here.
           return ParcelFileDescriptor.open(image, ParcelFileDescriptor.MODE_READ_ONLY);
         } else {
           throw new FileNotFoundException("The URI is read only");
@@ -253,6 +260,9 @@ public class LookupProvider extends ContentProvider {
   /**
    * Process filter/query and perform the lookup.
    *
+   * <p>Rows are added to the cursor while the lookup parses its results, and the lookup stops
+   * parsing once {@code maxResults} rows were added.
+   *
    * @param projection Columns to include in query
    * @param filter String to lookup
    * @param maxResults Maximum number of results
@@ -269,70 +279,58 @@ public class LookupProvider extends ContentProvider {
 
     filter = URLDecoder.decode(filter, StandardCharsets.UTF_8);
 
-    ArrayList<ContactInfo> results = new ArrayList<>();
+    // Extended directories always use this projection
+    MatrixCursor cursor = new MatrixCursor(Projections.DATA_PROJECTION);
+    long startMillis = SystemClock.elapsedRealtime();
+    long[] firstRowMillis = {-1};
+
     if ((type == NEARBY || type == NEARBY_AND_PEOPLE) && lastLocation != null) {
       ForwardLookup fl = ForwardLookup.getInstance(getContext());
-      List<ContactInfo> nearby = fl.lookup(getContext(), filter, lastLocation);
-      if (nearby != null) {
-        results.addAll(nearby);
-      }
+      ForwardLookupCache.getInstance().lookup(fl, getContext(), filter, lastLocation, maxResults,
+          result -> {
+            if (firstRowMillis[0] == -1) {
+              firstRowMillis[0] = SystemClock.elapsedRealtime() - startMillis;
+            }
+            addResultRow(cursor, result);
+            return maxResults == -1 || cursor.getCount() < maxResults;
+          });
     }
 
-    if (results.isEmpty()) {
-      if (DEBUG) Log.v(TAG, "handleFilter(" + filter + "): No results");
-      return null;
+    if (DEBUG) {
+      Log.v(TAG, "handleFilter: " + cursor.getCount() + " rows in "
+          + (SystemClock.elapsedRealtime() - startMillis) + " ms, first row after "
+          + firstRowMillis[0] + " ms");
     }
 
-    Cursor cursor = null;
-    try {
-      cursor = buildResultCursor(projection, results, maxResults);
-      if (DEBUG) {
-        Log.v(TAG, "handleFilter(" + filter + "): " + cursor.getCount() + " matches");
-      }
-    } catch (JSONException e) {
-      Log.e(TAG, "JSON failure", e);
+    if (cursor.getCount() == 0) {
+      if (DEBUG) Log.v(TAG, "handleFilter(" + filter + "): No results");
+      return null;
     }
 
     return cursor;
   }
 
   /**
-   * Query results.
+   * Adds a forward lookup result to the cursor.
    *
-   * @param projection Columns to include in query
-   * @param results Results for the forward lookup
-   * @param maxResults Maximum number of rows/results to add to cursor
-   * @return Cursor for forward lookup query results
+   * @param cursor Cursor with {@link Projections#DATA_PROJECTION}
+   * @param result Result of the forward lookup
    */
-  private Cursor buildResultCursor(String[] projection, List<ContactInfo> results, int maxResults)
-      throws JSONException {
-    // Extended directories always use this projection
-    MatrixCursor cursor = new MatrixCursor(Projections.DATA_PROJECTION);
-
-    int id = 1;
-    for (ContactInfo result : results) {
-      Object[] row = new Object[Projections.DATA_PROJECTION.length];
-
-      row[Projections.ID] = id;
-      row[Projections.PHONE_TYPE] = result.type;
-      row[Projections.PHONE_LABEL] = getAddress(result);
-      row[Projections.PHONE_NUMBER] = result.number;
-      row[Projections.DISPLAY_NAME] = result.name;
-      row[Projections.PHOTO_ID] = 0;
-      row[Projections.PHOTO_URI] = result.photoUri;
-      row[Projections.LOOKUP_KEY] = result.lookupUri.getEncodedFragment();
-      row[Projections.CONTACT_ID] = id;
-
-      cursor.addRow(row);
-
-      if (maxResults != -1 && cursor.getCount() >= maxResults) {
-        break;
-      }
-
-      id++;
-    }
-
-    return cursor;
+  private void addResultRow(MatrixCursor cursor, ContactInfo result) {
+    int id = cursor.getCount() + 1;
+    Object[] row = new Object[Projections.DATA_PROJECTION.length];
+
+    row[Projections.ID] = id;
+    row[Projections.PHONE_TYPE] = result.type;
+    row[Projections.PHONE_LABEL] = getAddress(result);
+    row[Projections.PHONE_NUMBER] = result.number;
+    row[Projections.DISPLAY_NAME] = result.name;
+    row[Projections.PHOTO_ID] = 0;
+    row[Projections.PHOTO_URI] = result.photoUri;
+    row[Projections.LOOKUP_KEY] = result.lookupUri.getEncodedFragment();
+    row[Projections.CONTACT_ID] = id;
+
+    cursor.addRow(row);
   }
 
   private String getAddress(ContactInfo info) {
@@ -380,12 +378,17 @@ public class LookupProvider extends ContentProvider {
    *
    * @param callable The thread
    * @param name Name of the thread
+   * @param cancellationSignal Signal cancelling the thread, e.g. once the query is obsolete
    * @return Instance of the thread
    */
-  private <T> T execute(Callable<T> callable, String name) {
+  private <T> T execute(Callable<T> callable, String name, CancellationSignal cancellationSignal) {
     FutureCallable<T> futureCallable = new FutureCallable<>(callable);
-    FutureTask<T> future = new FutureTask<>(futureCallable);
+    LookupTask<T> future = new LookupTask<>(futureCallable);
     futureCallable.setFuture(future);
+    if (cancellationSignal != null) {
+      cancellationSignal.throwIfCanceled();
+      cancellationSignal.setOnCancelListener(() -> future.cancel(true));
+    }
 
     synchronized (activeTasks) {
       activeTasks.addLast(future);
@@ -414,8 +417,16 @@ public class LookupProvider extends ContentProvider {
       future.cancel(true);
     } catch (CancellationException e) {
       Log.w(TAG, "Task was cancelled: " + name);
+    } finally {
+      synchronized (activeTasks) {
+        activeTasks.remove(future);
+      }
     }
 
+    if (cancellationSignal != null) {
+      cancellationSignal.setOnCancelListener(null);
+      cancellationSignal.throwIfCanceled();
+    }
     return null;
   }
 }
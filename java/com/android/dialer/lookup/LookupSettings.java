@@ -19,6 +19,9 @@ package com.android.dialer.lookup;
 import android.content.Context;
 import android.content.SharedPreferences;
 
+import java.util.Collections;
+import java.util.Set;
+
 public final class LookupSettings {
   private static final String TAG = LookupSettings.class.getSimpleName();
 
@@ -40,6 +43,8 @@ public final class LookupSettings {
   private static final String ENABLE_REVERSE_LOOKUP = "enable_reverse_lookup";
   private static final String FORWARD_LOOKUP_PROVIDER = "forward_lookup_provider2";
   private static final String REVERSE_LOOKUP_PROVIDER = "reverse_lookup_provider2";
+  private static final String REVERSE_LOOKUP_FALLBACK_PROVIDERS =
+      "reverse_lookup_fallback_providers";
 
   private LookupSettings() {
   }
@@ -80,4 +85,15 @@ public final class LookupSettings {
   public static void setReverseLookupProvider(Context context, String value) {
     getSharedPreferences(context).edit().putString(REVERSE_LOOKUP_PROVIDER, value).apply();
   }
+
+  /** Providers which are also asked if the reverse lookup provider is slow or fails. */
+  public static Set<String> getReverseLookupFallbackProviders(Context context) {
+    return getSharedPreferences(context)
+        .getStringSet(REVERSE_LOOKUP_FALLBACK_PROVIDERS, Collections.emptySet());
+  }
+
+  public static void setReverseLookupFallbackProviders(Context context, Set<String> value) {
+    getSharedPreferences(context).edit()
+        .putStringSet(REVERSE_LOOKUP_FALLBACK_PROVIDERS, value).apply();
+  }
 }
@@ -22,12 +22,15 @@ import android.os.Bundle;
 
 import androidx.annotation.Nullable;
 import androidx.preference.ListPreference;
+import androidx.preference.MultiSelectListPreference;
 import androidx.preference.Preference;
 import androidx.preference.PreferenceFragmentCompat;
 import androidx.preference.SwitchPreferenceCompat;
 
 import com.android.dialer.R;
 
+import java.util.Set;
+
 public class LookupSettingsFragment extends PreferenceFragmentCompat
     implements Preference.OnPreferenceChangeListener {
 
@@ -35,11 +38,14 @@ public class LookupSettingsFragment extends PreferenceFragmentCompat
   private static final String KEY_ENABLE_REVERSE_LOOKUP = "enable_reverse_lookup";
   private static final String KEY_FORWARD_LOOKUP_PROVIDER = "forward_lookup_provider";
   private static final String KEY_REVERSE_LOOKUP_PROVIDER = "reverse_lookup_provider";
+  private static final String KEY_REVERSE_LOOKUP_FALLBACK_PROVIDERS =
+      "reverse_lookup_fallback_providers";
 
   private SwitchPreferenceCompat enableForwardLookup;
   private SwitchPreferenceCompat enableReverseLookup;
   private ListPreference forwardLookupProvider;
   private ListPreference reverseLookupProvider;
+  private MultiSelectListPreference reverseLookupFallbackProviders;
 
   @Override
   public void onCreate(Bundle savedInstanceState) {
@@ -62,6 +68,10 @@ public class LookupSettingsFragment extends PreferenceFragmentCompat
 
     forwardLookupProvider.setOnPreferenceChangeListener(this);
     reverseLookupProvider.setOnPreferenceChangeListener(this);
+
+    reverseLookupFallbackProviders =
+        (MultiSelectListPreference) findPreference(KEY_REVERSE_LOOKUP_FALLBACK_PROVIDERS);
+    reverseLookupFallbackProviders.setOnPreferenceChangeListener(this);
   }
 
   @Override
@@ -84,6 +94,10 @@ public class LookupSettingsFragment extends PreferenceFragmentCompat
       LookupSettings.setForwardLookupProvider(context, (String) newValue);
     } else if (preference == reverseLookupProvider) {
       LookupSettings.setReverseLookupProvider(context, (String) newValue);
+    } else if (preference == reverseLookupFallbackProviders) {
+      @SuppressWarnings("unchecked")
+      Set<String> providers = (Set<String>) newValue;
+      LookupSettings.setReverseLookupFallbackProviders(context, providers);
     }
 
     return true;
@@ -101,6 +115,8 @@ public class LookupSettingsFragment extends PreferenceFragmentCompat
 
     restoreLookupProvider(forwardLookupProvider, LookupSettings.getForwardLookupProvider(context));
     restoreLookupProvider(reverseLookupProvider, LookupSettings.getReverseLookupProvider(context));
+    reverseLookupFallbackProviders.setValues(
+        LookupSettings.getReverseLookupFallbackProviders(context));
   }
 
   private void restoreLookupProvider(ListPreference pref, String provider) {
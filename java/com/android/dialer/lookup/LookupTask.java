@@ -0,0 +1,41 @@
+/*
+ * SPDX-FileCopyrightText: The LineageOS Project
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.android.dialer.lookup;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+/**
+ * FutureTask which also aborts the HTTP request of its worker thread when cancelled, since
+ * interrupting a thread doesn't unblock socket reads.
+ */
+class LookupTask<T> extends FutureTask<T> {
+  private volatile Thread runner;
+
+  public LookupTask(Callable<T> callable) {
+    super(callable);
+  }
+
+  @Override
+  public void run() {
+    runner = Thread.currentThread();
+    try {
+      super.run();
+    } finally {
+      runner = null;
+    }
+  }
+
+  @Override
+  public boolean cancel(boolean mayInterruptIfRunning) {
+    boolean cancelled = super.cancel(mayInterruptIfRunning);
+    Thread thread = runner;
+    if (cancelled && thread != null) {
+      LookupUtils.abortHttpRequest(thread);
+    }
+    return cancelled;
+  }
+}
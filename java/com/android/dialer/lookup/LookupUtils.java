@@ -18,13 +18,17 @@
 package com.android.dialer.lookup;
 
 import android.text.Html;
+import android.util.LruCache;
 
 import java.io.BufferedInputStream;
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
+import java.io.Reader;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.nio.charset.Charset;
@@ -33,13 +37,26 @@ import java.nio.charset.UnsupportedCharsetException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class LookupUtils {
+  /** Reads an HTTP response body while it is being received. */
+  public interface ResponseHandler<T> {
+    T handleResponse(Reader reader) throws IOException;
+  }
+
   private static final String USER_AGENT =
       "Mozilla/5.0 (X11; Linux x86_64; rv:42.0) Gecko/20100101 Firefox/42.0";
 
+  // Compiled patterns of the scraping providers, keyed by flags and regex
+  private static final LruCache<String, Pattern> patternCache = new LruCache<>(64);
+
+  // Connections currently in use, keyed by the thread using them, so they can be aborted
+  private static final Map<Thread, HttpURLConnection> activeConnections =
+      new ConcurrentHashMap<>();
+
   private static HttpURLConnection prepareHttpConnection(String url, Map<String, String> headers)
       throws IOException {
     // open connection
@@ -53,9 +70,32 @@ public class LookupUtils {
       }
     }
 
+    activeConnections.put(Thread.currentThread(), urlConnection);
     return urlConnection;
   }
 
+  /**
+   * Releases a connection. A connection whose response was read completely is left open, so the
+   * platform can reuse it (HTTP keep-alive) for the next request to the same host.
+   */
+  private static void releaseHttpConnection(HttpURLConnection connection, boolean reusable) {
+    activeConnections.remove(Thread.currentThread(), connection);
+    if (!reusable) {
+      connection.disconnect();
+    }
+  }
+
+  /**
+   * Aborts the HTTP request currently made by the given thread, if any. The request then fails
+   * with an {@link IOException} on that thread.
+   */
+  public static void abortHttpRequest(Thread thread) {
+    HttpURLConnection connection = activeConnections.remove(thread);
+    if (connection != null) {
+      connection.disconnect();
+    }
+  }
+
   private static byte[] httpFetch(HttpURLConnection urlConnection) throws IOException {
     // query url, read and return buffered response body
     // we want to make sure that the connection gets closed here
@@ -96,44 +136,80 @@ public class LookupUtils {
 
   public static String httpGet(String url, Map<String, String> headers) throws IOException {
     HttpURLConnection connection = prepareHttpConnection(url, headers);
+    boolean reusable = false;
     try {
       byte[] response = httpFetch(connection);
+      reusable = true;
       return new String(response, determineCharset(connection));
     } finally {
-      connection.disconnect();
+      releaseHttpConnection(connection, reusable);
     }
   }
 
   public static byte[] httpGetBytes(String url, Map<String, String> headers) throws IOException {
     HttpURLConnection connection = prepareHttpConnection(url, headers);
+    boolean reusable = false;
     try {
-      return httpFetch(connection);
+      byte[] response = httpFetch(connection);
+      reusable = true;
+      return response;
     } finally {
-      connection.disconnect();
+      releaseHttpConnection(connection, reusable);
     }
   }
 
   public static String httpPost(String url, Map<String, String> headers, String postData)
       throws IOException {
     HttpURLConnection connection = prepareHttpConnection(url, headers);
+    boolean reusable = false;
 
     try {
-      // write postData to buffered output stream
-      if (postData != null) {
-        connection.setDoOutput(true);
-        BufferedWriter bw = new BufferedWriter(
-            new OutputStreamWriter(connection.getOutputStream()));
-        try {
-          bw.write(postData, 0, postData.length());
-          // close connection and re-throw exception
-        } finally {
-          bw.close();
-        }
-      }
+      writePostData(connection, postData);
       byte[] response = httpFetch(connection);
+      reusable = true;
       return new String(response, determineCharset(connection));
     } finally {
-      connection.disconnect();
+      releaseHttpConnection(connection, reusable);
+    }
+  }
+
+  /**
+   * Like {@link #httpPost(String, Map, String)}, but passes the response to the handler as it
+   * arrives instead of buffering it. If the handler stops reading early, the rest of the response
+   * isn't downloaded.
+   */
+  public static <T> T httpPost(String url, Map<String, String> headers, String postData,
+      ResponseHandler<T> handler) throws IOException {
+    HttpURLConnection connection = prepareHttpConnection(url, headers);
+    boolean reusable = false;
+
+    try {
+      writePostData(connection, postData);
+      try (Reader reader = new BufferedReader(new InputStreamReader(
+          connection.getInputStream(), determineCharset(connection)))) {
+        T result = handler.handleResponse(reader);
+        // The connection can only be reused if the whole response was read.
+        reusable = reader.read() == -1;
+        return result;
+      }
+    } finally {
+      releaseHttpConnection(connection, reusable);
+    }
+  }
+
+  private static void writePostData(HttpURLConnection connection, String postData)
+      throws IOException {
+    // write postData to buffered output stream
+    if (postData != null) {
+      connection.setDoOutput(true);
+      BufferedWriter bw = new BufferedWriter(
+          new OutputStreamWriter(connection.getOutputStream()));
+      try {
+        bw.write(postData, 0, postData.length());
+        // close connection and re-throw exception
+      } finally {
+        bw.close();
+      }
     }
   }
 
@@ -141,8 +217,7 @@ public class LookupUtils {
     if (input == null) {
       return null;
     }
-    Pattern pattern = Pattern.compile(regex, dotall ? Pattern.DOTALL : 0);
-    Matcher matcher = pattern.matcher(input);
+    Matcher matcher = getPattern(regex, dotall).matcher(input);
 
     List<String> regexResults = new ArrayList<>();
     while (matcher.find()) {
@@ -155,11 +230,21 @@ public class LookupUtils {
     if (input == null) {
       return null;
     }
-    Pattern pattern = Pattern.compile(regex, dotall ? Pattern.DOTALL : 0);
-    Matcher m = pattern.matcher(input);
+    Matcher m = getPattern(regex, dotall).matcher(input);
     return m.find() ? m.group(1).trim() : null;
   }
 
+  /** Returns the compiled pattern for the regex, compiling it only on first use. */
+  public static Pattern getPattern(String regex, boolean dotall) {
+    String key = (dotall ? "s:" : ":") + regex;
+    Pattern pattern = patternCache.get(key);
+    if (pattern == null) {
+      pattern = Pattern.compile(regex, dotall ? Pattern.DOTALL : 0);
+      patternCache.put(key, pattern);
+    }
+    return pattern;
+  }
+
   public static String fromHtml(String input) {
     if (input == null) {
       return null;
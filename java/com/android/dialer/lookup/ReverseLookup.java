@@ -28,45 +28,60 @@ import com.android.dialer.lookup.zabasearch.ZabaSearchReverseLookup;
 import com.android.dialer.phonenumbercache.ContactInfo;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
 
 public abstract class ReverseLookup {
   private static final String TAG = ReverseLookup.class.getSimpleName();
 
   private static ReverseLookup INSTANCE = null;
+  private static List<String> INSTANCE_PROVIDERS = null;
 
   public static ReverseLookup getInstance(Context context) {
-    String provider = LookupSettings.getReverseLookupProvider(context);
+    List<String> providers = new ArrayList<>();
+    providers.add(LookupSettings.getReverseLookupProvider(context));
+    for (String fallback :
+        new TreeSet<>(LookupSettings.getReverseLookupFallbackProviders(context))) {
+      if (!providers.contains(fallback)) {
+        providers.add(fallback);
+      }
+    }
 
-    if (INSTANCE == null || !isInstance(provider)) {
-      Log.d(TAG, "Chosen reverse lookup provider: " + provider);
+    if (INSTANCE == null || !providers.equals(INSTANCE_PROVIDERS)) {
+      Log.d(TAG, "Chosen reverse lookup providers: " + providers);
 
-      if (provider.equals(LookupSettings.RLP_YELLOWPAGES)
-          || provider.equals(LookupSettings.RLP_YELLOWPAGES_CA)) {
-        INSTANCE = new YellowPagesReverseLookup(context, provider);
-      } else if (provider.equals(LookupSettings.RLP_ZABASEARCH)) {
-        INSTANCE = new ZabaSearchReverseLookup(context);
-      } else if (provider.equals(LookupSettings.RLP_DASTELEFONBUCH)) {
-        INSTANCE = new TelefonbuchReverseLookup(context);
+      List<String> names = new ArrayList<>();
+      List<ReverseLookup> lookups = new ArrayList<>();
+      for (String provider : providers) {
+        ReverseLookup lookup = createProvider(context, provider);
+        if (lookup != null) {
+          names.add(provider);
+          lookups.add(lookup);
+        }
       }
+
+      if (lookups.size() == 1) {
+        INSTANCE = lookups.get(0);
+      } else if (lookups.size() > 1) {
+        INSTANCE = new ReverseLookupChain(context, names, lookups);
+      }
+      INSTANCE_PROVIDERS = providers;
     }
 
     return INSTANCE;
   }
 
-  private static boolean isInstance(String provider) {
-    if ((provider.equals(LookupSettings.RLP_YELLOWPAGES)
-        || provider.equals(LookupSettings.RLP_YELLOWPAGES_CA))
-        && INSTANCE instanceof YellowPagesReverseLookup) {
-      return true;
-    } else if (provider.equals(LookupSettings.RLP_ZABASEARCH)
-        && INSTANCE instanceof ZabaSearchReverseLookup) {
-      return true;
-    } else if (provider.equals(LookupSettings.RLP_DASTELEFONBUCH)
-        && INSTANCE instanceof TelefonbuchReverseLookup) {
-      return true;
-    } else {
-      return false;
+  private static ReverseLookup createProvider(Context context, String provider) {
+    if (provider.equals(LookupSettings.RLP_YELLOWPAGES)
+        || provider.equals(LookupSettings.RLP_YELLOWPAGES_CA)) {
+      return new YellowPagesReverseLookup(context, provider);
+    } else if (provider.equals(LookupSettings.RLP_ZABASEARCH)) {
+      return new ZabaSearchReverseLookup(context);
+    } else if (provider.equals(LookupSettings.RLP_DASTELEFONBUCH)) {
+      return new TelefonbuchReverseLookup(context);
     }
+    return null;
   }
 
   /**
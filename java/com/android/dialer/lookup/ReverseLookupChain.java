@@ -0,0 +1,285 @@
+/*
+ * SPDX-FileCopyrightText: The LineageOS Project
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.android.dialer.lookup;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.android.dialer.common.concurrent.DialerExecutorComponent;
+import com.android.dialer.phonenumbercache.ContactInfo;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reverse lookup which asks several providers, taking the first answer with a name.
+ *
+ * <p>Providers are asked one after another, but requests are hedged: if a provider hasn't answered
+ * within {@link #HEDGE_DELAY_MILLIS}, the next one is started without cancelling the first. Once a
+ * provider answers, all other requests are cancelled. Latency and errors are recorded per provider,
+ * and providers that have been fast and reliable are asked first.
+ */
+public class ReverseLookupChain extends ReverseLookup {
+  private static final String TAG = ReverseLookupChain.class.getSimpleName();
+
+  /** How long to wait for a provider before also asking the next one. */
+  private static final long HEDGE_DELAY_MILLIS = 1500;
+
+  /** How long to wait for an answer in total. */
+  private static final long TIMEOUT_MILLIS = 10000;
+
+  /** Statistics survive chains being recreated, e.g. when the settings change. */
+  private static final Map<String, ProviderStats> STATS = new ConcurrentHashMap<>();
+
+  private final List<String> names;
+  private final List<ReverseLookup> providers;
+  private final Executor executor;
+
+  /**
+   * @param names Names of the providers, in order of preference
+   * @param providers The providers, in the same order as {@code names}
+   */
+  public ReverseLookupChain(Context context, List<String> names, List<ReverseLookup> providers) {
+    if (names.size() != providers.size()) {
+      throw new IllegalArgumentException("Every provider needs a name");
+    }
+    this.names = new ArrayList<>(names);
+    this.providers = new ArrayList<>(providers);
+    this.executor = DialerExecutorComponent.get(context).lowPriorityThreadPool();
+  }
+
+  @Override
+  public Bitmap lookupImage(Context context, Uri uri) {
+    for (int index : getOrderedIndices()) {
+      Bitmap bitmap = providers.get(index).lookupImage(context, uri);
+      if (bitmap != null) {
+        return bitmap;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public ContactInfo lookupNumber(Context context,
+      String normalizedNumber, String formattedNumber) throws IOException {
+    List<Integer> order = getOrderedIndices();
+    BlockingQueue<Attempt> completed = new LinkedBlockingQueue<>();
+    List<Attempt> started = new ArrayList<>();
+    long deadline = SystemClock.elapsedRealtime() + TIMEOUT_MILLIS;
+    IOException lastError = null;
+    int running = 0;
+
+    try {
+      while (running > 0 || started.size() < order.size()) {
+        long now = SystemClock.elapsedRealtime();
+        if (now >= deadline) {
+          Log.w(TAG, "No provider answered within " + TIMEOUT_MILLIS + " ms");
+          break;
+        }
+
+        if (running == 0) {
+          // Nothing in flight, e.g. the previous provider failed. Don't wait for the hedge delay.
+          started.add(startAttempt(context, order.get(started.size()), normalizedNumber,
+              formattedNumber, completed));
+          running++;
+          continue;
+        }
+
+        boolean canHedge = started.size() < order.size();
+        long timeout = canHedge ? Math.min(HEDGE_DELAY_MILLIS, deadline - now) : deadline - now;
+        Attempt attempt = completed.poll(timeout, TimeUnit.MILLISECONDS);
+        if (attempt == null) {
+          if (canHedge) {
+            Log.d(TAG, "Hedging with " + names.get(order.get(started.size())));
+            started.add(startAttempt(context, order.get(started.size()), normalizedNumber,
+                formattedNumber, completed));
+            running++;
+          }
+          continue;
+        }
+
+        running--;
+        try {
+          ContactInfo info = attempt.get();
+          if (info != null && !ContactInfo.EMPTY.equals(info)) {
+            Log.d(TAG, "Answered by " + names.get(attempt.index));
+            return info;
+          }
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof IOException) {
+            lastError = (IOException) e.getCause();
+          } else {
+            Log.e(TAG, "Lookup by " + names.get(attempt.index) + " failed", e.getCause());
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      for (Attempt attempt : started) {
+        attempt.cancelIfRunning();
+      }
+      if (Log.isLoggable(TAG, Log.VERBOSE)) {
+        Log.v(TAG, dumpStats());
+      }
+    }
+
+    if (lastError != null) {
+      throw lastError;
+    }
+    return null;
+  }
+
+  private Attempt startAttempt(Context context, int index, String normalizedNumber,
+      String formattedNumber, BlockingQueue<Attempt> completed) {
+    Attempt attempt = new Attempt(index, completed,
+        () -> providers.get(index).lookupNumber(context, normalizedNumber, formattedNumber));
+    executor.execute(attempt);
+    return attempt;
+  }
+
+  /** Indices of the providers, cheapest expected cost first. Ties keep the configured order. */
+  private List<Integer> getOrderedIndices() {
+    // Snapshot the costs, they may change while sorting.
+    long[] costs = new long[providers.size()];
+    List<Integer> order = new ArrayList<>();
+    for (int i = 0; i < providers.size(); i++) {
+      costs[i] = getStats(names.get(i)).getCost();
+      order.add(i);
+    }
+    Collections.sort(order, Comparator.comparingLong(i -> costs[i]));
+    return order;
+  }
+
+  private static ProviderStats getStats(String name) {
+    return STATS.computeIfAbsent(name, n -> new ProviderStats());
+  }
+
+  private static String dumpStats() {
+    StringBuilder sb = new StringBuilder();
+    for (Map.Entry<String, ProviderStats> entry : STATS.entrySet()) {
+      sb.append(entry.getKey()).append(": ").append(entry.getValue()).append('\n');
+    }
+    return sb.toString();
+  }
+
+  private class Attempt extends LookupTask<ContactInfo> {
+    final int index;
+    private final BlockingQueue<Attempt> completed;
+    private final long startMillis = SystemClock.elapsedRealtime();
+    private volatile boolean finished;
+
+    Attempt(int index, BlockingQueue<Attempt> completed,
+        Callable<ContactInfo> callable) {
+      super(callable);
+      this.index = index;
+      this.completed = completed;
+    }
+
+    @Override
+    protected void set(ContactInfo info) {
+      finished = true;
+      if (!isCancelled()) {
+        getStats(names.get(index))
+            .recordAnswer(elapsed(), info != null && !ContactInfo.EMPTY.equals(info));
+      }
+      super.set(info);
+    }
+
+    @Override
+    protected void setException(Throwable t) {
+      finished = true;
+      // Requests aborted by cancel() fail too, but are already accounted for.
+      if (!isCancelled()) {
+        getStats(names.get(index)).recordError(elapsed());
+      }
+      super.setException(t);
+    }
+
+    @Override
+    protected void done() {
+      if (!isCancelled()) {
+        completed.add(this);
+      }
+    }
+
+    /** Cancels the request, counting the time spent so far as a lower bound of its latency. */
+    void cancelIfRunning() {
+      if (!finished && cancel(true)) {
+        getStats(names.get(index)).recordCancelled(elapsed());
+      }
+    }
+
+    private long elapsed() {
+      return SystemClock.elapsedRealtime() - startMillis;
+    }
+  }
+
+  /** Latency and reliability of one provider. */
+  private static class ProviderStats {
+    /** Weight of the latest sample in the moving average of the latency. */
+    private static final double LATENCY_SMOOTHING = 0.3;
+
+    private int answers;
+    private int hits;
+    private int errors;
+    private int cancelled;
+    // Unknown providers are assumed to be as fast as the hedge delay.
+    private double averageLatencyMillis = HEDGE_DELAY_MILLIS;
+
+    synchronized void recordAnswer(long latencyMillis, boolean hit) {
+      answers++;
+      if (hit) {
+        hits++;
+      }
+      addLatency(latencyMillis);
+    }
+
+    synchronized void recordError(long latencyMillis) {
+      errors++;
+      addLatency(latencyMillis);
+    }
+
+    synchronized void recordCancelled(long elapsedMillis) {
+      cancelled++;
+      // Only penalize, a provider that was cancelled early isn't known to be fast.
+      if (elapsedMillis > averageLatencyMillis) {
+        addLatency(elapsedMillis);
+      }
+    }
+
+    /** Expected cost of asking the provider first: its latency, plus a penalty for errors. */
+    synchronized long getCost() {
+      double errorRate = (double) errors / (answers + errors + 2);
+      return Math.round(averageLatencyMillis + errorRate * TIMEOUT_MILLIS);
+    }
+
+    private void addLatency(long latencyMillis) {
+      averageLatencyMillis += LATENCY_SMOOTHING * (latencyMillis - averageLatencyMillis);
+    }
+
+    @Override
+    public synchronized String toString() {
+      return "answers: " + answers + " (with name: " + hits + "), errors: " + errors
+          + ", cancelled: " + cancelled + ", latency: " + Math.round(averageLatencyMillis)
+          + " ms";
+    }
+  }
+}
@@ -23,6 +23,7 @@ import android.net.Uri;
 import com.android.dialer.lookup.LookupUtils;
 
 import java.io.IOException;
+import java.util.regex.Pattern;
 
 public class TelefonbuchApi {
   private static final String TAG = TelefonbuchApi.class.getSimpleName();
@@ -36,6 +37,9 @@ public class TelefonbuchApi {
   private static final String NUMBER_REGEX = "<!-- phoneTo: (.*?) -->";
   private static final String ADDRESS_REGEX = "<address.*?>\n?(.*?)</address>";
   private static final String WEBSITE_REGEX = "<div.*class=\"url\">.*<a.*?href=\"(.*?)\"";
+  private static final Pattern HIDDEN_SPAN_PATTERN =
+      Pattern.compile("<span class=\"hide\".*?\\/span>");
+  private static final Pattern SPAN_WRAPPER_PATTERN = Pattern.compile("</?span.*?>");
 
   private TelefonbuchApi() {
   }
@@ -73,9 +77,9 @@ public class TelefonbuchApi {
     String result = LookupUtils.firstRegexResult(output, regex, dotall);
     if (result != null && removeSpans) {
       // completely remove hidden spans (including contents) ...
-      result = result.replaceAll("<span class=\"hide\".*?\\/span>", "");
+      result = HIDDEN_SPAN_PATTERN.matcher(result).replaceAll("");
       // ... and remove span wrappers around data content
-      result = result.replaceAll("</?span.*?>", "");
+      result = SPAN_WRAPPER_PATTERN.matcher(result).replaceAll("");
     }
     return LookupUtils.fromHtml(result);
   }
@@ -24,6 +24,8 @@ import android.content.Context;
 import android.location.Location;
 import android.provider.ContactsContract.CommonDataKinds.StructuredPostal;
 import android.provider.ContactsContract.CommonDataKinds.Website;
+import android.util.JsonReader;
+import android.util.JsonToken;
 import android.util.Log;
 
 import com.android.dialer.lookup.ContactBuilder;
@@ -31,14 +33,13 @@ import com.android.dialer.lookup.ForwardLookup;
 import com.android.dialer.lookup.LookupUtils;
 import com.android.dialer.phonenumbercache.ContactInfo;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
 
 public class OpenStreetMapForwardLookup extends ForwardLookup {
   private static final String TAG = OpenStreetMapForwardLookup.class.getSimpleName();
@@ -61,89 +62,150 @@ public class OpenStreetMapForwardLookup extends ForwardLookup {
   private static final String TAG_POSTCODE = "addr:postcode";
   private static final String TAG_WEBSITE = "website";
 
+  private static final Pattern WHITESPACE_PATTERN = Pattern.compile("\\s+");
+
   public OpenStreetMapForwardLookup(Context context) {
   }
 
   @Override
   public List<ContactInfo> lookup(Context context, String filter, Location lastLocation) {
+    List<ContactInfo> results = new ArrayList<>();
+    return lookup(context, filter, lastLocation, results::add) ? results : null;
+  }
+
+  @Override
+  public boolean lookup(Context context, String filter, Location lastLocation,
+      ResultListener listener) {
     String request = String.format(Locale.ENGLISH, LOOKUP_QUERY, filter,
         RADIUS, lastLocation.getLatitude(), lastLocation.getLongitude());
 
     try {
-      return getEntries(new JSONObject(LookupUtils.httpPost(LOOKUP_URL, null, request)));
+      LookupUtils.httpPost(LOOKUP_URL, null, request, reader -> {
+        parseEntries(new JsonReader(reader), listener);
+        return null;
+      });
+      return true;
     } catch (IOException e) {
       Log.e(TAG, "Failed to execute query", e);
-    } catch (JSONException e) {
+    } catch (IllegalStateException e) {
       Log.e(TAG, "JSON error", e);
     }
 
-    return null;
+    return false;
   }
 
-  private List<ContactInfo> getEntries(JSONObject results) throws JSONException {
-    ArrayList<ContactInfo> details = new ArrayList<>();
-    JSONArray elements = results.getJSONArray(RESULT_ELEMENTS);
-
-    for (int i = 0; i < elements.length(); i++) {
-      try {
-        JSONObject element = elements.getJSONObject(i);
-        JSONObject tags = element.getJSONObject(RESULT_TAGS);
+  @Override
+  public boolean matchesNameSubstring() {
+    // The query matches names case insensitively and isn't limited in the number of results.
+    return true;
+  }
 
-        String displayName = tags.getString(TAG_NAME);
-        String phoneNumber = tags.getString(TAG_PHONE);
+  /**
+   * Parses the elements of the response as they arrive, stopping as soon as the listener doesn't
+   * want any more results.
+   */
+  private static void parseEntries(JsonReader reader, ResultListener listener)
+      throws IOException {
+    reader.beginObject();
+    while (reader.hasNext()) {
+      if (!RESULT_ELEMENTS.equals(reader.nextName())) {
+        reader.skipValue();
+        continue;
+      }
 
-        // Take the first number if there are multiple
-        if (phoneNumber.contains(";")) {
-          phoneNumber = phoneNumber.split(";")[0];
-          phoneNumber = phoneNumber.trim();
+      reader.beginArray();
+      for (int i = 0; reader.hasNext(); i++) {
+        Map<String, String> tags = parseTags(reader);
+        String displayName = tags.get(TAG_NAME);
+        String phoneNumber = tags.get(TAG_PHONE);
+        if (displayName == null || phoneNumber == null) {
+          Log.e(TAG, "Skipping the suggestions at index " + i + ", name or phone missing");
+          continue;
         }
-
-        // The address is split
-        String addressHouseNumber = tags.optString(TAG_HOUSENUMBER, null);
-        String addressStreet = tags.optString(TAG_STREET, null);
-        String addressCity = tags.optString(TAG_CITY, null);
-        String addressPostCode = tags.optString(TAG_POSTCODE, null);
-
-        String address = String.format("%s %s, %s %s",
-            addressHouseNumber != null ? addressHouseNumber : "",
-            addressStreet != null ? addressStreet : "",
-            addressCity != null ? addressCity : "",
-            addressPostCode != null ? addressPostCode : "");
-
-        address = address.trim().replaceAll("\\s+", " ");
-        if (address.isEmpty()) {
-            address = null;
+        if (!listener.onResult(buildContactInfo(displayName, phoneNumber, tags))) {
+          // The rest of the response isn't needed.
+          return;
         }
+      }
+      reader.endArray();
+    }
+    reader.endObject();
+  }
 
-        ContactBuilder builder = ContactBuilder.forForwardLookup(phoneNumber)
-            .setName(ContactBuilder.Name.createDisplayName(displayName))
-            .addPhoneNumber(ContactBuilder.PhoneNumber.createMainNumber(phoneNumber))
-            .setPhotoUri(ContactBuilder.PHOTO_URI_BUSINESS);
-
-        if (address != null) {
-            ContactBuilder.Address a = new ContactBuilder.Address();
-            a.formattedAddress = address;
-            a.city = addressCity;
-            a.street = addressStreet;
-            a.postCode = addressPostCode;
-            a.type = StructuredPostal.TYPE_WORK;
-            builder.addAddress(a);
-        }
+  /** Returns the tags of an element, skipping everything else about it. */
+  private static Map<String, String> parseTags(JsonReader reader) throws IOException {
+    Map<String, String> tags = new HashMap<>();
+    reader.beginObject();
+    while (reader.hasNext()) {
+      if (!RESULT_TAGS.equals(reader.nextName())) {
+        reader.skipValue();
+        continue;
+      }
 
-        String website = tags.optString(TAG_WEBSITE, null);
-        if (website != null) {
-            ContactBuilder.WebsiteUrl w = new ContactBuilder.WebsiteUrl();
-            w.url = website;
-            w.type = Website.TYPE_HOMEPAGE;
-            builder.addWebsite(w);
+      reader.beginObject();
+      while (reader.hasNext()) {
+        String name = reader.nextName();
+        JsonToken token = reader.peek();
+        if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+          tags.put(name, reader.nextString());
+        } else {
+          reader.skipValue();
         }
-
-        details.add(builder.build());
-      } catch (JSONException e) {
-        Log.e(TAG, "Skipping the suggestions at index " + i, e);
       }
+      reader.endObject();
+    }
+    reader.endObject();
+    return tags;
+  }
+
+  private static ContactInfo buildContactInfo(String displayName, String phoneNumber,
+      Map<String, String> tags) {
+    // Take the first number if there are multiple
+    if (phoneNumber.contains(";")) {
+      phoneNumber = phoneNumber.split(";")[0];
+      phoneNumber = phoneNumber.trim();
+    }
+
+    // The address is split
+    String addressHouseNumber = tags.get(TAG_HOUSENUMBER);
+    String addressStreet = tags.get(TAG_STREET);
+    String addressCity = tags.get(TAG_CITY);
+    String addressPostCode = tags.get(TAG_POSTCODE);
+
+    String address = String.format("%s %s, %s %s",
+        addressHouseNumber != null ? addressHouseNumber : "",
+        addressStreet != null ? addressStreet : "",
+        addressCity != null ? addressCity : "",
+        addressPostCode != null ? addressPostCode : "");
+
+    address = WHITESPACE_PATTERN.matcher(address.trim()).replaceAll(" ");
+    if (address.isEmpty()) {
+        address = null;
+    }
+
+    ContactBuilder builder = ContactBuilder.forForwardLookup(phoneNumber)
+        .setName(ContactBuilder.Name.createDisplayName(displayName))
+        .addPhoneNumber(ContactBuilder.PhoneNumber.createMainNumber(phoneNumber))
+        .setPhotoUri(ContactBuilder.PHOTO_URI_BUSINESS);
+
+    if (address != null) {
+        ContactBuilder.Address a = new ContactBuilder.Address();
+        a.formattedAddress = address;
+        a.city = addressCity;
+        a.street = addressStreet;
+        a.postCode = addressPostCode;
+        a.type = StructuredPostal.TYPE_WORK;
+        builder.addAddress(a);
+    }
+
+    String website = tags.get(TAG_WEBSITE);
+    if (website != null) {
+        ContactBuilder.WebsiteUrl w = new ContactBuilder.WebsiteUrl();
+        w.url = website;
+        w.type = Website.TYPE_HOMEPAGE;
+        builder.addWebsite(w);
     }
 
-    return details;
+    return builder.build();
   }
 }
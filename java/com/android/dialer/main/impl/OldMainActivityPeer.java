@@ -721,7 +721,7 @@ public class OldMainActivityPeer implements MainActivityPeer, FragmentUtilListen
                 "voicemailStatusObserver.onChange selfChange:%b",
                 selfChange);
             super.onChange(selfChange);
-            callLogQueryHandler.fetchVoicemailStatus();
+            callLogQueryHandler.requestRefresh(CallLogQueryHandler.QUERY_VOICEMAIL_STATUS);
           }
         };
 
@@ -756,8 +756,9 @@ public class OldMainActivityPeer implements MainActivityPeer, FragmentUtilListen
 
     @Override
     public void updateTabUnreadCounts() {
-      callLogQueryHandler.fetchMissedCallsUnreadCount();
-      callLogQueryHandler.fetchVoicemailUnreadCount();
+      callLogQueryHandler.requestRefresh(
+          CallLogQueryHandler.QUERY_MISSED_CALLS_UNREAD_COUNT
+              | CallLogQueryHandler.QUERY_VOICEMAIL_UNREAD_COUNT);
     }
 
     @Override
@@ -785,7 +786,7 @@ public class OldMainActivityPeer implements MainActivityPeer, FragmentUtilListen
 
       if (hasActiveVoicemailProvider) {
         bottomNavBar.showVoicemail(true);
-        callLogQueryHandler.fetchVoicemailUnreadCount();
+        callLogQueryHandler.requestRefresh(CallLogQueryHandler.QUERY_VOICEMAIL_UNREAD_COUNT);
       } else {
         bottomNavBar.showVoicemail(false);
       }
@@ -862,8 +863,9 @@ public class OldMainActivityPeer implements MainActivityPeer, FragmentUtilListen
       activityIsAlive = true;
       registerVoicemailStatusContentObserver(context);
       // TODO(a bug): Don't use callLogQueryHandler
-      callLogQueryHandler.fetchVoicemailStatus();
-      callLogQueryHandler.fetchMissedCallsUnreadCount();
+      callLogQueryHandler.requestRefresh(
+          CallLogQueryHandler.QUERY_VOICEMAIL_STATUS
+              | CallLogQueryHandler.QUERY_MISSED_CALLS_UNREAD_COUNT);
       // Reset the tab on resume to restart the timer
       setCurrentTab(bottomNavBar.getSelectedTab());
     }
@@ -871,6 +873,8 @@ public class OldMainActivityPeer implements MainActivityPeer, FragmentUtilListen
     /** Should be called when {@link AppCompatActivity#onStop()} is called. */
     public void onActivityStop(boolean changingConfigurations, boolean keyguardLocked) {
       context.getContentResolver().unregisterContentObserver(voicemailStatusObserver);
+      // Refreshed again on resume.
+      callLogQueryHandler.cancelRefresh();
       activityIsAlive = false;
       if (viewedCallLogTabPastTimeThreshold()
           && !changingConfigurations
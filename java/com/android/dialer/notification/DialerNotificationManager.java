@@ -31,7 +31,9 @@ import com.android.dialer.common.Assert;
 import com.android.dialer.common.LogUtil;
 
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.function.Function;
 
 /**
  * Wrapper around the notification manager APIs. The wrapper ensures that channels are set and that
@@ -39,7 +41,8 @@ import java.util.Set;
  */
 public final class DialerNotificationManager {
 
-  private static final Set<StatusBarNotification> throttledNotificationSet = new HashSet<>();
+  /** Tags of the notifications cancelled or left out by throttling, so they aren't reposted. */
+  private static final Set<String> throttledNotificationTags = new HashSet<>();
 
   public static void notify(@NonNull Context context, int id, @NonNull Notification notification) {
     Assert.isNotNull(context);
@@ -55,7 +58,44 @@ public final class DialerNotificationManager {
     Assert.checkArgument(!TextUtils.isEmpty(notification.getChannelId()));
 
     getNotificationManager(context).notify(tag, id, notification);
-    throttledNotificationSet.addAll(NotificationThrottler.throttle(context, notification));
+    for (StatusBarNotification throttled : NotificationThrottler.throttle(context, notification)) {
+      throttledNotificationTags.add(throttled.getTag());
+    }
+  }
+
+  /**
+   * Posts several notifications to a group in one pass. The group is throttled once up front
+   * instead of after every notification, and notifications that throttling would cancel right away
+   * are neither built nor posted.
+   *
+   * @param activeNotifications the active notifications, as returned by {@link
+   *     #getActiveNotifications(Context)}
+   * @param tags the tags of the notifications, in the order they would be posted one by one
+   * @param notificationForTag builds the notification for a tag, in the given group
+   */
+  public static void notifyAll(
+      @NonNull Context context,
+      @NonNull StatusBarNotification[] activeNotifications,
+      @NonNull String groupKey,
+      int id,
+      @NonNull List<String> tags,
+      @NonNull Function<String, Notification> notificationForTag) {
+    Assert.isNotNull(context);
+    Set<String> throttledTags =
+        NotificationThrottler.throttle(context, activeNotifications, groupKey, tags);
+    throttledNotificationTags.addAll(throttledTags);
+
+    NotificationManager notificationManager = getNotificationManager(context);
+    for (String tag : tags) {
+      if (throttledTags.contains(tag)) {
+        continue;
+      }
+      Assert.checkArgument(!TextUtils.isEmpty(tag));
+      Notification notification = notificationForTag.apply(tag);
+      Assert.checkArgument(!TextUtils.isEmpty(notification.getChannelId()));
+      Assert.checkArgument(TextUtils.equals(groupKey, notification.getGroup()));
+      notificationManager.notify(tag, id, notification);
+    }
   }
 
   public static void cancel(@NonNull Context context, int id) {
@@ -136,8 +176,8 @@ public final class DialerNotificationManager {
     return context.getSystemService(NotificationManager.class);
   }
 
-  public static Set<StatusBarNotification> getThrottledNotificationSet() {
-    return throttledNotificationSet;
+  public static Set<String> getThrottledNotificationTags() {
+    return throttledNotificationTags;
   }
 
   private DialerNotificationManager() {}
@@ -71,22 +71,12 @@ class NotificationThrottler {
 
     NotificationManager notificationManager = context.getSystemService(NotificationManager.class);
     StatusBarNotification[] activeNotifications = notificationManager.getActiveNotifications();
-    if (activeNotifications.length > HIGH_GLOBAL_NOTIFICATION_COUNT
-        && !didLogHighGlobalNotificationCountReached) {
-      LogUtil.i(
-          "NotificationThrottler.throttle",
-          "app has %d notifications, system may suppress future notifications",
-          activeNotifications.length);
-      didLogHighGlobalNotificationCountReached = true;
-    }
+    logIfHighGlobalNotificationCount(activeNotifications);
 
     // Count the number of notificatons for this group (excluding the summary).
-    int count = 0;
-    for (StatusBarNotification currentNotification : activeNotifications) {
-      if (isNotificationInGroup(currentNotification, groupKey)) {
-        count++;
-      }
-    }
+    List<StatusBarNotification> notifications =
+        getSortedMatchingNotifications(activeNotifications, groupKey);
+    int count = notifications.size();
 
     if (count > MAX_NOTIFICATIONS_PER_TAG) {
       LogUtil.i(
@@ -95,7 +85,6 @@ class NotificationThrottler {
           groupKey,
           count,
           MAX_NOTIFICATIONS_PER_TAG);
-      List<StatusBarNotification> notifications = getSortedMatchingNotifications(context, groupKey);
       for (int i = 0; i < (count - MAX_NOTIFICATIONS_PER_TAG); i++) {
         notificationManager.cancel(notifications.get(i).getTag(), notifications.get(i).getId());
         throttledNotificationSet.add(notifications.get(i));
@@ -104,11 +93,72 @@ class NotificationThrottler {
     return throttledNotificationSet;
   }
 
-  private static List<StatusBarNotification> getSortedMatchingNotifications(
-      @NonNull Context context, @NonNull String groupKey) {
+  /**
+   * Throttles a group before posting several notifications to it, with the same result as posting
+   * them one by one in the given order and throttling after each. Active notifications in the group
+   * are cancelled oldest first, then the new notifications that would be cancelled right after
+   * being posted are left out.
+   *
+   * @param activeNotifications the active notifications, queried once by the caller
+   * @param tags the tags of the new notifications, in the order they would be posted
+   * @return the tags of the cancelled and of the left out notifications
+   */
+  static Set<String> throttle(
+      @NonNull Context context,
+      @NonNull StatusBarNotification[] activeNotifications,
+      @NonNull String groupKey,
+      @NonNull List<String> tags) {
+    Assert.isNotNull(context);
+    Set<String> throttledTags = new HashSet<>();
+    logIfHighGlobalNotificationCount(activeNotifications);
+
+    // Notifications with the tag of a new notification are replaced by it, not added to.
     List<StatusBarNotification> notifications = new ArrayList<>();
+    for (StatusBarNotification notification :
+        getSortedMatchingNotifications(activeNotifications, groupKey)) {
+      if (!tags.contains(notification.getTag())) {
+        notifications.add(notification);
+      }
+    }
+    int excess = notifications.size() + tags.size() - MAX_NOTIFICATIONS_PER_TAG;
+    if (excess <= 0) {
+      return throttledTags;
+    }
+    LogUtil.i(
+        "NotificationThrottler.throttle",
+        "groupKey: %s is over limit, active: %d, new: %d, limit: %d",
+        groupKey,
+        notifications.size(),
+        tags.size(),
+        MAX_NOTIFICATIONS_PER_TAG);
+
     NotificationManager notificationManager = context.getSystemService(NotificationManager.class);
-    for (StatusBarNotification notification : notificationManager.getActiveNotifications()) {
+    for (int i = 0; i < excess && i < notifications.size(); i++) {
+      notificationManager.cancel(notifications.get(i).getTag(), notifications.get(i).getId());
+      throttledTags.add(notifications.get(i).getTag());
+    }
+    for (int i = 0; i < excess - notifications.size(); i++) {
+      throttledTags.add(tags.get(i));
+    }
+    return throttledTags;
+  }
+
+  private static void logIfHighGlobalNotificationCount(
+      @NonNull StatusBarNotification[] activeNotifications) {
+    if (activeNotifications.length > HIGH_GLOBAL_NOTIFICATION_COUNT
+        && !didLogHighGlobalNotificationCountReached) {
+      LogUtil.i(
+          "NotificationThrottler.throttle",
+          "app has %d notifications, system may suppress future notifications",
+          activeNotifications.length);
+      didLogHighGlobalNotificationCountReached = true;
+    }
+  }
+
+  private static List<StatusBarNotification> getSortedMatchingNotifications(
+      @NonNull StatusBarNotification[] activeNotifications, @NonNull String groupKey) {
+    List<StatusBarNotification> notifications = new ArrayList<>();
+    for (StatusBarNotification notification : activeNotifications) {
       if (isNotificationInGroup(notification, groupKey)) {
         notifications.add(notification);
       }
@@ -18,7 +18,6 @@
 package com.android.dialer.phonelookup.blockednumber;
 
 import android.content.Context;
-import android.database.Cursor;
 import android.provider.BlockedNumberContract.BlockedNumbers;
 import android.util.ArraySet;
 
@@ -26,11 +25,11 @@ import androidx.annotation.NonNull;
 import androidx.annotation.WorkerThread;
 
 import com.android.dialer.DialerPhoneNumber;
+import com.android.dialer.blocking.BlockedNumberMirror;
 import com.android.dialer.calllog.observer.MarkDirtyObserver;
 import com.android.dialer.common.Assert;
 import com.android.dialer.common.LogUtil;
 import com.android.dialer.common.concurrent.Annotations.BackgroundExecutor;
-import com.android.dialer.common.database.Selection;
 import com.android.dialer.inject.ApplicationContext;
 import com.android.dialer.phonelookup.PhoneLookup;
 import com.android.dialer.phonelookup.PhoneLookupInfo;
@@ -95,39 +94,39 @@ public class SystemBlockedNumberPhoneLookup implements PhoneLookup<SystemBlocked
 
     Set<DialerPhoneNumber> blockedNumbers = new ArraySet<>();
 
-    Selection normalizedSelection =
-        Selection.column(BlockedNumbers.COLUMN_E164_NUMBER)
-            .in(partitionedNumbers.validE164Numbers());
-    try (Cursor cursor =
-        appContext
-            .getContentResolver()
-            .query(
-                BlockedNumbers.CONTENT_URI,
-                new String[] {BlockedNumbers.COLUMN_E164_NUMBER},
-                normalizedSelection.getSelection(),
-                normalizedSelection.getSelectionArgs(),
-                null)) {
-      while (cursor != null && cursor.moveToNext()) {
-        blockedNumbers.addAll(
-            partitionedNumbers.dialerPhoneNumbersForValidE164(cursor.getString(0)));
+    // Look the numbers up in memory if possible, otherwise query the provider.
+    BlockedNumberMirror.Snapshot snapshot =
+        BlockedNumberMirror.getInstance(appContext).loadSnapshot();
+    Set<String> blockedE164Numbers;
+    Set<String> blockedInvalidNumbers;
+    if (snapshot != null) {
+      blockedE164Numbers = new ArraySet<>();
+      for (String e164Number : partitionedNumbers.validE164Numbers()) {
+        if (snapshot.isE164Blocked(e164Number)) {
+          blockedE164Numbers.add(e164Number);
+        }
       }
-    }
-
-    Selection rawSelection =
-        Selection.column(BlockedNumbers.COLUMN_ORIGINAL_NUMBER)
-            .in(partitionedNumbers.invalidNumbers());
-    try (Cursor cursor =
-        appContext
-            .getContentResolver()
-            .query(
-                BlockedNumbers.CONTENT_URI,
-                new String[] {BlockedNumbers.COLUMN_ORIGINAL_NUMBER},
-                rawSelection.getSelection(),
-                rawSelection.getSelectionArgs(),
-                null)) {
-      while (cursor != null && cursor.moveToNext()) {
-        blockedNumbers.addAll(partitionedNumbers.dialerPhoneNumbersForInvalid(cursor.getString(0)));
+      blockedInvalidNumbers = new ArraySet<>();
+      for (String number : partitionedNumbers.invalidNumbers()) {
+        if (snapshot.isOriginalBlocked(number)) {
+          blockedInvalidNumbers.add(number);
+        }
       }
+    } else {
+      blockedE164Numbers =
+          BlockedNumberMirror.queryBlockedNumbers(
+              appContext, BlockedNumbers.COLUMN_E164_NUMBER, partitionedNumbers.validE164Numbers());
+      blockedInvalidNumbers =
+          BlockedNumberMirror.queryBlockedNumbers(
+              appContext,
+              BlockedNumbers.COLUMN_ORIGINAL_NUMBER,
+              partitionedNumbers.invalidNumbers());
+    }
+    for (String e164Number : blockedE164Numbers) {
+      blockedNumbers.addAll(partitionedNumbers.dialerPhoneNumbersForValidE164(e164Number));
+    }
+    for (String number : blockedInvalidNumbers) {
+      blockedNumbers.addAll(partitionedNumbers.dialerPhoneNumbersForInvalid(number));
     }
 
     ImmutableMap.Builder<DialerPhoneNumber, SystemBlockedNumberInfo> result =
@@ -0,0 +1,160 @@
+/*
+ * SPDX-FileCopyrightText: The LineageOS Project
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.android.dialer.phonelookup.spam;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.annotation.WorkerThread;
+
+import com.android.dialer.DialerPhoneNumber;
+import com.android.dialer.common.Assert;
+import com.android.dialer.common.LogUtil;
+import com.android.dialer.common.concurrent.Annotations.BackgroundExecutor;
+import com.android.dialer.inject.ApplicationContext;
+import com.android.dialer.phonelookup.PhoneLookup;
+import com.android.dialer.phonelookup.PhoneLookupInfo;
+import com.android.dialer.phonelookup.PhoneLookupInfo.SpamInfo;
+import com.android.dialer.phonenumberproto.PartitionedNumbers;
+import com.android.dialer.spam.Spam;
+import com.android.dialer.spam.SpamDatabase;
+import com.android.dialer.storage.Unencrypted;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+import java.util.Map;
+
+import javax.inject.Inject;
+
+/**
+ * Looks numbers up in the offline {@link SpamDatabase}.
+ *
+ * <p>All numbers of the call log are looked up in one pass over the database. They only need to be
+ * looked up again when a new version of the database was provisioned.
+ */
+public class SpamPhoneLookup implements PhoneLookup<SpamInfo> {
+
+  private static final String PREF_LAST_DATA_VERSION_PROCESSED =
+      "spamPhoneLookupLastDataVersionProcessed";
+
+  private final Context appContext;
+  private final SharedPreferences sharedPreferences;
+  private final ListeningExecutorService backgroundExecutorService;
+
+  /** The data version used by the last call to {@link #getMostRecentInfo(ImmutableMap)}. */
+  private volatile long currentDataVersion;
+
+  @Inject
+  SpamPhoneLookup(
+      @ApplicationContext Context appContext,
+      @Unencrypted SharedPreferences sharedPreferences,
+      @BackgroundExecutor ListeningExecutorService backgroundExecutorService) {
+    this.appContext = appContext;
+    this.sharedPreferences = sharedPreferences;
+    this.backgroundExecutorService = backgroundExecutorService;
+  }
+
+  @Override
+  public ListenableFuture<SpamInfo> lookup(DialerPhoneNumber number) {
+    return backgroundExecutorService.submit(
+        () -> queryNumbers(ImmutableSet.of(number)).get(number));
+  }
+
+  @Override
+  public ListenableFuture<Boolean> isDirty(ImmutableSet<DialerPhoneNumber> phoneNumbers) {
+    return backgroundExecutorService.submit(
+        () ->
+            SpamDatabase.getInstance(appContext).getDataVersion()
+                != sharedPreferences.getLong(PREF_LAST_DATA_VERSION_PROCESSED, 0L));
+  }
+
+  @Override
+  public ListenableFuture<ImmutableMap<DialerPhoneNumber, SpamInfo>> getMostRecentInfo(
+      ImmutableMap<DialerPhoneNumber, SpamInfo> existingInfoMap) {
+    LogUtil.enterBlock("SpamPhoneLookup.getMostRecentInfo");
+    return backgroundExecutorService.submit(
+        () -> {
+          currentDataVersion = SpamDatabase.getInstance(appContext).getDataVersion();
+          return queryNumbers(existingInfoMap.keySet());
+        });
+  }
+
+  @WorkerThread
+  private ImmutableMap<DialerPhoneNumber, SpamInfo> queryNumbers(
+      ImmutableSet<DialerPhoneNumber> numbers) {
+    Assert.isWorkerThread();
+    PartitionedNumbers partitionedNumbers = new PartitionedNumbers(numbers);
+    Map<String, Integer> scores =
+        SpamDatabase.getInstance(appContext).getScores(partitionedNumbers.validE164Numbers());
+
+    ImmutableMap.Builder<DialerPhoneNumber, SpamInfo> result = ImmutableMap.builder();
+    for (String e164Number : partitionedNumbers.validE164Numbers()) {
+      Integer score = scores.get(e164Number);
+      SpamInfo spamInfo =
+          SpamInfo.newBuilder().setIsSpam(score != null && Spam.isSpamScore(score)).build();
+      for (DialerPhoneNumber number :
+          partitionedNumbers.dialerPhoneNumbersForValidE164(e164Number)) {
+        result.put(number, spamInfo);
+      }
+    }
+    // Numbers which aren't valid have no reputation.
+    for (String number : partitionedNumbers.invalidNumbers()) {
+      for (DialerPhoneNumber dialerPhoneNumber :
+          partitionedNumbers.dialerPhoneNumbersForInvalid(number)) {
+        result.put(dialerPhoneNumber, SpamInfo.getDefaultInstance());
+      }
+    }
+    return result.build();
+  }
+
+  @Override
+  public void setSubMessage(PhoneLookupInfo.Builder destination, SpamInfo subMessage) {
+    destination.setSpamInfo(subMessage);
+  }
+
+  @Override
+  public SpamInfo getSubMessage(PhoneLookupInfo phoneLookupInfo) {
+    return phoneLookupInfo.getSpamInfo();
+  }
+
+  @Override
+  public ListenableFuture<Void> onSuccessfulBulkUpdate() {
+    return backgroundExecutorService.submit(
+        () -> {
+          sharedPreferences
+              .edit()
+              .putLong(PREF_LAST_DATA_VERSION_PROCESSED, currentDataVersion)
+              .apply();
+          return null;
+        });
+  }
+
+  @Override
+  public void registerContentObservers() {
+    // A new database has a new data version, which isDirty() checks.
+  }
+
+  @Override
+  public void unregisterContentObservers() {
+    // Nothing to be done as no content observer is registered.
+  }
+
+  @Override
+  public ListenableFuture<Void> clearData() {
+    return backgroundExecutorService.submit(
+        () -> {
+          sharedPreferences.edit().remove(PREF_LAST_DATA_VERSION_PROCESSED).apply();
+          return null;
+        });
+  }
+
+  @Override
+  public String getLoggingName() {
+    return "SpamPhoneLookup";
+  }
+}
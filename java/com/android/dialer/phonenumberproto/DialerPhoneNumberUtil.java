@@ -18,6 +18,8 @@ package com.android.dialer.phonenumberproto;
 
 import android.telephony.PhoneNumberUtils;
 import android.text.TextUtils;
+import android.util.LruCache;
+import android.util.Pair;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -26,6 +28,7 @@ import androidx.annotation.WorkerThread;
 import com.android.dialer.DialerPhoneNumber;
 import com.android.dialer.common.Assert;
 import com.android.dialer.common.LogUtil;
+import com.google.common.collect.ImmutableMap;
 import com.google.i18n.phonenumbers.NumberParseException;
 import com.google.i18n.phonenumbers.PhoneNumberUtil;
 import com.google.i18n.phonenumbers.PhoneNumberUtil.MatchType;
@@ -33,13 +36,26 @@ import com.google.i18n.phonenumbers.PhoneNumberUtil.PhoneNumberFormat;
 import com.google.i18n.phonenumbers.Phonenumber.PhoneNumber;
 import com.google.i18n.phonenumbers.ShortNumberInfo;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Wrapper for selected methods in {@link PhoneNumberUtil} which uses the {@link DialerPhoneNumber}
  * lite proto instead of the {@link com.google.i18n.phonenumbers.Phonenumber.PhoneNumber} POJO.
  *
  * <p>All methods should be called on a worker thread.
+ *
+ * <p>Parsed numbers are cached across instances, as the same few numbers tend to be parsed over and
+ * over, e.g. for every call log row of a frequent contact.
  */
 public class DialerPhoneNumberUtil {
+  private static final int PARSE_CACHE_SIZE = 256;
+
+  /** Parsed numbers, keyed by raw number and default region. Thread safe. */
+  private static final LruCache<Pair<String, String>, DialerPhoneNumber> parseCache =
+      new LruCache<>(PARSE_CACHE_SIZE);
+
   private final PhoneNumberUtil phoneNumberUtil;
   private final ShortNumberInfo shortNumberInfo;
 
@@ -59,6 +75,50 @@ public class DialerPhoneNumberUtil {
   public DialerPhoneNumber parse(@Nullable String numberToParse, @Nullable String defaultRegion) {
     Assert.isWorkerThread();
 
+    if (numberToParse == null) {
+      return parseUncached(null, defaultRegion);
+    }
+
+    Pair<String, String> key = Pair.create(numberToParse, defaultRegion);
+    DialerPhoneNumber dialerPhoneNumber = parseCache.get(key);
+    if (dialerPhoneNumber == null) {
+      // Racing threads may both parse the number, which is harmless.
+      dialerPhoneNumber = parseUncached(numberToParse, defaultRegion);
+      parseCache.put(key, dialerPhoneNumber);
+    }
+    return dialerPhoneNumber;
+  }
+
+  /**
+   * Parses the provided raw phone numbers, each with its default region, parsing each distinct pair
+   * only once.
+   *
+   * @param numbersToParse pairs of raw number and default region; the raw numbers may not be null
+   * @return the parsed numbers, keyed by the distinct pairs
+   * @see #parse(String, String)
+   */
+  @WorkerThread
+  public ImmutableMap<Pair<String, String>, DialerPhoneNumber> parseAll(
+      @NonNull Collection<Pair<String, String>> numbersToParse) {
+    Assert.isWorkerThread();
+
+    Map<Pair<String, String>, DialerPhoneNumber> parsedNumbers = new HashMap<>();
+    for (Pair<String, String> numberToParse : numbersToParse) {
+      if (!parsedNumbers.containsKey(numberToParse)) {
+        parsedNumbers.put(
+            numberToParse, parse(Assert.isNotNull(numberToParse.first), numberToParse.second));
+      }
+    }
+    return ImmutableMap.copyOf(parsedNumbers);
+  }
+
+  /** Returns the hit and miss counts of the cache used by {@link #parse(String, String)}. */
+  public static String getParseCacheStats() {
+    return parseCache.toString();
+  }
+
+  private DialerPhoneNumber parseUncached(
+      @Nullable String numberToParse, @Nullable String defaultRegion) {
     DialerPhoneNumber.Builder dialerPhoneNumber = DialerPhoneNumber.newBuilder();
 
     if (defaultRegion != null) {
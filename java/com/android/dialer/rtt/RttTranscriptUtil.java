@@ -19,6 +19,7 @@ package com.android.dialer.rtt;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
 
 import androidx.annotation.WorkerThread;
 
@@ -125,8 +126,12 @@ public final class RttTranscriptUtil {
     ContentValues value = new ContentValues();
     value.put(RttTranscriptColumn.TRANSCRIPT_ID, rttTranscript.getId());
     value.put(RttTranscriptColumn.TRANSCRIPT_DATA, rttTranscript.toByteArray());
+    // Transcripts are snapshotted periodically during the call, replace the previous snapshot.
     long id =
-        databaseHelper.getWritableDatabase().insert(RttTranscriptDatabaseHelper.TABLE, null, value);
+        databaseHelper
+            .getWritableDatabase()
+            .insertWithOnConflict(
+                RttTranscriptDatabaseHelper.TABLE, null, value, SQLiteDatabase.CONFLICT_REPLACE);
     databaseHelper.close();
     if (id < 0) {
       throw new RuntimeException("Failed to save RTT transcript");
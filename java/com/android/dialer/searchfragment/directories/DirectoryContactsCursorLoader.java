@@ -21,24 +21,43 @@ import android.content.Context;
 import android.database.Cursor;
 import android.database.MatrixCursor;
 import android.net.Uri;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+import android.os.SystemClock;
 import android.provider.ContactsContract;
 import android.provider.ContactsContract.CommonDataKinds.Phone;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
 import androidx.loader.content.CursorLoader;
 
+import com.android.dialer.common.LogUtil;
+import com.android.dialer.common.concurrent.DialerExecutorComponent;
+import com.android.dialer.common.concurrent.ThreadUtil;
 import com.android.dialer.common.cp2.DirectoryUtils;
 import com.android.dialer.searchfragment.common.Projections;
 import com.android.dialer.searchfragment.directories.DirectoriesCursorLoader.Directory;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.concurrent.GuardedBy;
 
 /**
  * Cursor loader to load extended contacts on device.
  *
- * <p>This loader performs several database queries in serial and merges the resulting cursors
- * together into {@link DirectoryContactsCursor}. If there are no results, the loader will return a
+ * <p>This loader queries all remote and enterprise directories in parallel and merges the resulting
+ * cursors together into {@link DirectoryContactsCursor}. Each time a directory answers, the results
+ * so far are delivered, so a slow directory doesn't hold back the others. Directories that don't
+ * answer within {@link #DIRECTORY_QUERY_TIMEOUT_MILLIS} are skipped, and all queries are cancelled
+ * when the loader is restarted for a new query. If there are no results, the loader will return a
  * null cursor.
  */
 public final class DirectoryContactsCursorLoader extends CursorLoader {
@@ -50,9 +69,19 @@ public final class DirectoryContactsCursorLoader extends CursorLoader {
   private static final String PHONE_NUMBER_NOT_NULL = Phone.NUMBER + " IS NOT NULL";
   private static final String MAX_RESULTS = "10";
 
+  /** How long to wait for a single directory before giving up on it. */
+  private static final long DIRECTORY_QUERY_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
   private final String query;
   private final List<Directory> directories;
-  private final Cursor[] cursors;
+  private final Executor executor;
+  private final Object lock = new Object();
+
+  @GuardedBy("lock")
+  private final List<CancellationSignal> cancellationSignals = new ArrayList<>();
+
+  @GuardedBy("lock")
+  private boolean cancelled;
 
   public DirectoryContactsCursorLoader(Context context, String query, List<Directory> directories) {
     super(
@@ -64,26 +93,103 @@ public final class DirectoryContactsCursorLoader extends CursorLoader {
         Phone.SORT_KEY_PRIMARY);
     this.query = query;
     this.directories = new ArrayList<>(directories);
-    cursors = new Cursor[directories.size()];
+    this.executor = DialerExecutorComponent.get(context).lowPriorityThreadPool();
   }
 
   @Override
   public Cursor loadInBackground() {
+    synchronized (lock) {
+      cancelled = false;
+      cancellationSignals.clear();
+    }
+    ExecutorCompletionService<DirectoryResult> completionService =
+        new ExecutorCompletionService<>(executor);
+    List<Future<DirectoryResult>> futures = new ArrayList<>();
     for (int i = 0; i < directories.size(); i++) {
       Directory directory = directories.get(i);
 
       if (!ContactsContract.Directory.isRemoteDirectoryId(directory.getId())
           && !ContactsContract.Directory.isEnterpriseDirectoryId(directory.getId())) {
-        cursors[i] = null;
         continue;
       }
 
       // Filter out invisible directories.
       if (DirectoryUtils.isInvisibleDirectoryId(directory.getId())) {
-        cursors[i] = null;
         continue;
       }
 
+      int index = i;
+      futures.add(completionService.submit(() -> queryDirectory(index)));
+    }
+
+    // Rows of each directory, indexed like directories. Null until the directory answered.
+    List<List<Object[]>> rows = new ArrayList<>(Collections.nCopies(directories.size(), null));
+    long deadlineMillis = SystemClock.elapsedRealtime() + DIRECTORY_QUERY_TIMEOUT_MILLIS;
+    try {
+      for (int remaining = futures.size(); remaining > 0; remaining--) {
+        long timeoutMillis = deadlineMillis - SystemClock.elapsedRealtime();
+        Future<DirectoryResult> future =
+            completionService.poll(Math.max(timeoutMillis, 0), TimeUnit.MILLISECONDS);
+        if (future == null) {
+          LogUtil.i(
+              "DirectoryContactsCursorLoader.loadInBackground",
+              "%d directories timed out",
+              remaining);
+          break;
+        }
+        DirectoryResult result = getResult(future);
+        if (result == null || result.rows.isEmpty()) {
+          continue;
+        }
+        rows.set(result.index, result.rows);
+        if (remaining > 1) {
+          deliverPartialResult(rows);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      // Stop directories which didn't answer in time.
+      for (Future<DirectoryResult> future : futures) {
+        future.cancel(true);
+      }
+      cancelQueries();
+    }
+    if (isLoadInBackgroundCanceled()) {
+      throw new OperationCanceledException();
+    }
+    return createCursor(rows);
+  }
+
+  @Override
+  public void cancelLoadInBackground() {
+    super.cancelLoadInBackground();
+    cancelQueries();
+  }
+
+  private void cancelQueries() {
+    synchronized (lock) {
+      cancelled = true;
+      for (CancellationSignal signal : cancellationSignals) {
+        signal.cancel();
+      }
+      cancellationSignals.clear();
+    }
+  }
+
+  @WorkerThread
+  @Nullable
+  private DirectoryResult queryDirectory(int index) {
+    Directory directory = directories.get(index);
+    CancellationSignal cancellationSignal = new CancellationSignal();
+    synchronized (lock) {
+      if (cancelled) {
+        return null;
+      }
+      cancellationSignals.add(cancellationSignal);
+    }
+    long startTimeMillis = SystemClock.elapsedRealtime();
+    try {
       Cursor cursor =
           getContext()
               .getContentResolver()
@@ -92,20 +198,82 @@ public final class DirectoryContactsCursorLoader extends CursorLoader {
                   getProjection(),
                   getSelection(),
                   getSelectionArgs(),
-                  getSortOrder());
+                  getSortOrder(),
+                  cancellationSignal);
       // Even though the cursor specifies "WHERE PHONE_NUMBER IS NOT NULL" the Blackberry Hub app's
       // directory extension doesn't appear to respect it, and sometimes returns a null phone
       // number. In this case just hide the row entirely. See a bug.
-      cursors[i] = createMatrixCursorFilteringNullNumbers(cursor);
+      List<Object[]> rows = readRowsFilteringNullNumbers(cursor);
+      LogUtil.i(
+          "DirectoryContactsCursorLoader.queryDirectory",
+          "directory %d returned %d rows in %d millis",
+          directory.getId(),
+          rows.size(),
+          SystemClock.elapsedRealtime() - startTimeMillis);
+      return new DirectoryResult(index, rows);
+    } catch (OperationCanceledException e) {
+      LogUtil.i(
+          "DirectoryContactsCursorLoader.queryDirectory",
+          "directory %d cancelled after %d millis",
+          directory.getId(),
+          SystemClock.elapsedRealtime() - startTimeMillis);
+      return null;
+    } finally {
+      synchronized (lock) {
+        cancellationSignals.remove(cancellationSignal);
+      }
+    }
+  }
+
+  @Nullable
+  private static DirectoryResult getResult(Future<DirectoryResult> future)
+      throws InterruptedException {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      LogUtil.e("DirectoryContactsCursorLoader.getResult", "directory query failed", e);
+      return null;
+    }
+  }
+
+  /** Delivers the results of the directories that answered so far on the main thread. */
+  private void deliverPartialResult(List<List<Object[]>> rows) {
+    Cursor cursor = createCursor(rows);
+    ThreadUtil.postOnUiThread(
+        () -> {
+          if (isLoadInBackgroundCanceled() || isAbandoned() || isReset()) {
+            if (cursor != null) {
+              cursor.close();
+            }
+            return;
+          }
+          deliverResult(cursor);
+        });
+  }
+
+  /** Creates a new cursor, since delivered cursors are closed once replaced. */
+  @Nullable
+  private Cursor createCursor(List<List<Object[]>> rows) {
+    Cursor[] cursors = new Cursor[directories.size()];
+    for (int i = 0; i < cursors.length; i++) {
+      List<Object[]> directoryRows = rows.get(i);
+      if (directoryRows == null) {
+        continue;
+      }
+      MatrixCursor matrixCursor = new MatrixCursor(getProjection(), directoryRows.size());
+      for (Object[] row : directoryRows) {
+        matrixCursor.addRow(row);
+      }
+      cursors[i] = matrixCursor;
     }
     return DirectoryContactsCursor.newInstance(getContext(), cursors, directories);
   }
 
-  private MatrixCursor createMatrixCursorFilteringNullNumbers(Cursor cursor) {
+  private static List<Object[]> readRowsFilteringNullNumbers(@Nullable Cursor cursor) {
+    List<Object[]> rows = new ArrayList<>();
     if (cursor == null) {
-      return null;
+      return rows;
     }
-    MatrixCursor matrixCursor = new MatrixCursor(cursor.getColumnNames());
     try {
       if (cursor.moveToFirst()) {
         do {
@@ -113,13 +281,13 @@ public final class DirectoryContactsCursorLoader extends CursorLoader {
           if (number == null) {
             continue;
           }
-          matrixCursor.addRow(objectArrayFromCursor(cursor));
+          rows.add(objectArrayFromCursor(cursor));
         } while (cursor.moveToNext());
       }
     } finally {
       cursor.close();
     }
-    return matrixCursor;
+    return rows;
   }
 
   @NonNull
@@ -153,4 +321,14 @@ public final class DirectoryContactsCursorLoader extends CursorLoader {
         .appendQueryParameter(ContactsContract.LIMIT_PARAM_KEY, MAX_RESULTS)
         .build();
   }
+
+  private static final class DirectoryResult {
+    final int index;
+    final List<Object[]> rows;
+
+    DirectoryResult(int index, List<Object[]> rows) {
+      this.index = index;
+      this.rows = rows;
+    }
+  }
 }
@@ -108,24 +108,7 @@ public final class NewSearchFragment extends Fragment
   // Information about all local & remote directories (including ID, display name, etc, but not
   // the contacts in them).
   private final List<Directory> directories = new ArrayList<>();
-  private final Runnable loaderCp2ContactsRunnable =
-      () -> {
-        if (getHost() != null) {
-          LoaderManager.getInstance(this).restartLoader(CONTACTS_LOADER_ID, null, this);
-        }
-      };
-  private final Runnable loadNearbyPlacesRunnable =
-      () -> {
-        if (getHost() != null) {
-          LoaderManager.getInstance(this).restartLoader(NEARBY_PLACES_LOADER_ID, null, this);
-        }
-      };
-  private final Runnable loadDirectoryContactsRunnable =
-      () -> {
-        if (getHost() != null) {
-          LoaderManager.getInstance(this).restartLoader(DIRECTORY_CONTACTS_LOADER_ID, null, this);
-        }
-      };
+  private final SearchQueryScheduler queryScheduler = new SearchQueryScheduler(this, this);
   private final Runnable capabilitiesUpdatedRunnable = () -> adapter.notifyDataSetChanged();
 
   private Runnable updatePositionRunnable;
@@ -229,6 +212,7 @@ public final class NewSearchFragment extends Fragment
   @Override
   public void onLoadFinished(Loader<Cursor> loader, Cursor cursor) {
     LogUtil.i("NewSearchFragment.onLoadFinished", "Loader finished: " + loader);
+    queryScheduler.onLoadFinished(loader.getId());
     if (cursor != null
         && !(loader instanceof DirectoriesCursorLoader)
         && !(cursor instanceof SearchCursor)) {
@@ -340,9 +324,7 @@ public final class NewSearchFragment extends Fragment
   @Override
   public void onDestroy() {
     super.onDestroy();
-    ThreadUtil.getUiThreadHandler().removeCallbacks(loaderCp2ContactsRunnable);
-    ThreadUtil.getUiThreadHandler().removeCallbacks(loadNearbyPlacesRunnable);
-    ThreadUtil.getUiThreadHandler().removeCallbacks(loadDirectoryContactsRunnable);
+    queryScheduler.release();
     ThreadUtil.getUiThreadHandler().removeCallbacks(capabilitiesUpdatedRunnable);
   }
 
@@ -371,17 +353,11 @@ public final class NewSearchFragment extends Fragment
    * <p>Should not be called before finishing loading info about all directories (local & remote).
    */
   private void loadDirectoryContactsCursors() {
-    // Cancel existing load if one exists.
-    ThreadUtil.getUiThreadHandler().removeCallbacks(loadDirectoryContactsRunnable);
-    ThreadUtil.getUiThreadHandler()
-        .postDelayed(loadDirectoryContactsRunnable, NETWORK_SEARCH_DELAY_MILLIS);
+    queryScheduler.schedule(DIRECTORY_CONTACTS_LOADER_ID, NETWORK_SEARCH_DELAY_MILLIS);
   }
 
   private void loadCp2ContactsCursor() {
-    // Cancel existing load if one exists.
-    ThreadUtil.getUiThreadHandler().removeCallbacks(loaderCp2ContactsRunnable);
-    ThreadUtil.getUiThreadHandler()
-        .postDelayed(loaderCp2ContactsRunnable, NETWORK_SEARCH_DELAY_MILLIS);
+    queryScheduler.schedule(CONTACTS_LOADER_ID, NETWORK_SEARCH_DELAY_MILLIS);
   }
 
   /**
@@ -401,14 +377,13 @@ public final class NewSearchFragment extends Fragment
     }
 
     // Cancel existing load if one exists.
-    ThreadUtil.getUiThreadHandler().removeCallbacks(loadNearbyPlacesRunnable);
+    queryScheduler.cancelPending(NEARBY_PLACES_LOADER_ID);
 
     // If nearby places is not enabled, do not try to load them.
     if (!PhoneDirectoryExtenderAccessor.get(getContext()).isEnabled(getContext())) {
       return;
     }
-    ThreadUtil.getUiThreadHandler()
-        .postDelayed(loadNearbyPlacesRunnable, NETWORK_SEARCH_DELAY_MILLIS);
+    queryScheduler.schedule(NEARBY_PLACES_LOADER_ID, NETWORK_SEARCH_DELAY_MILLIS);
   }
 
   private void requestLocationPermission() {
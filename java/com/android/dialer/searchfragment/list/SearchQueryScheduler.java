@@ -0,0 +1,149 @@
+/*
+ * SPDX-FileCopyrightText: The LineageOS Project
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.android.dialer.searchfragment.list;
+
+import android.database.Cursor;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+
+import androidx.annotation.MainThread;
+import androidx.fragment.app.Fragment;
+import androidx.loader.app.LoaderManager;
+import androidx.loader.content.Loader;
+
+import com.android.dialer.common.Assert;
+import com.android.dialer.common.LogUtil;
+import com.android.dialer.common.concurrent.ThreadUtil;
+
+/**
+ * Schedules the search loaders of {@link NewSearchFragment} as the query changes.
+ *
+ * <p>Every query change starts a new generation for the affected source (a loader id). Loads are
+ * debounced per source, and the in-flight load of an obsolete generation is cancelled right away
+ * instead of running to completion while the user keeps typing. Cancelling a loader cancels its
+ * content provider query, which for nearby places also aborts the lookup's HTTP request.
+ */
+final class SearchQueryScheduler {
+
+  private final Fragment fragment;
+  private final LoaderManager.LoaderCallbacks<Cursor> callbacks;
+
+  /** Pending debounced loads, keyed by loader id. */
+  private final SparseArray<Runnable> pendingLoads = new SparseArray<>();
+
+  /** Latest generation scheduled per loader id. */
+  private final SparseIntArray scheduledGenerations = new SparseIntArray();
+
+  /** Generation of the load currently running or last run per loader id. */
+  private final SparseIntArray startedGenerations = new SparseIntArray();
+
+  private int generation;
+  private int startedCount;
+  private int debouncedCount;
+  private int cancelledCount;
+  private int deliveredCount;
+  private int staleDeliveredCount;
+
+  SearchQueryScheduler(Fragment fragment, LoaderManager.LoaderCallbacks<Cursor> callbacks) {
+    this.fragment = fragment;
+    this.callbacks = callbacks;
+  }
+
+  /**
+   * Restarts the loader with the given id after {@code delayMillis}, replacing any load of the same
+   * loader that is pending or in flight.
+   */
+  @MainThread
+  void schedule(int loaderId, long delayMillis) {
+    Assert.isMainThread();
+    int loadGeneration = ++generation;
+    scheduledGenerations.put(loaderId, loadGeneration);
+    cancelPending(loaderId);
+    cancelInFlight(loaderId);
+
+    Runnable load =
+        () -> {
+          pendingLoads.remove(loaderId);
+          if (fragment.getHost() == null) {
+            return;
+          }
+          startedGenerations.put(loaderId, loadGeneration);
+          startedCount++;
+          LoaderManager.getInstance(fragment).restartLoader(loaderId, null, callbacks);
+        };
+    pendingLoads.put(loaderId, load);
+    ThreadUtil.getUiThreadHandler().postDelayed(load, delayMillis);
+  }
+
+  /** Drops a pending load without cancelling the load that is already running. */
+  @MainThread
+  void cancelPending(int loaderId) {
+    Runnable pending = pendingLoads.get(loaderId);
+    if (pending != null) {
+      ThreadUtil.getUiThreadHandler().removeCallbacks(pending);
+      pendingLoads.remove(loaderId);
+      debouncedCount++;
+    }
+  }
+
+  /** Records that the loader with the given id delivered a result. */
+  @MainThread
+  void onLoadFinished(int loaderId) {
+    deliveredCount++;
+    if (startedGenerations.get(loaderId) < scheduledGenerations.get(loaderId)) {
+      staleDeliveredCount++;
+    }
+  }
+
+  /** Drops all pending loads and logs the counters, e.g. when the fragment is destroyed. */
+  @MainThread
+  void release() {
+    for (int i = 0; i < pendingLoads.size(); i++) {
+      ThreadUtil.getUiThreadHandler().removeCallbacks(pendingLoads.valueAt(i));
+    }
+    pendingLoads.clear();
+    LogUtil.i("SearchQueryScheduler.release", toString());
+  }
+
+  int getStartedCount() {
+    return startedCount;
+  }
+
+  int getCancelledCount() {
+    return cancelledCount;
+  }
+
+  int getDeliveredCount() {
+    return deliveredCount;
+  }
+
+  private void cancelInFlight(int loaderId) {
+    if (fragment.getHost() == null) {
+      return;
+    }
+    Loader<Cursor> loader = LoaderManager.getInstance(fragment).getLoader(loaderId);
+    if (loader != null && loader.cancelLoad()) {
+      cancelledCount++;
+      LogUtil.v(
+          "SearchQueryScheduler.cancelInFlight",
+          "cancelled generation %d of loader %d",
+          startedGenerations.get(loaderId),
+          loaderId);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "generations: %d, started: %d, debounced: %d, cancelled: %d, delivered: %d (stale: %d)",
+        generation,
+        startedCount,
+        debouncedCount,
+        cancelledCount,
+        deliveredCount,
+        staleDeliveredCount);
+  }
+}
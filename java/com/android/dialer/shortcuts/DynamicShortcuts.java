@@ -54,12 +54,14 @@ import java.util.Map.Entry;
  * more than one phone number, a number picker should be displayed, and otherwise the contact should
  * be called directly.
  *
- * <p>Note that an icon change by itself does not trigger a shortcut update, because it is not
- * possible to detect an icon update and we don't want to constantly force update icons, because
- * that is an expensive operation which requires storage I/O.
+ * <p>A change of the contact's photo is detected by its photo ID and photo file ID, which {@link
+ * IconFactory} hashes together with the name into a content hash of the icon. A photo replaced in
+ * place keeps its photo ID but gets a new photo file ID. Shortcuts whose hash matches the one of
+ * their published icon are not updated, and icons are read from a disk cache rather than decoded
+ * again.
  *
- * <p>However, the job scheduler uses {@link #updateIcons()} to makes sure icons are forcefully
- * updated periodically (about once a day).
+ * <p>The job scheduler also uses {@link #updateIcons()} to update stale icons periodically (about
+ * once a day), e.g. of contacts changed while the favorites tiles weren't shown.
  *
  */
 final class DynamicShortcuts {
@@ -74,10 +76,12 @@ final class DynamicShortcuts {
   }
 
   private final Context context;
+  private final IconFactory iconFactory;
   private final ShortcutInfoFactory shortcutInfoFactory;
 
   DynamicShortcuts(@NonNull Context context, IconFactory iconFactory) {
     this.context = context;
+    this.iconFactory = iconFactory;
     this.shortcutInfoFactory = new ShortcutInfoFactory(context, iconFactory);
   }
 
@@ -137,8 +141,8 @@ final class DynamicShortcuts {
   }
 
   /**
-   * Forces an update of all dynamic shortcut icons. This should only be done from job scheduler as
-   * updating icons requires storage I/O.
+   * Updates the dynamic shortcut icons whose contact changed since they were published. This should
+   * only be done from job scheduler as checking icons requires storage I/O.
    */
   @WorkerThread
   void updateIcons() {
@@ -158,15 +162,30 @@ final class DynamicShortcuts {
             - shortcutManager.getManifestShortcuts().size();
     int count = 0;
 
-    List<ShortcutInfo> newShortcuts = new ArrayList<>();
+    List<ShortcutInfo> updatedShortcuts = new ArrayList<>();
+    List<String> updatedShortcutIds = new ArrayList<>();
     for (ShortcutInfo oldInfo : shortcutManager.getDynamicShortcuts()) {
-      newShortcuts.add(shortcutInfoFactory.withUpdatedIcon(oldInfo));
+      if (!iconFactory.isIconUpToDate(oldInfo)) {
+        updatedShortcuts.add(shortcutInfoFactory.withUpdatedIcon(oldInfo));
+        updatedShortcutIds.add(oldInfo.getId());
+      }
       if (++count >= maxDynamicShortcutsToCreate) {
         break;
       }
     }
-    LogUtil.i("DynamicShortcuts.updateIcons", "updating %d shortcut icons", newShortcuts.size());
-    shortcutManager.setDynamicShortcuts(newShortcuts);
+    LogUtil.i(
+        "DynamicShortcuts.updateIcons",
+        "updating %d of %d shortcut icons",
+        updatedShortcuts.size(),
+        count);
+    if (updatedShortcuts.isEmpty()) {
+      return;
+    }
+    if (shortcutManager.updateShortcuts(updatedShortcuts)) {
+      iconFactory.onIconsPublished(updatedShortcutIds);
+    } else {
+      LogUtil.i("DynamicShortcuts.updateIcons", "shortcutManager rate limited.");
+    }
   }
 
   @NonNull
@@ -183,7 +202,7 @@ final class DynamicShortcuts {
       // Check to see if the new shortcut list contains the existing shortcut.
       DialerShortcut newShortcut = newDynamicShortcutsById.get(oldInfo.getId());
       if (newShortcut != null) {
-        if (newShortcut.needsUpdate(oldInfo)) {
+        if (newShortcut.needsUpdate(oldInfo) || !iconFactory.isIconUpToDate(oldInfo)) {
           LogUtil.i("DynamicShortcuts.computeDelta", "contact updated");
           delta.shortcutsToUpdateById.put(oldInfo.getId(), newShortcut);
         } // else the shortcut hasn't changed, nothing to do to it
@@ -212,18 +231,34 @@ final class DynamicShortcuts {
     // Must perform remove before performing add to avoid adding more than supported by system.
     if (!delta.shortcutIdsToRemove.isEmpty()) {
       shortcutManager.removeDynamicShortcuts(delta.shortcutIdsToRemove);
+      // Shortcuts which are also pinned remain, with their icons.
+      List<String> removedShortcutIds = new ArrayList<>(delta.shortcutIdsToRemove);
+      for (ShortcutInfo pinnedInfo : shortcutManager.getPinnedShortcuts()) {
+        removedShortcutIds.remove(pinnedInfo.getId());
+      }
+      if (!removedShortcutIds.isEmpty()) {
+        iconFactory.onShortcutsRemoved(removedShortcutIds);
+      }
     }
     if (!delta.shortcutsToUpdateById.isEmpty()) {
       // Note: This may update pinned shortcuts as well. Pinned shortcuts which are also dynamic
       // are not updated by the pinned shortcut logic. The reason that they are updated here
       // instead of in the pinned shortcut logic is because setRank is required and only available
       // here.
-      shortcutManager.updateShortcuts(
-          shortcutInfoFactory.buildShortcutInfos(delta.shortcutsToUpdateById));
+      if (shortcutManager.updateShortcuts(
+          shortcutInfoFactory.buildShortcutInfos(delta.shortcutsToUpdateById))) {
+        iconFactory.onIconsPublished(delta.shortcutsToUpdateById.keySet());
+      } else {
+        LogUtil.i("DynamicShortcuts.applyDelta", "shortcutManager rate limited.");
+      }
     }
     if (!delta.shortcutsToAddById.isEmpty()) {
-      shortcutManager.addDynamicShortcuts(
-          shortcutInfoFactory.buildShortcutInfos(delta.shortcutsToAddById));
+      if (shortcutManager.addDynamicShortcuts(
+          shortcutInfoFactory.buildShortcutInfos(delta.shortcutsToAddById))) {
+        iconFactory.onIconsPublished(delta.shortcutsToAddById.keySet());
+      } else {
+        LogUtil.i("DynamicShortcuts.applyDelta", "shortcutManager rate limited.");
+      }
     }
   }
 
@@ -19,12 +19,14 @@ package com.android.dialer.shortcuts;
 
 import android.content.Context;
 import android.content.pm.ShortcutInfo;
+import android.database.Cursor;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.graphics.drawable.AdaptiveIconDrawable;
 import android.graphics.drawable.Icon;
 import android.net.Uri;
-import android.provider.ContactsContract;
+import android.provider.ContactsContract.Contacts;
+import android.util.ArrayMap;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -32,18 +34,28 @@ import androidx.annotation.WorkerThread;
 
 import com.android.dialer.R;
 import com.android.dialer.common.Assert;
+import com.android.dialer.common.LogUtil;
 import com.android.dialer.lettertile.LetterTileDrawable;
 import com.android.dialer.util.DrawableConverter;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 /** Constructs the icons for dialer shortcuts. */
 class IconFactory {
 
   private final Context context;
+  private final ShortcutIconCache iconCache;
+
+  /** Hashes of the icons created since they were last published, by shortcut ID. */
+  private final Map<String, String> createdHashesByShortcutId = new ArrayMap<>();
 
   IconFactory(@NonNull Context context) {
     this.context = context;
+    this.iconCache = new ShortcutIconCache(context);
   }
 
   /**
@@ -56,6 +68,9 @@ class IconFactory {
    *
    * <p>These icons should match exactly the favorites tiles in the starred tab of the dialer
    * application, except that they are circular instead of rectangular.
+   *
+   * <p>Icons are read from the {@link ShortcutIconCache} if the contact didn't change since they
+   * were created.
    */
   @WorkerThread
   @NonNull
@@ -76,41 +91,118 @@ class IconFactory {
         DialerShortcut.getLookupKeyFromShortcutInfo(shortcutInfo));
   }
 
+  /**
+   * Returns whether the icon last published for the shortcut is still up to date, i.e. the
+   * contact's name and photo didn't change since.
+   */
+  @WorkerThread
+  boolean isIconUpToDate(@NonNull ShortcutInfo shortcutInfo) {
+    Assert.isWorkerThread();
+    String hash =
+        getContentHash(
+            DialerShortcut.getLookupUriFromShortcutInfo(shortcutInfo),
+            DialerShortcut.getDisplayNameFromShortcutInfo(shortcutInfo),
+            DialerShortcut.getLookupKeyFromShortcutInfo(shortcutInfo));
+    return hash.equals(iconCache.getPublishedHash(shortcutInfo.getId()));
+  }
+
+  /** Records that the icons created for the shortcuts were published with them. */
+  @WorkerThread
+  void onIconsPublished(@NonNull Collection<String> shortcutIds) {
+    Assert.isWorkerThread();
+    Map<String, String> publishedHashesByShortcutId = new ArrayMap<>();
+    for (String shortcutId : shortcutIds) {
+      String hash = createdHashesByShortcutId.remove(shortcutId);
+      if (hash != null) {
+        publishedHashesByShortcutId.put(shortcutId, hash);
+      }
+    }
+    iconCache.onIconsPublished(publishedHashesByShortcutId);
+  }
+
+  /** Records that the shortcuts were removed, so their icons are no longer needed. */
+  @WorkerThread
+  void onShortcutsRemoved(@NonNull List<String> shortcutIds) {
+    Assert.isWorkerThread();
+    iconCache.onShortcutsRemoved(shortcutIds);
+  }
+
   @WorkerThread
   @NonNull
   private Icon create(
       @NonNull Uri lookupUri, @NonNull String displayName, @NonNull String lookupKey) {
     Assert.isWorkerThread();
 
-    // In testing, there was no difference between high-res and thumbnail.
-    InputStream inputStream =
-        ContactsContract.Contacts.openContactPhotoInputStream(
-            context.getContentResolver(), lookupUri, false /* preferHighres */);
+    String hash = getContentHash(lookupUri, displayName, lookupKey);
+    // Lookup keys are used for shortcut IDs.
+    createdHashesByShortcutId.put(lookupKey, hash);
+    Bitmap bitmap = iconCache.getIcon(hash);
+    if (bitmap == null) {
+      bitmap = createAdaptiveBitmap(lookupUri, displayName, lookupKey);
+      iconCache.putIcon(hash, bitmap);
+    }
+    return Icon.createWithAdaptiveBitmap(bitmap);
+  }
 
-    return createAdaptiveIcon(displayName, lookupKey, inputStream);
+  @WorkerThread
+  @NonNull
+  private String getContentHash(
+      @NonNull Uri lookupUri, @NonNull String displayName, @NonNull String lookupKey) {
+    long photoId = 0;
+    long photoFileId = 0;
+    try (Cursor cursor =
+        context
+            .getContentResolver()
+            .query(
+                lookupUri,
+                new String[] {Contacts.PHOTO_ID, Contacts.PHOTO_FILE_ID},
+                null,
+                null,
+                null)) {
+      if (cursor != null && cursor.moveToFirst()) {
+        photoId = cursor.getLong(0);
+        photoFileId = cursor.getLong(1);
+      }
+    }
+    return ShortcutIconCache.getContentHash(
+        displayName, lookupKey, photoId, photoFileId, getIconSize());
   }
 
-  private Icon createAdaptiveIcon(
-      @NonNull String displayName, @NonNull String lookupKey, @Nullable InputStream inputStream) {
-    if (inputStream == null) {
-      LetterTileDrawable letterTileDrawable = new LetterTileDrawable(context.getResources());
-      // The adaptive icons clip the drawable to a safe area inside the drawable. Scale the letter
-      // so it fits inside the safe area.
-      letterTileDrawable.setScale(1f / (1f + AdaptiveIconDrawable.getExtraInsetFraction()));
-      letterTileDrawable.setCanonicalDialerLetterTileDetails(
-          displayName,
-          lookupKey,
-          LetterTileDrawable.SHAPE_RECTANGLE,
-          LetterTileDrawable.TYPE_DEFAULT);
-
-      int iconSize =
-          context
-              .getResources()
-              .getDimensionPixelSize(R.dimen.launcher_shortcut_adaptive_icon_size);
-      return Icon.createWithAdaptiveBitmap(
-          DrawableConverter.drawableToBitmap(letterTileDrawable, iconSize, iconSize));
+  @WorkerThread
+  @NonNull
+  private Bitmap createAdaptiveBitmap(
+      @NonNull Uri lookupUri, @NonNull String displayName, @NonNull String lookupKey) {
+    // In testing, there was no difference between high-res and thumbnail.
+    try (InputStream inputStream =
+        Contacts.openContactPhotoInputStream(
+            context.getContentResolver(), lookupUri, false /* preferHighres */)) {
+      if (inputStream != null) {
+        Bitmap bitmap = BitmapFactory.decodeStream(inputStream);
+        if (bitmap != null) {
+          return bitmap;
+        }
+      }
+    } catch (IOException e) {
+      LogUtil.e("IconFactory.createAdaptiveBitmap", "failed to read photo", e);
     }
-    Bitmap bitmap = BitmapFactory.decodeStream(inputStream);
-    return Icon.createWithAdaptiveBitmap(bitmap);
+
+    LetterTileDrawable letterTileDrawable = new LetterTileDrawable(context.getResources());
+    // The adaptive icons clip the drawable to a safe area inside the drawable. Scale the letter
+    // so it fits inside the safe area.
+    letterTileDrawable.setScale(1f / (1f + AdaptiveIconDrawable.getExtraInsetFraction()));
+    letterTileDrawable.setCanonicalDialerLetterTileDetails(
+        displayName,
+        lookupKey,
+        LetterTileDrawable.SHAPE_RECTANGLE,
+        LetterTileDrawable.TYPE_DEFAULT);
+
+    int iconSize = getIconSize();
+    return DrawableConverter.drawableToBitmap(letterTileDrawable, iconSize, iconSize);
+  }
+
+  private int getIconSize() {
+    return context
+        .getResources()
+        .getDimensionPixelSize(R.dimen.launcher_shortcut_adaptive_icon_size);
   }
 }
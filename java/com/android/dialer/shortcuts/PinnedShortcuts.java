@@ -64,11 +64,13 @@ final class PinnedShortcuts {
   }
 
   private final Context context;
+  private final IconFactory iconFactory;
   private final ShortcutInfoFactory shortcutInfoFactory;
 
   PinnedShortcuts(@NonNull Context context) {
     this.context = context;
-    this.shortcutInfoFactory = new ShortcutInfoFactory(context, new IconFactory(context));
+    this.iconFactory = new IconFactory(context);
+    this.shortcutInfoFactory = new ShortcutInfoFactory(context, iconFactory);
   }
 
   /**
@@ -140,7 +142,7 @@ final class PinnedShortcuts {
                     cursor.getString(cursor.getColumnIndexOrThrow(Contacts.DISPLAY_NAME_PRIMARY)))
                 .build();
 
-        if (shortcut.needsUpdate(shortcutInfo)) {
+        if (shortcut.needsUpdate(shortcutInfo) || !iconFactory.isIconUpToDate(shortcutInfo)) {
           LogUtil.i("PinnedShortcuts.refresh", "contact updated");
           delta.shortcutsToUpdateById.put(shortcutInfo.getId(), shortcut);
         }
@@ -159,8 +161,10 @@ final class PinnedShortcuts {
     if (!delta.shortcutsToUpdateById.isEmpty()) {
       // Note: This call updates both pinned and dynamic shortcuts, but the delta should contain
       // no dynamic shortcuts.
-      if (!shortcutManager.updateShortcuts(
+      if (shortcutManager.updateShortcuts(
           shortcutInfoFactory.buildShortcutInfos(delta.shortcutsToUpdateById))) {
+        iconFactory.onIconsPublished(delta.shortcutsToUpdateById.keySet());
+      } else {
         LogUtil.i("PinnedShortcuts.applyDelta", "shortcutManager rate limited.");
       }
     }
@@ -21,6 +21,7 @@ import android.app.job.JobParameters;
 import android.app.job.JobService;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 
 import androidx.annotation.NonNull;
 
@@ -56,9 +57,15 @@ final class RefreshShortcutsTask {
       // frequently (for example, when they are called their "times_contacted" is incremented).
       // Relying on such a spuriously updated timestamp would result in too frequent shortcut
       // updates, so instead we just allow the icon to become stale in the case that the contact's
-      // photo is updated, and then rely on the job service to periodically force update it.
+      // photo is updated, and then rely on the job service to periodically check it. Only icons
+      // whose name or photo ID changed since they were published are updated.
+      long startMillis = SystemClock.elapsedRealtime();
       new DynamicShortcuts(jobService, new IconFactory(jobService)).updateIcons(); // Blocking
       new PinnedShortcuts(jobService).refresh(); // Blocking
+      LogUtil.i(
+          "RefreshShortcutsTask.doInBackground",
+          "refreshed shortcuts in %d ms",
+          SystemClock.elapsedRealtime() - startMillis);
 
       if (!mIsCancelled) {
         handler.post(() -> {
@@ -0,0 +1,166 @@
+/*
+ * SPDX-FileCopyrightText: The LineageOS Project
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.android.dialer.shortcuts;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.android.dialer.common.Assert;
+import com.android.dialer.common.LogUtil;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Caches the icons of shortcuts on disk, and remembers which icon each published shortcut shows.
+ *
+ * <p>An icon is identified by a hash of everything it is drawn from: the contact's display name,
+ * lookup key, photo ID and photo file ID, and the icon size. The photo file ID changes when a photo
+ * is replaced in place, which keeps the photo ID. Icons are stored in the cache directory under
+ * their hash, so a shortcut whose contact didn't change gets its icon without decoding the photo or
+ * drawing a letter tile. The hash of the icon last published for each shortcut ID is kept in
+ * shared preferences, so refreshes can skip shortcuts whose icon is up to date.
+ */
+final class ShortcutIconCache {
+
+  private static final String DIRECTORY_NAME = "shortcut_icons";
+  private static final String PREFERENCES_NAME = "shortcut_icon_hashes";
+
+  private final File directory;
+  private final SharedPreferences publishedHashes;
+
+  ShortcutIconCache(@NonNull Context context) {
+    directory = new File(context.getCacheDir(), DIRECTORY_NAME);
+    publishedHashes = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+  }
+
+  /** Returns the hash identifying the icon drawn from the given values. */
+  @NonNull
+  static String getContentHash(
+      @NonNull String displayName,
+      @NonNull String lookupKey,
+      long photoId,
+      long photoFileId,
+      int iconSize) {
+    String content =
+        displayName + '\0' + lookupKey + '\0' + photoId + '\0' + photoFileId + '\0' + iconSize;
+    try {
+      byte[] digest =
+          MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+      StringBuilder hash = new StringBuilder(digest.length * 2);
+      for (byte b : digest) {
+        hash.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+      }
+      return hash.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new AssertionError("SHA-256 is always available", e);
+    }
+  }
+
+  /** Returns the cached icon with the given hash, or null if there is none. */
+  @WorkerThread
+  @Nullable
+  Bitmap getIcon(@NonNull String hash) {
+    Assert.isWorkerThread();
+    File file = new File(directory, hash);
+    if (!file.exists()) {
+      return null;
+    }
+    Bitmap bitmap = BitmapFactory.decodeFile(file.getPath());
+    if (bitmap == null) {
+      LogUtil.w("ShortcutIconCache.getIcon", "dropping unreadable icon");
+      file.delete();
+    }
+    return bitmap;
+  }
+
+  /** Stores the icon under its hash. Failing to store it only means creating it again. */
+  @WorkerThread
+  void putIcon(@NonNull String hash, @NonNull Bitmap bitmap) {
+    Assert.isWorkerThread();
+    if (!directory.exists() && !directory.mkdirs()) {
+      LogUtil.w("ShortcutIconCache.putIcon", "failed to create directory");
+      return;
+    }
+    // Written to a temporary file first, so a partially written icon is never read.
+    File temporaryFile = new File(directory, hash + ".tmp");
+    try (OutputStream outputStream = new FileOutputStream(temporaryFile)) {
+      bitmap.compress(Bitmap.CompressFormat.PNG, 100 /* ignored for PNG */, outputStream);
+    } catch (IOException e) {
+      LogUtil.e("ShortcutIconCache.putIcon", "failed to write icon", e);
+      temporaryFile.delete();
+      return;
+    }
+    if (!temporaryFile.renameTo(new File(directory, hash))) {
+      temporaryFile.delete();
+    }
+  }
+
+  /** Returns the hash of the icon last published for the shortcut, or null if unknown. */
+  @WorkerThread
+  @Nullable
+  String getPublishedHash(@NonNull String shortcutId) {
+    return publishedHashes.getString(shortcutId, null);
+  }
+
+  /**
+   * Records the hashes of icons just published, by shortcut ID, and deletes cached icons no longer
+   * published for any shortcut.
+   */
+  @WorkerThread
+  void onIconsPublished(@NonNull Map<String, String> hashesByShortcutId) {
+    Assert.isWorkerThread();
+    if (hashesByShortcutId.isEmpty()) {
+      return;
+    }
+    SharedPreferences.Editor editor = publishedHashes.edit();
+    for (Map.Entry<String, String> entry : hashesByShortcutId.entrySet()) {
+      editor.putString(entry.getKey(), entry.getValue());
+    }
+    editor.commit();
+    deleteUnpublishedIcons();
+  }
+
+  /** Forgets the published icons of removed shortcuts. */
+  @WorkerThread
+  void onShortcutsRemoved(@NonNull Iterable<String> shortcutIds) {
+    Assert.isWorkerThread();
+    SharedPreferences.Editor editor = publishedHashes.edit();
+    for (String shortcutId : shortcutIds) {
+      editor.remove(shortcutId);
+    }
+    editor.commit();
+    deleteUnpublishedIcons();
+  }
+
+  @WorkerThread
+  private void deleteUnpublishedIcons() {
+    File[] files = directory.listFiles();
+    if (files == null) {
+      return;
+    }
+    Set<Object> published = new HashSet<>(publishedHashes.getAll().values());
+    for (File file : files) {
+      if (!published.contains(file.getName())) {
+        file.delete();
+      }
+    }
+  }
+}
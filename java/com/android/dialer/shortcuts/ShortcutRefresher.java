@@ -18,6 +18,7 @@
 package com.android.dialer.shortcuts;
 
 import android.content.Context;
+import android.os.SystemClock;
 
 import androidx.annotation.MainThread;
 import androidx.annotation.NonNull;
@@ -77,7 +78,12 @@ public final class ShortcutRefresher {
       // by the job scheduler. This is because a pinned contact may not necessarily still be in the
       // favorites tiles, so refreshing it would require an additional database query. We don't want
       // to incur the cost of that extra database query every time the favorites tiles change.
+      long startMillis = SystemClock.elapsedRealtime();
       new DynamicShortcuts(context, new IconFactory(context)).refresh(contacts); // Blocking
+      LogUtil.i(
+          "ShortcutRefresher.Task.doInBackground",
+          "refreshed shortcuts in %d ms",
+          SystemClock.elapsedRealtime() - startMillis);
 
       return null;
     }
@@ -172,6 +172,11 @@ public class SimulatorMainPortal {
                     () ->
                         new SimulatorConferenceCreator(context, Simulator.CONFERENCE_TYPE_VOLTE)
                             .start(5))
+                .put(
+                    "Large VoLTE conference",
+                    () ->
+                        new SimulatorConferenceCreator(context, Simulator.CONFERENCE_TYPE_VOLTE)
+                            .start(25))
                 .build())
         .build();
   }
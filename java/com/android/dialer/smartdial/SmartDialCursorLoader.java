@@ -90,7 +90,8 @@ public class SmartDialCursorLoader extends AsyncTaskLoader<Cursor> {
     final DialerDatabaseHelper dialerDatabaseHelper =
         Database.get(context).getDatabaseHelper(context);
     final ArrayList<ContactNumber> allMatches =
-        dialerDatabaseHelper.getLooseMatches(query, nameMatcher);
+        SmartDialResultCache.getInstance(context)
+            .getLooseMatches(dialerDatabaseHelper, query, nameMatcher, !showEmptyListForNullQuery);
 
     if (DEBUG) {
       LogUtil.v(TAG, "Loaded matches " + allMatches.size());
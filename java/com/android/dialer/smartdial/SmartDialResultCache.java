@@ -0,0 +1,141 @@
+/*
+ * SPDX-FileCopyrightText: The LineageOS Project
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.android.dialer.smartdial;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.SystemClock;
+import android.util.LruCache;
+
+import androidx.annotation.WorkerThread;
+
+import com.android.dialer.common.LogUtil;
+import com.android.dialer.database.DialerDatabaseHelper;
+import com.android.dialer.database.DialerDatabaseHelper.ContactNumber;
+import com.android.dialer.database.DialerDatabaseHelper.LooseMatches;
+import com.android.dialer.smartdial.util.SmartDialNameMatcher;
+
+import java.util.ArrayList;
+
+/**
+ * Caches smart dial matches by normalized query, so typing and backspacing on the dialpad doesn't
+ * query the database for every keystroke.
+ *
+ * <p>A query that isn't cached is computed from the cached matches of its longest prefix if those
+ * are complete, i.e. the prefix had fewer matches than the loader shows. The cache is cleared when
+ * the smart dial database is updated.
+ */
+final class SmartDialResultCache {
+
+  private static final int MAX_QUERIES = 32;
+
+  private static SmartDialResultCache instance;
+
+  private final LruCache<String, LooseMatches> cache = new LruCache<>(MAX_QUERIES);
+
+  /** Incremented on every invalidation, so loads that raced with one aren't cached. */
+  private int generation;
+
+  private int hitCount;
+  private int narrowedCount;
+  private int queryCount;
+
+  static synchronized SmartDialResultCache getInstance(Context context) {
+    if (instance == null) {
+      instance = new SmartDialResultCache();
+      context
+          .getApplicationContext()
+          .registerReceiver(
+              new BroadcastReceiver() {
+                @Override
+                public void onReceive(Context context, Intent intent) {
+                  instance.invalidate();
+                }
+              },
+              new IntentFilter(DialerDatabaseHelper.ACTION_SMART_DIAL_UPDATED),
+              Context.RECEIVER_NOT_EXPORTED);
+    }
+    return instance;
+  }
+
+  /** Returns the matches for the query, from the cache if possible. */
+  @WorkerThread
+  ArrayList<ContactNumber> getLooseMatches(
+      DialerDatabaseHelper databaseHelper,
+      String query,
+      SmartDialNameMatcher nameMatcher,
+      boolean matchEmptyQuery) {
+    long startMillis = SystemClock.elapsedRealtime();
+    String key = getKey(query, matchEmptyQuery);
+    int startGeneration;
+    LooseMatches matches;
+    LooseMatches parent = null;
+    synchronized (this) {
+      startGeneration = generation;
+      matches = cache.get(key);
+      if (matches != null) {
+        hitCount++;
+      } else {
+        parent = findCompletePrefixMatches(query, matchEmptyQuery);
+        if (parent != null) {
+          narrowedCount++;
+        } else {
+          queryCount++;
+        }
+      }
+    }
+
+    String source = "cache";
+    if (matches == null && parent != null) {
+      matches = databaseHelper.narrowLooseMatches(parent, query, nameMatcher);
+      source = "narrowed";
+    } else if (matches == null) {
+      matches = databaseHelper.queryLooseMatches(query, nameMatcher);
+      source = "database";
+    }
+
+    synchronized (this) {
+      if (generation == startGeneration) {
+        cache.put(key, matches);
+      }
+    }
+
+    LogUtil.v(
+        "SmartDialResultCache.getLooseMatches",
+        "%s for %d digits in %d ms (hits: %d, narrowed: %d, queries: %d)",
+        source,
+        query == null ? 0 : query.length(),
+        SystemClock.elapsedRealtime() - startMillis,
+        hitCount,
+        narrowedCount,
+        queryCount);
+    return matches.getTopMatches();
+  }
+
+  synchronized void invalidate() {
+    generation++;
+    cache.evictAll();
+  }
+
+  private LooseMatches findCompletePrefixMatches(String query, boolean matchEmptyQuery) {
+    if (query == null) {
+      return null;
+    }
+    for (int length = query.length() - 1; length > 0; length--) {
+      LooseMatches matches = cache.get(getKey(query.substring(0, length), matchEmptyQuery));
+      if (matches != null && matches.isComplete()) {
+        return matches;
+      }
+    }
+    return null;
+  }
+
+  private static String getKey(String query, boolean matchEmptyQuery) {
+    return (matchEmptyQuery ? "*" : "") + ":" + query;
+  }
+}
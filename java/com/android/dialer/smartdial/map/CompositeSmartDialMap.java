@@ -49,6 +49,10 @@ public class CompositeSmartDialMap {
     EXTRA_MAPS.put("ukr", UkrainianSmartDialMap.getInstance());
   }
 
+  // Dialpad tables keyed by ISO 639-2 language code, or "" for languages without an extra map
+  private static final SimpleArrayMap<String, DialpadTable> DIALPAD_TABLES =
+      new SimpleArrayMap<>();
+
   private CompositeSmartDialMap() {}
 
   /**
@@ -58,11 +62,14 @@ public class CompositeSmartDialMap {
    * SmartDialMap#normalizeCharacter(char)} for details.
    */
   public static boolean isValidDialpadCharacter(Context context, char ch) {
+    return isValidDialpadCharacter(getExtraMap(context), ch);
+  }
+
+  private static boolean isValidDialpadCharacter(Optional<SmartDialMap> extraMap, char ch) {
     if (DEFAULT_MAP.isValidDialpadCharacter(ch)) {
       return true;
     }
 
-    Optional<SmartDialMap> extraMap = getExtraMap(context);
     return extraMap.isPresent() && extraMap.get().isValidDialpadCharacter(ch);
   }
 
@@ -73,11 +80,14 @@ public class CompositeSmartDialMap {
    * SmartDialMap#normalizeCharacter(char)} for details.
    */
   public static boolean isValidDialpadAlphabeticChar(Context context, char ch) {
+    return isValidDialpadAlphabeticChar(getExtraMap(context), ch);
+  }
+
+  private static boolean isValidDialpadAlphabeticChar(Optional<SmartDialMap> extraMap, char ch) {
     if (DEFAULT_MAP.isValidDialpadAlphabeticChar(ch)) {
       return true;
     }
 
-    Optional<SmartDialMap> extraMap = getExtraMap(context);
     return extraMap.isPresent() && extraMap.get().isValidDialpadAlphabeticChar(ch);
   }
 
@@ -85,11 +95,14 @@ public class CompositeSmartDialMap {
    * Returns true if the provided character is a digit, and can be mapped to a key on the dialpad.
    */
   public static boolean isValidDialpadNumericChar(Context context, char ch) {
+    return isValidDialpadNumericChar(getExtraMap(context), ch);
+  }
+
+  private static boolean isValidDialpadNumericChar(Optional<SmartDialMap> extraMap, char ch) {
     if (DEFAULT_MAP.isValidDialpadNumericChar(ch)) {
       return true;
     }
 
-    Optional<SmartDialMap> extraMap = getExtraMap(context);
     return extraMap.isPresent() && extraMap.get().isValidDialpadNumericChar(ch);
   }
 
@@ -124,12 +137,15 @@ public class CompositeSmartDialMap {
    * <p>If the provided character can't be mapped to a key on the dialpad, return the character.
    */
   public static char getDialpadNumericCharacter(Context context, char ch) {
+    return getDialpadNumericCharacter(getExtraMap(context), ch);
+  }
+
+  private static char getDialpadNumericCharacter(Optional<SmartDialMap> extraMap, char ch) {
     Optional<Character> dialpadNumericChar = DEFAULT_MAP.getDialpadNumericCharacter(ch);
     if (dialpadNumericChar.isPresent()) {
       return dialpadNumericChar.get();
     }
 
-    Optional<SmartDialMap> extraMap = getExtraMap(context);
     if (extraMap.isPresent()) {
       dialpadNumericChar = extraMap.get().getDialpadNumericCharacter(ch);
     }
@@ -144,12 +160,15 @@ public class CompositeSmartDialMap {
    * <p>If the provided character can't be mapped to a key on the dialpad, return the character.
    */
   public static char normalizeCharacter(Context context, char ch) {
+    return normalizeCharacter(getExtraMap(context), ch);
+  }
+
+  private static char normalizeCharacter(Optional<SmartDialMap> extraMap, char ch) {
     Optional<Character> normalizedChar = DEFAULT_MAP.normalizeCharacter(ch);
     if (normalizedChar.isPresent()) {
       return normalizedChar.get();
     }
 
-    Optional<SmartDialMap> extraMap = getExtraMap(context);
     if (extraMap.isPresent()) {
       normalizedChar = extraMap.get().normalizeCharacter(ch);
     }
@@ -157,10 +176,80 @@ public class CompositeSmartDialMap {
     return normalizedChar.isPresent() ? normalizedChar.get() : ch;
   }
 
-  private static Optional<SmartDialMap> getExtraMap(Context context) {
+  /**
+   * Returns the {@link DialpadTable} for the system's 1st language preference. Tables are built on
+   * first use per language, so a locale change switches to another table.
+   */
+  public static DialpadTable getDialpadTable(Context context) {
     String languageCode = LocaleUtils.getLocale(context).getISO3Language();
+    // Languages without an extra map share the table of the default map.
+    String key = EXTRA_MAPS.containsKey(languageCode) ? languageCode : "";
+    synchronized (DIALPAD_TABLES) {
+      DialpadTable table = DIALPAD_TABLES.get(key);
+      if (table == null) {
+        table = new DialpadTable(getExtraMap(languageCode));
+        DIALPAD_TABLES.put(key, table);
+      }
+      return table;
+    }
+  }
+
+  private static Optional<SmartDialMap> getExtraMap(Context context) {
+    return getExtraMap(LocaleUtils.getLocale(context).getISO3Language());
+  }
+
+  private static Optional<SmartDialMap> getExtraMap(String languageCode) {
     return EXTRA_MAPS.containsKey(languageCode)
         ? Optional.of(EXTRA_MAPS.get(languageCode))
         : Optional.empty();
   }
+
+  /**
+   * Precomputed mapping from characters to the dialpad digit they are typed with, for one
+   * combination of default and extra map.
+   *
+   * <p>Looking characters up in the maps goes through {@link Optional} and the locale for every
+   * character. This table answers the combined question of {@link #normalizeCharacter}, {@link
+   * #isValidDialpadCharacter} and {@link #getDialpadNumericCharacter} with one array access for all
+   * characters the maps know about, and falls back to the maps for any other character.
+   */
+  public static final class DialpadTable {
+
+    /** Covers Latin-1, Latin Extended and Cyrillic, which is everything the maps know about. */
+    private static final int TABLE_SIZE = 0x0500;
+
+    private final Optional<SmartDialMap> extraMap;
+    private final char[] table = new char[TABLE_SIZE];
+
+    private DialpadTable(Optional<SmartDialMap> extraMap) {
+      this.extraMap = extraMap;
+      for (char ch = 0; ch < TABLE_SIZE; ch++) {
+        table[ch] = compute(ch);
+      }
+    }
+
+    /**
+     * Returns the digit of the dialpad key the character is typed with, i.e. the digit itself or
+     * the key of a (normalized) letter, or {@code 0} if the character can't be typed on the dialpad
+     * and separates name tokens.
+     */
+    public char getDialpadDigit(char ch) {
+      return ch < TABLE_SIZE ? table[ch] : compute(ch);
+    }
+
+    /** Returns true if the character is a digit on the dialpad. */
+    public boolean isDialpadNumericChar(char ch) {
+      return isValidDialpadNumericChar(extraMap, ch);
+    }
+
+    private char compute(char ch) {
+      char normalized = normalizeCharacter(extraMap, ch);
+      if (!isValidDialpadCharacter(extraMap, normalized)) {
+        return 0;
+      }
+      return isValidDialpadAlphabeticChar(extraMap, normalized)
+          ? getDialpadNumericCharacter(extraMap, normalized)
+          : normalized;
+    }
+  }
 }
@@ -23,6 +23,7 @@ import android.text.TextUtils;
 import androidx.annotation.Nullable;
 
 import com.android.dialer.smartdial.map.CompositeSmartDialMap;
+import com.android.dialer.smartdial.map.CompositeSmartDialMap.DialpadTable;
 import com.android.dialer.smartdial.util.SmartDialPrefix.PhoneNumberTokens;
 
 import java.util.ArrayList;
@@ -43,6 +44,9 @@ public class SmartDialNameMatcher {
   private static final int INITIAL_LENGTH_LIMIT = 1;
 
   private final ArrayList<SmartDialMatchPosition> matchPositions = new ArrayList<>();
+
+  // Dialpad digits of the display name being matched, reused between names
+  private char[] dialpadDigits = new char[32];
   private String query;
 
   // Controls whether to treat an empty query as a match (with anything).
@@ -70,41 +74,17 @@ public class SmartDialNameMatcher {
    * @return Phone number consisting of digits from 0-9
    */
   public static String normalizeNumber(Context context, String number, int offset) {
+    DialpadTable dialpadTable = CompositeSmartDialMap.getDialpadTable(context);
     final StringBuilder s = new StringBuilder();
     for (int i = offset; i < number.length(); i++) {
       char ch = number.charAt(i);
-      if (CompositeSmartDialMap.isValidDialpadNumericChar(context, ch)) {
+      if (dialpadTable.isDialpadNumericChar(ch)) {
         s.append(ch);
       }
     }
     return s.toString();
   }
 
-  /**
-   * Constructs empty highlight mask. Bit 0 at a position means there is no match, Bit 1 means there
-   * is a match and should be highlighted in the TextView.
-   *
-   * @param builder StringBuilder object
-   * @param length Length of the desired mask.
-   */
-  private void constructEmptyMask(StringBuilder builder, int length) {
-    for (int i = 0; i < length; ++i) {
-      builder.append("0");
-    }
-  }
-
-  /**
-   * Replaces the 0-bit at a position with 1-bit, indicating that there is a match.
-   *
-   * @param builder StringBuilder object.
-   * @param matchPos Match Positions to mask as 1.
-   */
-  private void replaceBitInMask(StringBuilder builder, SmartDialMatchPosition matchPos) {
-    for (int i = matchPos.start; i < matchPos.end; ++i) {
-      builder.replace(i, i + 1, "1");
-    }
-  }
-
   /**
    * Matches a phone number against a query. Let the test application overwrite the NANP setting.
    *
@@ -118,28 +98,25 @@ public class SmartDialNameMatcher {
     if (TextUtils.isEmpty(phoneNumber)) {
       return shouldMatchEmptyQuery ? new SmartDialMatchPosition(0, 0) : null;
     }
-    StringBuilder builder = new StringBuilder();
-    constructEmptyMask(builder, phoneNumber.length());
+    DialpadTable dialpadTable = CompositeSmartDialMap.getDialpadTable(context);
 
     // Try matching the number as is
     SmartDialMatchPosition matchPos =
-        matchesNumberWithOffset(context, phoneNumber, query, /* offset = */ 0);
+        matchesNumberWithOffset(dialpadTable, phoneNumber, query, /* offset = */ 0);
     if (matchPos == null) {
       PhoneNumberTokens phoneNumberTokens = SmartDialPrefix.parsePhoneNumber(context, phoneNumber);
 
       if (phoneNumberTokens.countryCodeOffset != 0) {
         matchPos =
             matchesNumberWithOffset(
-                context, phoneNumber, query, phoneNumberTokens.countryCodeOffset);
+                dialpadTable, phoneNumber, query, phoneNumberTokens.countryCodeOffset);
       }
       if (matchPos == null && phoneNumberTokens.nanpCodeOffset != 0) {
         matchPos =
-            matchesNumberWithOffset(context, phoneNumber, query, phoneNumberTokens.nanpCodeOffset);
+            matchesNumberWithOffset(
+                dialpadTable, phoneNumber, query, phoneNumberTokens.nanpCodeOffset);
       }
     }
-    if (matchPos != null) {
-      replaceBitInMask(builder, matchPos);
-    }
     return matchPos;
   }
 
@@ -166,7 +143,7 @@ public class SmartDialNameMatcher {
    *     with the matching positions otherwise
    */
   private SmartDialMatchPosition matchesNumberWithOffset(
-      Context context, String phoneNumber, String query, int offset) {
+      DialpadTable dialpadTable, String phoneNumber, String query, int offset) {
     if (TextUtils.isEmpty(phoneNumber) || TextUtils.isEmpty(query)) {
       return shouldMatchEmptyQuery ? new SmartDialMatchPosition(offset, offset) : null;
     }
@@ -177,7 +154,7 @@ public class SmartDialNameMatcher {
         break;
       }
       char ch = phoneNumber.charAt(i);
-      if (CompositeSmartDialMap.isValidDialpadNumericChar(context, ch)) {
+      if (dialpadTable.isDialpadNumericChar(ch)) {
         if (ch != query.charAt(queryAt)) {
           return null;
         }
@@ -221,26 +198,31 @@ public class SmartDialNameMatcher {
    * <p>Also, a match can extend across tokens. For example, typing 37337(FredS) would match (Fred
    * S)mith.
    *
-   * @param displayName The normalized(no accented characters) display name we intend to match
-   *     against.
+   * <p>The display name is passed as its dialpad digits, see {@link DialpadTable#getDialpadDigit},
+   * so no character has to be looked up more than once. Tokens are matched in place between {@code
+   * nameFrom} and {@code nameEnd} instead of on substrings.
+   *
+   * @param name The dialpad digits of the display name, {@code 0} for separators.
+   * @param nameFrom The index in {@code name} to start matching at.
+   * @param nameEnd The end of the display name in {@code name}.
    * @param query The string of digits that we want to match the display name to.
+   * @param queryFrom The index in {@code query} to start matching at.
    * @param matchList An array list of {@link SmartDialMatchPosition}s that we add matched positions
-   *     to.
+   *     to, or {@code null} if only the result is needed. Positions are indices in {@code name}.
    * @return Returns true if a combination of the tokens in displayName match the query string
    *     contained in query. If the function returns true, matchList will contain an ArrayList of
    *     match positions (multiple matches correspond to initial matches).
    */
-  private boolean matchesCombination(
-      Context context,
-      String displayName,
+  private static boolean matchesCombination(
+      char[] name,
+      int nameFrom,
+      int nameEnd,
       String query,
-      ArrayList<SmartDialMatchPosition> matchList) {
-    StringBuilder builder = new StringBuilder();
-    constructEmptyMask(builder, displayName.length());
-    final int nameLength = displayName.length();
-    final int queryLength = query.length();
+      int queryFrom,
+      @Nullable ArrayList<SmartDialMatchPosition> matchList) {
+    final int queryLength = query.length() - queryFrom;
 
-    if (nameLength < queryLength) {
+    if (nameEnd - nameFrom < queryLength) {
       return false;
     }
 
@@ -248,15 +230,15 @@ public class SmartDialNameMatcher {
       return false;
     }
 
-    // The current character index in displayName
+    // The current character index in name
     // E.g. 3 corresponds to 'd' in "Fred Smith"
-    int nameStart = 0;
+    int nameStart = nameFrom;
 
-    // The current character in the query we are trying to match the displayName against
+    // The current character in the query we are trying to match the name against
     int queryStart = 0;
 
     // The start position of the current token we are inspecting
-    int tokenStart = 0;
+    int tokenStart = nameFrom;
 
     // The number of non-alphabetic characters we've encountered so far in the current match.
     // E.g. if we've currently matched 3733764849 to (Fred Smith W)illiam, then the
@@ -264,17 +246,12 @@ public class SmartDialNameMatcher {
     // positions
     int seperatorCount = 0;
 
-    ArrayList<SmartDialMatchPosition> partial = new ArrayList<>();
-    // Keep going until we reach the end of displayName
-    while (nameStart < nameLength && queryStart < queryLength) {
-      char ch = displayName.charAt(nameStart);
-      // Strip diacritics from accented characters if any
-      ch = CompositeSmartDialMap.normalizeCharacter(context, ch);
-      if (CompositeSmartDialMap.isValidDialpadCharacter(context, ch)) {
-        if (CompositeSmartDialMap.isValidDialpadAlphabeticChar(context, ch)) {
-          ch = CompositeSmartDialMap.getDialpadNumericCharacter(context, ch);
-        }
-        if (ch != query.charAt(queryStart)) {
+    ArrayList<SmartDialMatchPosition> partial = null;
+    // Keep going until we reach the end of name
+    while (nameStart < nameEnd && queryStart < queryLength) {
+      char ch = name[nameStart];
+      if (ch != 0) {
+        if (ch != query.charAt(queryFrom + queryStart)) {
           // Failed to match the current character in the query.
 
           // Case 1: Failed to match the first character in the query. Skip to the next
@@ -291,17 +268,9 @@ public class SmartDialNameMatcher {
           // Yo-Yoghurt because the query match would fail on the 3rd character, and
           // then skip to the end of the "Yoghurt" token.
 
-          if (queryStart == 0
-              || CompositeSmartDialMap.isValidDialpadCharacter(
-                  context,
-                  CompositeSmartDialMap.normalizeCharacter(
-                      context, displayName.charAt(nameStart - 1)))) {
+          if (queryStart == 0 || name[nameStart - 1] != 0) {
             // skip to the next token, in the case of 1 or 2.
-            while (nameStart < nameLength
-                && CompositeSmartDialMap.isValidDialpadCharacter(
-                    context,
-                    CompositeSmartDialMap.normalizeCharacter(
-                        context, displayName.charAt(nameStart)))) {
+            while (nameStart < nameEnd && name[nameStart] != 0) {
               nameStart++;
             }
             nameStart++;
@@ -316,10 +285,10 @@ public class SmartDialNameMatcher {
 
             // As much as possible, we prioritize a full token match over a sub token
             // one so if we find a full token match, we can return right away
-            matchList.add(
-                new SmartDialMatchPosition(tokenStart, queryLength + tokenStart + seperatorCount));
-            for (SmartDialMatchPosition match : matchList) {
-              replaceBitInMask(builder, match);
+            if (matchList != null) {
+              matchList.add(
+                  new SmartDialMatchPosition(
+                      tokenStart, queryLength + tokenStart + seperatorCount));
             }
             return true;
           } else if (ALLOW_INITIAL_MATCH && queryStart < INITIAL_LENGTH_LIMIT) {
@@ -328,22 +297,22 @@ public class SmartDialNameMatcher {
             // characters in the query string and the remaining tokens
             // find the next separator in the query string
             int j;
-            for (j = nameStart; j < nameLength; j++) {
-              if (!CompositeSmartDialMap.isValidDialpadCharacter(
-                  context,
-                  CompositeSmartDialMap.normalizeCharacter(context, displayName.charAt(j)))) {
+            for (j = nameStart; j < nameEnd; j++) {
+              if (name[j] == 0) {
                 break;
               }
             }
             // this means there is at least one character left after the separator
-            if (j < nameLength - 1) {
-              final String remainder = displayName.substring(j + 1);
-              final ArrayList<SmartDialMatchPosition> partialTemp = new ArrayList<>();
+            if (j < nameEnd - 1) {
+              final ArrayList<SmartDialMatchPosition> partialTemp =
+                  matchList != null ? new ArrayList<>() : null;
               if (matchesCombination(
-                  context, remainder, query.substring(queryStart + 1), partialTemp)) {
-
+                  name, j + 1, nameEnd, query, queryFrom + queryStart + 1, partialTemp)) {
+                if (matchList == null) {
+                  // Any partial match makes this a match, no need to look for a full one.
+                  return true;
+                }
                 // store the list of possible match positions
-                SmartDialMatchPosition.advanceMatchPositions(partialTemp, j + 1);
                 partialTemp.add(0, new SmartDialMatchPosition(nameStart, nameStart + 1));
                 // we found a partial token match, store the data in a
                 // temp buffer and return it if we end up not finding a full
@@ -375,11 +344,8 @@ public class SmartDialNameMatcher {
     // if we have no complete match at this point, then we attempt to fall back to the partial
     // token match(if any). If we don't allow initial matching (ALLOW_INITIAL_MATCH = false)
     // then partial will always be empty.
-    if (!partial.isEmpty()) {
+    if (partial != null && !partial.isEmpty()) {
       matchList.addAll(partial);
-      for (SmartDialMatchPosition match : matchList) {
-        replaceBitInMask(builder, match);
-      }
       return true;
     }
     return false;
@@ -411,7 +377,30 @@ public class SmartDialNameMatcher {
    */
   public boolean matches(Context context, String displayName) {
     matchPositions.clear();
-    return matchesCombination(context, displayName, query, matchPositions);
+    int length = mapToDialpadDigits(context, displayName);
+    return matchesCombination(dialpadDigits, 0, length, query, 0, matchPositions);
+  }
+
+  /**
+   * Like {@link #matches}, but doesn't compute the match positions, which makes it allocation free.
+   * Use this when only filtering names, e.g. when looking for smart dial candidates.
+   */
+  public boolean matchesWithoutPositions(Context context, String displayName) {
+    int length = mapToDialpadDigits(context, displayName);
+    return matchesCombination(dialpadDigits, 0, length, query, 0, null);
+  }
+
+  /** Maps the display name into {@link #dialpadDigits}, returning its length. */
+  private int mapToDialpadDigits(Context context, String displayName) {
+    DialpadTable dialpadTable = CompositeSmartDialMap.getDialpadTable(context);
+    int length = displayName.length();
+    if (dialpadDigits.length < length) {
+      dialpadDigits = new char[Math.max(length, dialpadDigits.length * 2)];
+    }
+    for (int i = 0; i < length; i++) {
+      dialpadDigits[i] = dialpadTable.getDialpadDigit(displayName.charAt(i));
+    }
+    return length;
   }
 
   public ArrayList<SmartDialMatchPosition> getMatchPositions() {
@@ -25,6 +25,7 @@ import android.text.TextUtils;
 import androidx.preference.PreferenceManager;
 
 import com.android.dialer.smartdial.map.CompositeSmartDialMap;
+import com.android.dialer.smartdial.map.CompositeSmartDialMap.DialpadTable;
 
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -97,7 +98,8 @@ public class SmartDialPrefix {
   public static ArrayList<String> parseToIndexTokens(Context context, String contactName) {
     final int length = contactName.length();
     final ArrayList<String> result = new ArrayList<>();
-    char c;
+    final DialpadTable dialpadTable = CompositeSmartDialMap.getDialpadTable(context);
+    char digit;
     final StringBuilder currentIndexToken = new StringBuilder();
     /**
      * Iterates through the whole name string. If the current character is a valid character, append
@@ -105,10 +107,10 @@ public class SmartDialPrefix {
      * " ", mark the current token as complete and add it to the list of tokens.
      */
     for (int i = 0; i < length; i++) {
-      c = CompositeSmartDialMap.normalizeCharacter(context, contactName.charAt(i));
-      if (CompositeSmartDialMap.isValidDialpadCharacter(context, c)) {
-        /** Converts a character into the number on dialpad that represents the character. */
-        currentIndexToken.append(CompositeSmartDialMap.getDialpadIndex(context, c));
+      /** Converts a character into the number on dialpad that represents the character. */
+      digit = dialpadTable.getDialpadDigit(contactName.charAt(i));
+      if (digit != 0) {
+        currentIndexToken.append(digit);
       } else {
         if (currentIndexToken.length() != 0) {
           result.add(currentIndexToken.toString());
@@ -16,10 +16,36 @@
 
 package com.android.dialer.spam;
 
+import android.content.Context;
 import android.provider.CallLog.Calls;
+import android.telephony.PhoneNumberUtils;
+import android.text.TextUtils;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
 
 /** Allows the container application to mark calls as spam. */
 public class Spam {
+
+  /** Score in the {@link SpamDatabase} from which on a number is spam. */
+  public static final int SPAM_SCORE_THRESHOLD = 70;
+
+  /** Returns whether a score from the {@link SpamDatabase} marks its number as spam. */
+  public static boolean isSpamScore(int score) {
+    return score >= SPAM_SCORE_THRESHOLD;
+  }
+
+  /** Returns whether the number is spam according to the {@link SpamDatabase}. */
+  @WorkerThread
+  public static boolean isSpam(
+      Context context, @Nullable String number, @Nullable String countryIso) {
+    if (TextUtils.isEmpty(number)) {
+      return false;
+    }
+    String e164Number = PhoneNumberUtils.formatNumberToE164(number, countryIso);
+    return isSpamScore(SpamDatabase.getInstance(context).getScore(e164Number));
+  }
+
   /**
    * Given a number's spam status and a call type, determine if the call should be shown as spam.
    *
@@ -0,0 +1,377 @@
+/*
+ * SPDX-FileCopyrightText: The LineageOS Project
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.android.dialer.spam;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.text.TextUtils;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.android.dialer.R;
+import com.android.dialer.common.Assert;
+import com.android.dialer.common.LogUtil;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Files;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Offline reputation scores of phone numbers, read from a memory-mapped file.
+ *
+ * <p>The file holds ranges of E.164 numbers, each with a score from 0 (trusted) to 100 (spam). A
+ * range is either a single number or all numbers starting with a prefix, e.g. "+1900". Numbers are
+ * compared as keys: their digits padded with zeros to {@link #MAX_DIGITS}, followed by their digit
+ * count in the low 4 bits. All numbers starting with a prefix then have keys between the keys of
+ * the prefix padded with zeros and with nines, and a lookup is a binary search over the ranges.
+ *
+ * <p>The file is big-endian:
+ *
+ * <ul>
+ *   <li>header: magic ({@link #MAGIC}), format version ({@link #FORMAT_VERSION}), data version
+ *       (long, increased by every update), range count, and 4 reserved bytes
+ *   <li>ranges, sorted and not overlapping: first key (long), last key (long), score (byte)
+ * </ul>
+ *
+ * <p>Whoever builds the file splits ranges nested in a prefix, so that they don't overlap. The
+ * file is mapped, not read, so only the pages a lookup touches are loaded, and not onto the heap.
+ *
+ * <p>Updates are written to {@link #getUpdateFile()} and passed to {@link #install(File)}, which
+ * renames the file into place and maps it. Lookups in progress finish on the previous mapping.
+ *
+ * <p>Devices provision the database by shipping a file at the path set in the {@code
+ * config_spam_reputation_database} resource overlay. It is installed when the database is first
+ * opened, if its data version is newer than the installed one.
+ */
+public final class SpamDatabase {
+
+  /** Score of numbers not in the database. */
+  public static final int SCORE_UNKNOWN = -1;
+
+  static final int MAGIC = 0x44535052; // "DSPR"
+  static final int FORMAT_VERSION = 1;
+
+  /** The longest E.164 number has 15 digits. */
+  static final int MAX_DIGITS = 15;
+
+  private static final int HEADER_SIZE = 24;
+  private static final int RANGE_SIZE = 17;
+
+  private static final String DIRECTORY_NAME = "spam";
+  private static final String FILE_NAME = "reputation.db";
+  private static final String UPDATE_FILE_NAME = "reputation.db.update";
+
+  private static final long[] POWERS_OF_TEN = new long[MAX_DIGITS + 1];
+
+  static {
+    POWERS_OF_TEN[0] = 1;
+    for (int i = 1; i <= MAX_DIGITS; i++) {
+      POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+  }
+
+  private static SpamDatabase instance;
+
+  private final File directory;
+
+  /** The file shipped with the device, null if none is configured. */
+  @Nullable private final File provisionedFile;
+
+  /** Null until opened, and when there is no valid file. */
+  @Nullable private volatile Table table;
+
+  /** Set once {@link #table} was opened, so lookups don't need to lock. */
+  private volatile boolean opened;
+
+  private SpamDatabase(File directory, @Nullable File provisionedFile) {
+    this.directory = directory;
+    this.provisionedFile = provisionedFile;
+  }
+
+  public static synchronized SpamDatabase getInstance(Context context) {
+    if (instance == null) {
+      Context appContext = context.getApplicationContext();
+      String provisionedPath = appContext.getString(R.string.config_spam_reputation_database);
+      instance =
+          new SpamDatabase(
+              new File(appContext.getFilesDir(), DIRECTORY_NAME),
+              TextUtils.isEmpty(provisionedPath) ? null : new File(provisionedPath));
+    }
+    return instance;
+  }
+
+  /** Returns the file updates are written to before they are passed to {@link #install(File)}. */
+  public File getUpdateFile() {
+    directory.mkdirs();
+    return new File(directory, UPDATE_FILE_NAME);
+  }
+
+  /** Returns the data version of the installed file, or 0 if there is none. */
+  @WorkerThread
+  public long getDataVersion() {
+    Table current = getTable();
+    return current == null ? 0 : current.dataVersion;
+  }
+
+  /**
+   * Returns the score of the E.164 number, from 0 (trusted) to 100 (spam), or {@link
+   * #SCORE_UNKNOWN} if the database has none.
+   */
+  @WorkerThread
+  public int getScore(@Nullable String e164Number) {
+    Table current = getTable();
+    long key = getKey(e164Number);
+    if (current == null || key == -1) {
+      return SCORE_UNKNOWN;
+    }
+    return current.getScore(key, 0);
+  }
+
+  /**
+   * Returns the scores of those of the E.164 numbers that have one.
+   *
+   * <p>The numbers are looked up in order, so each search starts where the previous one ended and
+   * consecutive lookups mostly touch the same pages.
+   */
+  @WorkerThread
+  public ImmutableMap<String, Integer> getScores(Collection<String> e164Numbers) {
+    Assert.isWorkerThread();
+    Table current = getTable();
+    if (current == null || e164Numbers.isEmpty()) {
+      return ImmutableMap.of();
+    }
+    Trace.beginSection("SpamDatabase.getScores");
+    long startMillis = SystemClock.elapsedRealtime();
+
+    // Sort the keys together with the index of their number.
+    String[] numbers = ImmutableSet.copyOf(e164Numbers).toArray(new String[0]);
+    long[][] keys = new long[numbers.length][];
+    int keyCount = 0;
+    for (int i = 0; i < numbers.length; i++) {
+      long key = getKey(numbers[i]);
+      if (key != -1) {
+        keys[keyCount++] = new long[] {key, i};
+      }
+    }
+    Arrays.sort(keys, 0, keyCount, (a, b) -> Long.compare(a[0], b[0]));
+
+    ImmutableMap.Builder<String, Integer> scores = ImmutableMap.builder();
+    int scoredCount = 0;
+    int fromRange = 0;
+    for (int i = 0; i < keyCount; i++) {
+      long key = keys[i][0];
+      int range = current.findRange(key, fromRange);
+      if (range == -1) {
+        continue;
+      }
+      fromRange = range;
+      if (key <= current.getLastKey(range)) {
+        scores.put(numbers[(int) keys[i][1]], current.getRangeScore(range));
+        scoredCount++;
+      }
+    }
+    ImmutableMap<String, Integer> result = scores.build();
+    LogUtil.i(
+        "SpamDatabase.getScores",
+        "scored %d of %d numbers against %d ranges in %d ms",
+        scoredCount,
+        numbers.length,
+        current.rangeCount,
+        SystemClock.elapsedRealtime() - startMillis);
+    Trace.endSection();
+    return result;
+  }
+
+  /**
+   * Replaces the installed file with the update, if it is a valid database. The update has to be
+   * in the same directory as the installed file, e.g. {@link #getUpdateFile()}, so that replacing
+   * it is an atomic rename.
+   *
+   * @return whether the update was installed
+   */
+  @WorkerThread
+  public boolean install(File update) {
+    Assert.isWorkerThread();
+    Table updated = Table.open(update);
+    if (updated == null) {
+      LogUtil.e("SpamDatabase.install", "not a valid database: %s", update);
+      update.delete();
+      return false;
+    }
+    synchronized (this) {
+      if (!update.renameTo(new File(directory, FILE_NAME))) {
+        LogUtil.e("SpamDatabase.install", "failed to rename %s", update);
+        return false;
+      }
+      // The mapping stays valid after the rename, and the previous one until it is collected.
+      table = updated;
+      opened = true;
+    }
+    LogUtil.i(
+        "SpamDatabase.install",
+        "installed data version %d with %d ranges",
+        updated.dataVersion,
+        updated.rangeCount);
+    return true;
+  }
+
+  @WorkerThread
+  @Nullable
+  private Table getTable() {
+    if (opened) {
+      return table;
+    }
+    synchronized (this) {
+      if (!opened) {
+        File file = new File(directory, FILE_NAME);
+        if (file.exists()) {
+          table = Table.open(file);
+        }
+        installProvisionedFile();
+        opened = true;
+      }
+      return table;
+    }
+  }
+
+  /** Installs the file shipped with the device, if it is newer than the installed one. */
+  @WorkerThread
+  private void installProvisionedFile() {
+    if (provisionedFile == null || !provisionedFile.exists()) {
+      return;
+    }
+    Table provisioned = Table.open(provisionedFile);
+    Table current = table;
+    if (provisioned == null
+        || (current != null && provisioned.dataVersion <= current.dataVersion)) {
+      return;
+    }
+    File update = getUpdateFile();
+    try {
+      Files.copy(provisionedFile, update);
+    } catch (IOException e) {
+      LogUtil.e("SpamDatabase.installProvisionedFile", "failed to copy " + provisionedFile, e);
+      update.delete();
+      return;
+    }
+    install(update);
+  }
+
+  /**
+   * Returns the key of the E.164 number, or -1 if it isn't one.
+   *
+   * @see SpamDatabase
+   */
+  static long getKey(@Nullable String e164Number) {
+    if (TextUtils.isEmpty(e164Number) || e164Number.charAt(0) != '+') {
+      return -1;
+    }
+    int digitCount = e164Number.length() - 1;
+    if (digitCount == 0 || digitCount > MAX_DIGITS) {
+      return -1;
+    }
+    long digits = 0;
+    for (int i = 1; i < e164Number.length(); i++) {
+      char c = e164Number.charAt(i);
+      if (c < '0' || c > '9') {
+        return -1;
+      }
+      digits = digits * 10 + (c - '0');
+    }
+    return (digits * POWERS_OF_TEN[MAX_DIGITS - digitCount]) << 4 | digitCount;
+  }
+
+  /** A mapped database file. */
+  private static final class Table {
+
+    private final ByteBuffer buffer;
+    private final long dataVersion;
+    private final int rangeCount;
+
+    private Table(ByteBuffer buffer, long dataVersion, int rangeCount) {
+      this.buffer = buffer;
+      this.dataVersion = dataVersion;
+      this.rangeCount = rangeCount;
+    }
+
+    /** Maps the file, or returns null if it isn't a valid database. */
+    @Nullable
+    static Table open(File file) {
+      try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+          FileChannel channel = randomAccessFile.getChannel()) {
+        long size = channel.size();
+        if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+          return null;
+        }
+        // The mapping outlives the channel.
+        ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+          return null;
+        }
+        long dataVersion = buffer.getLong(8);
+        int rangeCount = buffer.getInt(16);
+        if (rangeCount < 0 || size != HEADER_SIZE + (long) rangeCount * RANGE_SIZE) {
+          return null;
+        }
+        return new Table(buffer, dataVersion, rangeCount);
+      } catch (IOException e) {
+        LogUtil.e("SpamDatabase.Table.open", "failed to map " + file, e);
+        return null;
+      }
+    }
+
+    /** Returns the score of the key, searching the ranges from {@code fromRange}. */
+    int getScore(long key, int fromRange) {
+      int range = findRange(key, fromRange);
+      if (range == -1 || key > getLastKey(range)) {
+        return SCORE_UNKNOWN;
+      }
+      return getRangeScore(range);
+    }
+
+    /**
+     * Returns the last range from {@code fromRange} whose first key is at most {@code key}, or -1
+     * if there is none. Only that range can contain the key.
+     */
+    int findRange(long key, int fromRange) {
+      // Absolute reads don't change the buffer, so lookups can run concurrently.
+      int low = fromRange;
+      int high = rangeCount - 1;
+      int found = -1;
+      while (low <= high) {
+        int middle = (low + high) >>> 1;
+        if (getFirstKey(middle) <= key) {
+          found = middle;
+          low = middle + 1;
+        } else {
+          high = middle - 1;
+        }
+      }
+      return found;
+    }
+
+    long getFirstKey(int range) {
+      return buffer.getLong(HEADER_SIZE + range * RANGE_SIZE);
+    }
+
+    long getLastKey(int range) {
+      return buffer.getLong(HEADER_SIZE + range * RANGE_SIZE + 8);
+    }
+
+    int getRangeScore(int range) {
+      return buffer.get(HEADER_SIZE + range * RANGE_SIZE + 16);
+    }
+  }
+}
@@ -24,11 +24,12 @@ import android.content.OperationApplicationException;
 import android.database.Cursor;
 import android.net.Uri;
 import android.os.RemoteException;
+import android.os.SystemClock;
 import android.os.Trace;
 import android.provider.ContactsContract;
 import android.provider.ContactsContract.CommonDataKinds.Phone;
 import android.provider.ContactsContract.Contacts;
-import android.util.ArrayMap;
+import android.provider.ContactsContract.DeletedContacts;
 import android.util.ArraySet;
 
 import androidx.annotation.WorkerThread;
@@ -58,6 +59,7 @@ import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -72,14 +74,15 @@ import javax.inject.Singleton;
  *
  * @see #loadSpeedDialUiItems()
  *     <ol>
+ *       <li>Update the {@link SpeedDialUiItem} of each starred contact in {@link
+ *           Phone#CONTENT_URI}, querying only contacts updated or deleted since the last load.
  *       <li>Retrieve the list of {@link SpeedDialEntry} from {@link SpeedDialEntryDatabaseHelper}.
- *       <li>Build a list of {@link SpeedDialUiItem} based on {@link SpeedDialEntry#lookupKey()} in
- *           {@link Phone#CONTENT_URI}.
+ *       <li>Update the contact id and lookup key of each {@link SpeedDialEntry} that doesn't match
+ *           a starred contact.
  *       <li>Remove any {@link SpeedDialEntry} that is no longer starred or whose contact was
  *           deleted.
- *       <li>Update each {@link SpeedDialEntry} contact id, lookup key and channel.
- *       <li>Build a list of {@link SpeedDialUiItem} from starred contacts.
- *       <li>If any contacts in that list aren't in the {@link SpeedDialEntryDatabaseHelper}, insert
+ *       <li>Update each {@link SpeedDialEntry} contact id, lookup key and channel, if changed.
+ *       <li>If any starred contacts aren't in the {@link SpeedDialEntryDatabaseHelper}, insert
  *           them now.
  *       <li>Notify the {@link SuccessListener} of the complete list of {@link SpeedDialUiItem
  *           SpeedDialContacts} composed from {@link SpeedDialEntry SpeedDialEntries} and
@@ -96,6 +99,15 @@ public final class SpeedDialUiItemMutator {
   private final ContactDisplayPreferences contactDisplayPreferences;
   private final HighResolutionPhotoRequester highResolutionPhotoRequester;
 
+  // The starred contacts as of the last refresh, so a refresh only queries contacts that changed
+  // since. Only accessed by the refresh flows, which run one at a time.
+  /** Starred contacts by contact id, in the order they were first found starred. */
+  private final Map<Long, SpeedDialUiItem> starredContacts = new LinkedHashMap<>();
+  /** {@link Contacts#CONTACT_LAST_UPDATED_TIMESTAMP} up to which the starred contacts are known. */
+  private long starredContactsTimestamp = -1;
+  private boolean starredContactsPrimaryDisplayOrder;
+  private boolean starredContactsVideoEnabled;
+
   @Inject
   public SpeedDialUiItemMutator(
       @ApplicationContext Context appContext,
@@ -182,6 +194,15 @@ public final class SpeedDialUiItemMutator {
             contentValues,
             Contacts._ID + " = ?",
             new String[] {Long.toString(speedDialUiItem.contactId())});
+    invalidateStarredContacts();
+  }
+
+  /**
+   * Makes the next refresh query all starred contacts. Called after starring or unstarring, which
+   * may not update {@link Contacts#CONTACT_LAST_UPDATED_TIMESTAMP}.
+   */
+  private void invalidateStarredContacts() {
+    starredContactsTimestamp = -1;
   }
 
   /**
@@ -225,6 +246,7 @@ public final class SpeedDialUiItemMutator {
                 values,
                 Contacts._ID + " = ?",
                 new String[] {Long.toString(item.contactId())});
+        invalidateStarredContacts();
       }
 
       // Insert a new entry into the SpeedDialEntry database
@@ -237,6 +259,13 @@ public final class SpeedDialUiItemMutator {
   private ImmutableList<SpeedDialUiItem> loadSpeedDialUiItemsInternal() {
     Trace.beginSection("loadSpeedDialUiItemsInternal");
     Assert.isWorkerThread();
+    long startMillis = SystemClock.elapsedRealtime();
+
+    // Bring the starred contacts up to date, only querying those that changed since last time.
+    Trace.beginSection("refreshStarredContacts");
+    int refreshedContacts = refreshStarredContacts();
+    Trace.endSection(); // refreshStarredContacts
+
     Trace.beginSection("getAllEntries");
     SpeedDialEntryDao db = getSpeedDialEntryDao();
     Trace.endSection(); // getAllEntries
@@ -251,44 +280,43 @@ public final class SpeedDialUiItemMutator {
 
     // Get all SpeedDialEntries and update their contact ids and lookupkeys.
     List<SpeedDialEntry> entries = db.getAllEntries();
-    entries = updateContactIdsAndLookupKeys(entries);
-
-    // Build SpeedDialUiItems from our updated entries.
-    Map<SpeedDialEntry, SpeedDialUiItem> entriesToUiItems = getSpeedDialUiItemsFromEntries(entries);
-    Assert.checkArgument(
-        entries.size() == entriesToUiItems.size(),
-        "Updated entries are incomplete: " + entries.size() + " != " + entriesToUiItems.size());
+    int[] lookupCount = new int[1];
+    entries = updateContactIdsAndLookupKeys(entries, lookupCount);
 
     // Mark the SpeedDialEntries to be updated or deleted
     Trace.beginSection("updateOrDeleteEntries");
+    Set<Long> contactIdsWithEntries = new ArraySet<>();
     for (SpeedDialEntry entry : entries) {
-      SpeedDialUiItem contact = entriesToUiItems.get(entry);
+      SpeedDialUiItem contact = starredContacts.get(entry.contactId());
       // Remove contacts that no longer exist or are no longer starred
       if (contact == null || !contact.isStarred()) {
         entriesToDelete.add(entry.id());
         continue;
       }
+      contact = getSpeedDialUiItemForEntry(contact, entry);
 
-      // Contact exists, so update its entry in SpeedDialEntry Database
-      entriesToUpdate.add(
+      // Contact exists, so update its entry in SpeedDialEntry Database if anything changed
+      SpeedDialEntry updatedEntry =
           entry
               .toBuilder()
               .setLookupKey(contact.lookupKey())
               .setContactId(contact.contactId())
               .setDefaultChannel(contact.defaultChannel())
-              .build());
+              .build();
+      if (!updatedEntry.equals(entry)) {
+        entriesToUpdate.add(updatedEntry);
+      }
 
       // These are our existing starred entries
       speedDialUiItems.add(contact);
+      contactIdsWithEntries.add(contact.contactId());
     }
     Trace.endSection(); // updateOrDeleteEntries
 
-    // Get all starred contacts
-    List<SpeedDialUiItem> starredContacts = getStarredContacts();
     // If it is starred and not already accounted for above, then insert into the SpeedDialEntry DB.
     Trace.beginSection("addStarredContact");
-    for (SpeedDialUiItem contact : starredContacts) {
-      if (speedDialUiItems.stream().noneMatch(c -> c.contactId() == contact.contactId())) {
+    for (SpeedDialUiItem contact : starredContacts.values()) {
+      if (!contactIdsWithEntries.contains(contact.contactId())) {
         entriesToInsert.add(contact.buildSpeedDialEntry());
 
         // These are our newly starred contacts
@@ -299,16 +327,125 @@ public final class SpeedDialUiItemMutator {
 
     Trace.beginSection("insertUpdateAndDelete");
     requestHighResolutionPhoto(entriesToInsert);
-    ImmutableMap<SpeedDialEntry, Long> insertedEntriesToIdsMap =
-        db.insertUpdateAndDelete(
-            ImmutableList.copyOf(entriesToInsert),
-            ImmutableList.copyOf(entriesToUpdate),
-            ImmutableList.copyOf(entriesToDelete));
+    ImmutableMap<SpeedDialEntry, Long> insertedEntriesToIdsMap = ImmutableMap.of();
+    if (!entriesToInsert.isEmpty() || !entriesToUpdate.isEmpty() || !entriesToDelete.isEmpty()) {
+      insertedEntriesToIdsMap =
+          db.insertUpdateAndDelete(
+              ImmutableList.copyOf(entriesToInsert),
+              ImmutableList.copyOf(entriesToUpdate),
+              ImmutableList.copyOf(entriesToDelete));
+    }
     Trace.endSection(); // insertUpdateAndDelete
     Trace.endSection(); // loadSpeedDialUiItemsInternal
+    LogUtil.i(
+        "SpeedDialUiItemMutator.loadSpeedDialUiItemsInternal",
+        "loaded in %d ms, contacts refreshed: %s, lookups: %d, inserted: %d, updated: %d,"
+            + " deleted: %d",
+        SystemClock.elapsedRealtime() - startMillis,
+        refreshedContacts == -1 ? "all" : Integer.toString(refreshedContacts),
+        lookupCount[0],
+        entriesToInsert.size(),
+        entriesToUpdate.size(),
+        entriesToDelete.size());
     return speedDialUiItemsWithUpdatedIds(speedDialUiItems, insertedEntriesToIdsMap);
   }
 
+  /**
+   * Updates {@link #starredContacts}. All of them are queried on the first refresh, or when the
+   * display order or video calling availability changed. Otherwise only contacts updated or
+   * deleted since the previous refresh are, if they are or were starred.
+   *
+   * @return the number of contacts refreshed, or -1 if all were
+   */
+  @WorkerThread
+  private int refreshStarredContacts() {
+    Assert.isWorkerThread();
+    // Taken before querying, changes made while querying are picked up by the next refresh.
+    long timestamp = System.currentTimeMillis();
+    boolean primaryDisplayOrder = isPrimaryDisplayNameOrder();
+    boolean videoEnabled = CallUtil.isVideoEnabled(appContext);
+    if (starredContactsTimestamp == -1
+        // The clock was set back, changes might be missed.
+        || timestamp < starredContactsTimestamp
+        || primaryDisplayOrder != starredContactsPrimaryDisplayOrder
+        || videoEnabled != starredContactsVideoEnabled) {
+      starredContacts.clear();
+      for (SpeedDialUiItem contact : getStarredContacts()) {
+        starredContacts.put(contact.contactId(), contact);
+      }
+      starredContactsTimestamp = timestamp;
+      starredContactsPrimaryDisplayOrder = primaryDisplayOrder;
+      starredContactsVideoEnabled = videoEnabled;
+      return -1;
+    }
+
+    Set<String> changedContactIds = getContactIdsChangedSince(starredContactsTimestamp);
+    for (String contactId : changedContactIds) {
+      starredContacts.remove(Long.parseLong(contactId));
+    }
+    // Contacts that were deleted or have no phone number anymore are not found, so stay removed.
+    for (SpeedDialUiItem contact : getContacts(changedContactIds)) {
+      if (contact.isStarred()) {
+        starredContacts.put(contact.contactId(), contact);
+      }
+    }
+    starredContactsTimestamp = timestamp;
+    return changedContactIds.size();
+  }
+
+  /**
+   * Returns the ids of the contacts updated or deleted at or after the given time, which are
+   * starred or were starred as of the previous refresh. Other changed contacts, e.g. of an account
+   * sync, don't affect the starred contacts.
+   */
+  @WorkerThread
+  private Set<String> getContactIdsChangedSince(long timestamp) {
+    Assert.isWorkerThread();
+    Set<String> contactIds = new ArraySet<>();
+    String[] selectionArgs = new String[] {Long.toString(timestamp)};
+    try (Cursor cursor =
+        appContext
+            .getContentResolver()
+            .query(
+                Contacts.CONTENT_URI,
+                new String[] {Contacts._ID, Contacts.STARRED},
+                Contacts.CONTACT_LAST_UPDATED_TIMESTAMP + " >= ?",
+                selectionArgs,
+                null)) {
+      if (cursor == null) {
+        LogUtil.e("SpeedDialUiItemMutator.getContactIdsChangedSince", "null cursor");
+      } else {
+        while (cursor.moveToNext()) {
+          long contactId = cursor.getLong(0);
+          if (cursor.getInt(1) == 1 || starredContacts.containsKey(contactId)) {
+            contactIds.add(Long.toString(contactId));
+          }
+        }
+      }
+    }
+    try (Cursor cursor =
+        appContext
+            .getContentResolver()
+            .query(
+                DeletedContacts.CONTENT_URI,
+                new String[] {DeletedContacts.CONTACT_ID},
+                DeletedContacts.CONTACT_DELETED_TIMESTAMP + " >= ?",
+                selectionArgs,
+                null)) {
+      if (cursor == null) {
+        LogUtil.e("SpeedDialUiItemMutator.getContactIdsChangedSince", "null deleted cursor");
+      } else {
+        while (cursor.moveToNext()) {
+          long contactId = cursor.getLong(0);
+          if (starredContacts.containsKey(contactId)) {
+            contactIds.add(Long.toString(contactId));
+          }
+        }
+      }
+    }
+    return contactIds;
+  }
+
   @WorkerThread
   private void requestHighResolutionPhoto(List<SpeedDialEntry> newEntries) {
     ContactsComponent.get(appContext).highResolutionPhotoLoader();
@@ -365,13 +502,24 @@ public final class SpeedDialUiItemMutator {
    *
    * <p>Unfortunately, we need to look up each contact individually to update the contact id and
    * lookup key. Luckily though, this query is highly optimized on the framework side and very
-   * quick.
+   * quick. It is skipped for entries whose contact is starred with the same id and lookup key.
+   *
+   * @param lookupCount incremented for every contact looked up
    */
   @WorkerThread
-  private List<SpeedDialEntry> updateContactIdsAndLookupKeys(List<SpeedDialEntry> entries) {
+  private List<SpeedDialEntry> updateContactIdsAndLookupKeys(
+      List<SpeedDialEntry> entries, int[] lookupCount) {
     Assert.isWorkerThread();
     List<SpeedDialEntry> updatedEntries = new ArrayList<>();
     for (SpeedDialEntry entry : entries) {
+      SpeedDialUiItem starredContact = starredContacts.get(entry.contactId());
+      if (starredContact != null
+          && Objects.equals(starredContact.lookupKey(), entry.lookupKey())) {
+        // The lookup would resolve to the same contact id and lookup key.
+        updatedEntries.add(entry);
+        continue;
+      }
+      lookupCount[0]++;
       try (Cursor cursor =
           appContext
               .getContentResolver()
@@ -404,73 +552,24 @@ public final class SpeedDialUiItemMutator {
     return updatedEntries;
   }
 
-  /**
-   * Returns a map of SpeedDialEntries to their corresponding SpeedDialUiItems. Mappings to null
-   * elements imply that the contact was deleted.
-   */
-  @WorkerThread
-  private Map<SpeedDialEntry, SpeedDialUiItem> getSpeedDialUiItemsFromEntries(
-      List<SpeedDialEntry> entries) {
-    Trace.beginSection("getSpeedDialUiItemsFromEntries");
-    Assert.isWorkerThread();
-    // Fetch the contact ids from the SpeedDialEntries
-    Set<String> contactIds = new ArraySet<>();
-    entries.forEach(entry -> contactIds.add(Long.toString(entry.contactId())));
-    if (contactIds.isEmpty()) {
-      Trace.endSection();
-      return new ArrayMap<>();
-    }
-
-    // Build SpeedDialUiItems from those contact ids and map them to their entries
-    Selection selection =
-        Selection.builder().and(Selection.column(Phone.CONTACT_ID).in(contactIds)).build();
-    try (Cursor cursor =
-        appContext
-            .getContentResolver()
-            .query(
-                Phone.CONTENT_URI,
-                SpeedDialUiItem.getPhoneProjection(isPrimaryDisplayNameOrder()),
-                selection.getSelection(),
-                selection.getSelectionArgs(),
-                null)) {
-      Map<SpeedDialEntry, SpeedDialUiItem> map = new ArrayMap<>();
-      for (cursor.moveToFirst(); !cursor.isAfterLast(); /* Iterate in the loop */ ) {
-        SpeedDialUiItem item =
-            SpeedDialUiItem.fromCursor(
-                appContext.getResources(), cursor, CallUtil.isVideoEnabled(appContext));
-        for (SpeedDialEntry entry : entries) {
-          if (entry.contactId() == item.contactId()) {
-            // Update the id and pinned position to match it's corresponding SpeedDialEntry.
-            SpeedDialUiItem.Builder entrySpeedDialItem =
-                item.toBuilder()
-                    .setSpeedDialEntryId(entry.id())
-                    .setPinnedPosition(entry.pinnedPosition());
-
-            // Preserve the default channel if it didn't change/still exists
-            Channel defaultChannel = entry.defaultChannel();
-            if (defaultChannel != null) {
-              if (item.channels().contains(defaultChannel)) {
-                entrySpeedDialItem.setDefaultChannel(defaultChannel);
-              }
-            }
-
-            // It's impossible for two contacts to exist with the same contact id, so if this entry
-            // was previously matched to a SpeedDialUiItem and is being matched again, something
-            // went horribly wrong.
-            Assert.checkArgument(
-                map.put(entry, entrySpeedDialItem.build()) == null,
-                "Each SpeedDialEntry only has one correct SpeedDialUiItem");
-          }
-        }
+  /** Returns the contact's SpeedDialUiItem, updated to match the SpeedDialEntry. */
+  private static SpeedDialUiItem getSpeedDialUiItemForEntry(
+      SpeedDialUiItem contact, SpeedDialEntry entry) {
+    // Update the id and pinned position to match it's corresponding SpeedDialEntry.
+    SpeedDialUiItem.Builder entrySpeedDialItem =
+        contact
+            .toBuilder()
+            .setSpeedDialEntryId(entry.id())
+            .setPinnedPosition(entry.pinnedPosition());
+
+    // Preserve the default channel if it didn't change/still exists
+    Channel defaultChannel = entry.defaultChannel();
+    if (defaultChannel != null) {
+      if (contact.channels().contains(defaultChannel)) {
+        entrySpeedDialItem.setDefaultChannel(defaultChannel);
       }
-
-      // Contact must have been deleted
-      for (SpeedDialEntry entry : entries) {
-        map.putIfAbsent(entry, null);
-      }
-      Trace.endSection();
-      return map;
     }
+    return entrySpeedDialItem.build();
   }
 
   @WorkerThread
@@ -510,7 +609,20 @@ public final class SpeedDialUiItemMutator {
     }
 
     // Build SpeedDialUiItems from those contact ids
-    selection = Selection.builder().and(Selection.column(Phone.CONTACT_ID).in(contactIds)).build();
+    List<SpeedDialUiItem> contacts = getContacts(contactIds);
+    Trace.endSection();
+    return contacts;
+  }
+
+  /** Returns the SpeedDialUiItems of the contacts with the given ids that have phone numbers. */
+  @WorkerThread
+  private List<SpeedDialUiItem> getContacts(Set<String> contactIds) {
+    Assert.isWorkerThread();
+    if (contactIds.isEmpty()) {
+      return new ArrayList<>();
+    }
+    Selection selection =
+        Selection.builder().and(Selection.column(Phone.CONTACT_ID).in(contactIds)).build();
     try (Cursor cursor =
         appContext
             .getContentResolver()
@@ -522,12 +634,10 @@ public final class SpeedDialUiItemMutator {
                 null)) {
       List<SpeedDialUiItem> contacts = new ArrayList<>();
       if (cursor == null) {
-        LogUtil.e("SpeedDialUiItemMutator.getStrequentContacts", "null cursor");
-        Trace.endSection();
-        return new ArrayList<>();
+        LogUtil.e("SpeedDialUiItemMutator.getContacts", "null cursor");
+        return contacts;
       }
       if (cursor.getCount() == 0) {
-        Trace.endSection();
         return contacts;
       }
       for (cursor.moveToFirst(); !cursor.isAfterLast(); /* Iterate in the loop */ ) {
@@ -535,7 +645,6 @@ public final class SpeedDialUiItemMutator {
             SpeedDialUiItem.fromCursor(
                 appContext.getResources(), cursor, CallUtil.isVideoEnabled(appContext)));
       }
-      Trace.endSection();
       return contacts;
     }
   }
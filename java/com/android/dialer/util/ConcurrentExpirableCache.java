@@ -0,0 +1,208 @@
+/*
+ * SPDX-FileCopyrightText: The LineageOS Project
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.android.dialer.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * An {@link ExpirableCache} split into segments with a lock each, so lookups for different keys
+ * rarely wait for each other.
+ *
+ * <p>Each segment is an LRU cache holding its share of the maximum size. When a segment is full,
+ * the least recently used expired value is evicted first, and only if there is none the least
+ * recently used value. Values expired by {@link #expireAll()} are thus replaced before any current
+ * value, instead of taking up capacity until they are the least recently used.
+ *
+ * <p>Hits, misses, expired hits and evictions are counted, see {@link #toString()}.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+@ThreadSafe
+public final class ConcurrentExpirableCache<K, V> extends ExpirableCache<K, V> {
+
+  private static final int MAX_SEGMENTS = 8;
+
+  private final Segment<K, V>[] segments;
+
+  @SuppressWarnings("unchecked")
+  private ConcurrentExpirableCache(int maxSize) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("maxSize <= 0");
+    }
+    // A power of two, so the segment of a key is a mask of its hash, each holding at least one.
+    int segmentCount = Math.min(MAX_SEGMENTS, Integer.highestOneBit(maxSize));
+    segments = new Segment[segmentCount];
+    for (int i = 0; i < segmentCount; i++) {
+      // Spread the remainder, so the segments add up to the maximum size.
+      segments[i] = new Segment<>(maxSize / segmentCount + (i < maxSize % segmentCount ? 1 : 0));
+    }
+  }
+
+  /**
+   * Creates a new {@link ConcurrentExpirableCache} with the given maximum size.
+   *
+   * @param <K> the type of the keys
+   * @param <V> the type of the values
+   * @return the newly created expirable cache
+   */
+  public static <K, V> ConcurrentExpirableCache<K, V> create(int maxSize) {
+    return new ConcurrentExpirableCache<>(maxSize);
+  }
+
+  @Override
+  public CachedValue<V> getCachedValue(K key) {
+    return segmentFor(key).get(key);
+  }
+
+  @Override
+  public void put(K key, V value) {
+    segmentFor(key).put(key, newCachedValue(value));
+  }
+
+  /** Returns the number of lookups that found a value which is not expired. */
+  public long hitCount() {
+    long count = 0;
+    for (Segment<K, V> segment : segments) {
+      synchronized (segment) {
+        count += segment.hitCount;
+      }
+    }
+    return count;
+  }
+
+  /** Returns the number of lookups that found an expired value. */
+  public long expiredHitCount() {
+    long count = 0;
+    for (Segment<K, V> segment : segments) {
+      synchronized (segment) {
+        count += segment.expiredHitCount;
+      }
+    }
+    return count;
+  }
+
+  /** Returns the number of lookups that found no value. */
+  public long missCount() {
+    long count = 0;
+    for (Segment<K, V> segment : segments) {
+      synchronized (segment) {
+        count += segment.missCount;
+      }
+    }
+    return count;
+  }
+
+  /** Returns the number of values evicted to make room for others. */
+  public long evictionCount() {
+    long count = 0;
+    for (Segment<K, V> segment : segments) {
+      synchronized (segment) {
+        count += segment.evictionCount;
+      }
+    }
+    return count;
+  }
+
+  /** Returns the number of values evicted while expired. */
+  public long expiredEvictionCount() {
+    long count = 0;
+    for (Segment<K, V> segment : segments) {
+      synchronized (segment) {
+        count += segment.expiredEvictionCount;
+      }
+    }
+    return count;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "ConcurrentExpirableCache[segments=%d,hits=%d,expiredHits=%d,misses=%d,evictions=%d"
+            + ",expiredEvictions=%d]",
+        segments.length,
+        hitCount(),
+        expiredHitCount(),
+        missCount(),
+        evictionCount(),
+        expiredEvictionCount());
+  }
+
+  private Segment<K, V> segmentFor(K key) {
+    int hash = key.hashCode();
+    // Spread the high bits down, the low bits of hash codes are often alike.
+    hash ^= (hash >>> 16);
+    return segments[hash & (segments.length - 1)];
+  }
+
+  private static final class Segment<K, V> {
+
+    private final int maxSize;
+
+    /** In access order, the least recently used first. */
+    @GuardedBy("this")
+    private final LinkedHashMap<K, CachedValue<V>> map;
+
+    @GuardedBy("this")
+    private long hitCount;
+
+    @GuardedBy("this")
+    private long expiredHitCount;
+
+    @GuardedBy("this")
+    private long missCount;
+
+    @GuardedBy("this")
+    private long evictionCount;
+
+    @GuardedBy("this")
+    private long expiredEvictionCount;
+
+    Segment(int maxSize) {
+      this.maxSize = maxSize;
+      map = new LinkedHashMap<>(0, 0.75f, true);
+    }
+
+    synchronized CachedValue<V> get(K key) {
+      CachedValue<V> cachedValue = map.get(key);
+      if (cachedValue == null) {
+        missCount++;
+      } else if (cachedValue.isExpired()) {
+        expiredHitCount++;
+      } else {
+        hitCount++;
+      }
+      return cachedValue;
+    }
+
+    synchronized void put(K key, CachedValue<V> cachedValue) {
+      if (map.put(key, cachedValue) == null && map.size() > maxSize) {
+        evict();
+      }
+    }
+
+    @GuardedBy("this")
+    private void evict() {
+      Iterator<CachedValue<V>> iterator = map.values().iterator();
+      while (iterator.hasNext()) {
+        if (iterator.next().isExpired()) {
+          iterator.remove();
+          evictionCount++;
+          expiredEvictionCount++;
+          return;
+        }
+      }
+      iterator = map.values().iterator();
+      iterator.next();
+      iterator.remove();
+      evictionCount++;
+    }
+  }
+}
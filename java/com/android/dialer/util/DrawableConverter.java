@@ -29,6 +29,7 @@ import androidx.core.graphics.drawable.RoundedBitmapDrawable;
 import androidx.core.graphics.drawable.RoundedBitmapDrawableFactory;
 
 import com.android.dialer.common.LogUtil;
+import com.android.dialer.lettertile.LetterTileDrawable;
 
 /** Provides utilities for bitmaps and drawables. */
 public class DrawableConverter {
@@ -46,6 +47,9 @@ public class DrawableConverter {
    *
    * <p>If both width and height are 0, the drawable's intrinsic width and height are used (but in
    * that case {@link #drawableToBitmap(Drawable)} should be used).
+   *
+   * <p>The returned bitmap may be shared, e.g. with the {@link BitmapDrawable} or with other users
+   * of the same {@link LetterTileDrawable}, so it must not be modified or recycled.
    */
   @Nullable
   public static Bitmap drawableToBitmap(@Nullable Drawable drawable, int width, int height) {
@@ -56,6 +60,9 @@ public class DrawableConverter {
     Bitmap bitmap;
     if (drawable instanceof BitmapDrawable) {
       bitmap = ((BitmapDrawable) drawable).getBitmap();
+    } else if (drawable instanceof LetterTileDrawable && width > 0 && height > 0) {
+      // Shared with other callers asking for the same tile.
+      bitmap = ((LetterTileDrawable) drawable).getBitmap(width, height);
     } else {
       if (width > 0 || height > 0) {
         bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
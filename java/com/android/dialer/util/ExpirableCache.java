@@ -79,19 +79,23 @@ import javax.annotation.concurrent.ThreadSafe;
  * {@link #getPossiblyExpired(Object)} method. If interested only in non-expired values, one should
  * use the {@link #get(Object)} method instead.
  *
- * <p>This class wraps around an {@link LruCache} instance: it follows the {@link LruCache} behavior
- * for evicting items when the cache is full. It is possible to supply your own subclass of LruCache
- * by using the {@link #create(LruCache)} method, which can define a custom expiration policy. Since
- * the underlying cache maps keys to cached values it can determine which items are expired and
- * which are not, allowing for an implementation that evicts expired items before non expired ones.
+ * <p>The caches returned by {@link #create(int)} wrap around an {@link LruCache} instance: they
+ * follow the {@link LruCache} behavior for evicting items when the cache is full. It is possible to
+ * supply your own subclass of LruCache by using the {@link #create(LruCache)} method, which can
+ * define a custom expiration policy. Since the underlying cache maps keys to cached values it can
+ * determine which items are expired and which are not, allowing for an implementation that evicts
+ * expired items before non expired ones.
  *
- * <p>This class is thread-safe.
+ * <p>These caches are thread-safe, but all access goes through the lock of the underlying {@link
+ * LruCache}. For caches read from the main thread while being written from a background thread, use
+ * {@link ConcurrentExpirableCache} instead. Other implementations store the cached values
+ * themselves, implementing {@link #getCachedValue(Object)} and {@link #put(Object, Object)}.
  *
  * @param <K> the type of the keys
  * @param <V> the type of the values
  */
 @ThreadSafe
-public class ExpirableCache<K, V> {
+public abstract class ExpirableCache<K, V> {
 
   /**
    * The current generation of items added to the cache.
@@ -101,14 +105,10 @@ public class ExpirableCache<K, V> {
    *
    * @see ExpirableCache.CachedValue#isExpired()
    */
-  private final AtomicInteger generation;
-  /** The underlying cache used to stored the cached values. */
-  private final LruCache<K, CachedValue<V>> cache;
+  private final AtomicInteger generation = new AtomicInteger(0);
 
-  private ExpirableCache(LruCache<K, CachedValue<V>> cache) {
-    this.cache = cache;
-    generation = new AtomicInteger(0);
-  }
+  /** Implemented in this package only. */
+  ExpirableCache() {}
 
   /**
    * Creates a new {@link ExpirableCache} that wraps the given {@link LruCache}.
@@ -122,7 +122,7 @@ public class ExpirableCache<K, V> {
    * @throws IllegalArgumentException if the cache is not empty
    */
   public static <K, V> ExpirableCache<K, V> create(LruCache<K, CachedValue<V>> cache) {
-    return new ExpirableCache<>(cache);
+    return new LruExpirableCache<>(cache);
   }
 
   /**
@@ -149,9 +149,7 @@ public class ExpirableCache<K, V> {
    *
    * @param key the key to look up
    */
-  public CachedValue<V> getCachedValue(K key) {
-    return cache.get(key);
-  }
+  public abstract CachedValue<V> getCachedValue(K key);
 
   /**
    * Returns the value for the given key, or null if no value exists.
@@ -192,9 +190,7 @@ public class ExpirableCache<K, V> {
    * @param key the key to look up
    * @param value the value to associate with the key
    */
-  public void put(K key, V value) {
-    cache.put(key, newCachedValue(value));
-  }
+  public abstract void put(K key, V value);
 
   /**
    * Mark all items currently in the cache as expired.
@@ -237,6 +233,32 @@ public class ExpirableCache<K, V> {
     boolean isExpired();
   }
 
+  /** An expirable cache storing its values in an {@link LruCache}. */
+  private static final class LruExpirableCache<K, V> extends ExpirableCache<K, V> {
+
+    /** The underlying cache used to stored the cached values. */
+    private final LruCache<K, CachedValue<V>> cache;
+
+    LruExpirableCache(LruCache<K, CachedValue<V>> cache) {
+      this.cache = cache;
+    }
+
+    @Override
+    public CachedValue<V> getCachedValue(K key) {
+      return cache.get(key);
+    }
+
+    @Override
+    public void put(K key, V value) {
+      cache.put(key, newCachedValue(value));
+    }
+
+    @Override
+    public String toString() {
+      return cache.toString();
+    }
+  }
+
   /** Cached values storing the generation at which they were added. */
   @Immutable
   private static class GenerationalCachedValue<V> implements ExpirableCache.CachedValue<V> {
@@ -19,6 +19,7 @@ package com.android.incallui;
 
 import android.content.Context;
 import android.net.Uri;
+import android.os.SystemClock;
 import android.telephony.PhoneNumberUtils;
 import android.text.BidiFormatter;
 import android.text.TextDirectionHeuristics;
@@ -206,12 +207,7 @@ public class ConferenceParticipantListAdapter extends BaseAdapter {
 
     // If a cache lookup has not yet been performed to retrieve the contact information and
     // photo, do it now.
-    if (!participantInfo.isCacheLookupComplete()) {
-      cache.findInfo(
-          participantInfo.getCall(),
-          participantInfo.getCall().getState() == DialerCallState.INCOMING,
-          new ContactLookupCallback(this));
-    }
+    requestContactInfo(cache, participantInfo);
 
     boolean thisRowCanSeparate =
         parentCanSeparate
@@ -253,6 +249,7 @@ public class ConferenceParticipantListAdapter extends BaseAdapter {
       ParticipantInfo participantInfo = participantsByCallId.get(callId);
       participantInfo.setContactCacheEntry(entry);
       participantInfo.setCacheLookupComplete(true);
+      participantInfo.updateBoundState(parentCanSeparate);
       refreshView(callId);
     }
   }
@@ -370,11 +367,19 @@ public class ConferenceParticipantListAdapter extends BaseAdapter {
    * Updates the participant info list which is bound to the ListView. Stores the call and contact
    * info for all entries. The list is sorted alphabetically by participant name.
    *
+   * <p>Participants are diffed by call id: existing participants whose contact info was dropped
+   * from the cache are looked up again, contact lookups for new participants are all started right
+   * away instead of when their rows are first bound, and rows whose content did not change are not
+   * rebound.
+   *
    * @param conferenceParticipants The calls which make up the conference participants.
    */
   private void updateParticipantInfo(List<DialerCall> conferenceParticipants) {
+    long startTimeMillis = SystemClock.elapsedRealtime();
     final ContactInfoCache cache = ContactInfoCache.getInstance(getContext());
-    boolean newParticipantAdded = false;
+    List<ParticipantInfo> addedParticipants = new ArrayList<>();
+    List<ParticipantInfo> expiredParticipants = new ArrayList<>();
+    List<String> changedCallIds = new ArrayList<>();
     Set<String> newCallIds = new ArraySet<>(conferenceParticipants.size());
 
     // Update or add conference participant info.
@@ -382,39 +387,88 @@ public class ConferenceParticipantListAdapter extends BaseAdapter {
       String callId = call.getId();
       newCallIds.add(callId);
       ContactCacheEntry contactCache = cache.getInfo(callId);
-      if (contactCache == null) {
-        contactCache = ContactInfoCache.buildCacheEntryFromCall(getContext(), call);
-      }
 
-      if (participantsByCallId.containsKey(callId)) {
-        ParticipantInfo participantInfo = participantsByCallId.get(callId);
-        participantInfo.setCall(call);
-        participantInfo.setContactCacheEntry(contactCache);
-      } else {
-        newParticipantAdded = true;
-        ParticipantInfo participantInfo = new ParticipantInfo(call, contactCache);
+      ParticipantInfo participantInfo = participantsByCallId.get(callId);
+      if (participantInfo == null) {
+        if (contactCache == null) {
+          contactCache = ContactInfoCache.buildCacheEntryFromCall(getContext(), call);
+        }
+        participantInfo = new ParticipantInfo(call, contactCache, parentCanSeparate);
+        addedParticipants.add(participantInfo);
         this.conferenceParticipants.add(participantInfo);
-        participantsByCallId.put(call.getId(), participantInfo);
+        participantsByCallId.put(callId, participantInfo);
+      } else {
+        participantInfo.setCall(call);
+        if (contactCache != null) {
+          participantInfo.setContactCacheEntry(contactCache);
+        } else if (participantInfo.isCacheLookupComplete()) {
+          // The cache dropped the entry resolved earlier, so don't keep showing it. Fall back to
+          // the details of the call and look the participant up again.
+          participantInfo.setContactCacheEntry(
+              ContactInfoCache.buildCacheEntryFromCall(getContext(), call));
+          participantInfo.setCacheLookupComplete(false);
+          participantInfo.setCacheLookupRequested(false);
+          expiredParticipants.add(participantInfo);
+        }
+        if (participantInfo.updateBoundState(parentCanSeparate)) {
+          changedCallIds.add(callId);
+        }
       }
     }
 
     // Remove any participants that no longer exist.
-    Iterator<Map.Entry<String, ParticipantInfo>> it = participantsByCallId.entrySet().iterator();
+    int removedCount = 0;
+    Iterator<String> it = participantsByCallId.keySet().iterator();
     while (it.hasNext()) {
-      Map.Entry<String, ParticipantInfo> entry = it.next();
-      String existingCallId = entry.getKey();
-      if (!newCallIds.contains(existingCallId)) {
-        ParticipantInfo existingInfo = entry.getValue();
-        this.conferenceParticipants.remove(existingInfo);
+      if (!newCallIds.contains(it.next())) {
         it.remove();
+        removedCount++;
       }
     }
+    if (removedCount > 0) {
+      this.conferenceParticipants.removeIf(
+          participantInfo -> !newCallIds.contains(participantInfo.getCall().getId()));
+    }
 
-    if (newParticipantAdded) {
+    if (!addedParticipants.isEmpty()) {
       // Sort the list of participants by contact name.
       sortParticipantList();
     }
-    notifyDataSetChanged();
+    if (!addedParticipants.isEmpty() || removedCount > 0) {
+      notifyDataSetChanged();
+    } else {
+      for (String callId : changedCallIds) {
+        refreshView(callId);
+      }
+    }
+
+    for (ParticipantInfo participantInfo : addedParticipants) {
+      requestContactInfo(cache, participantInfo);
+    }
+    for (ParticipantInfo participantInfo : expiredParticipants) {
+      requestContactInfo(cache, participantInfo);
+    }
+
+    LogUtil.i(
+        "ConferenceParticipantListAdapter.updateParticipantInfo",
+        "participants: %d, added: %d, removed: %d, changed: %d, took %d millis",
+        this.conferenceParticipants.size(),
+        addedParticipants.size(),
+        removedCount,
+        changedCallIds.size(),
+        SystemClock.elapsedRealtime() - startTimeMillis);
+  }
+
+  /** Starts the contact lookup for a participant unless one was already started. */
+  private void requestContactInfo(ContactInfoCache cache, ParticipantInfo participantInfo) {
+    if (participantInfo.isCacheLookupComplete() || participantInfo.isCacheLookupRequested()) {
+      return;
+    }
+    participantInfo.setCacheLookupRequested(true);
+    cache.findInfo(
+        participantInfo.getCall(),
+        participantInfo.getCall().getState() == DialerCallState.INCOMING,
+        new ContactLookupCallback(this));
   }
 
   /** Sorts the participant list by contact name. */
@@ -502,10 +556,39 @@ public class ConferenceParticipantListAdapter extends BaseAdapter {
     private DialerCall call;
     private ContactCacheEntry contactCacheEntry;
     private boolean cacheLookupComplete = false;
+    private boolean cacheLookupRequested = false;
+
+    /** What the row was last bound with, used to skip rebinding unchanged rows. */
+    private int boundState;
+    private boolean boundCanSeparate;
+    private boolean boundCanDisconnect;
+    private ContactCacheEntry boundContactCacheEntry;
 
-    public ParticipantInfo(DialerCall call, ContactCacheEntry contactCacheEntry) {
+    public ParticipantInfo(
+        DialerCall call, ContactCacheEntry contactCacheEntry, boolean parentCanSeparate) {
       this.call = call;
       this.contactCacheEntry = contactCacheEntry;
+      updateBoundState(parentCanSeparate);
+    }
+
+    /** Returns {@code true} if anything shown in this participant's row changed. */
+    public boolean updateBoundState(boolean parentCanSeparate) {
+      int state = call.getNonConferenceState();
+      boolean canSeparate =
+          parentCanSeparate
+              && call.can(android.telecom.Call.Details.CAPABILITY_SEPARATE_FROM_CONFERENCE);
+      boolean canDisconnect =
+          call.can(android.telecom.Call.Details.CAPABILITY_DISCONNECT_FROM_CONFERENCE);
+      boolean changed =
+          state != boundState
+              || canSeparate != boundCanSeparate
+              || canDisconnect != boundCanDisconnect
+              || contactCacheEntry != boundContactCacheEntry;
+      boundState = state;
+      boundCanSeparate = canSeparate;
+      boundCanDisconnect = canDisconnect;
+      boundContactCacheEntry = contactCacheEntry;
+      return changed;
     }
 
     public DialerCall getCall() {
@@ -532,6 +615,14 @@ public class ConferenceParticipantListAdapter extends BaseAdapter {
       this.cacheLookupComplete = cacheLookupComplete;
     }
 
+    public boolean isCacheLookupRequested() {
+      return cacheLookupRequested;
+    }
+
+    public void setCacheLookupRequested(boolean cacheLookupRequested) {
+      this.cacheLookupRequested = cacheLookupRequested;
+    }
+
     @Override
     public boolean equals(Object o) {
       if (o instanceof ParticipantInfo) {
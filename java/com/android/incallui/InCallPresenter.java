@@ -24,7 +24,6 @@ import android.graphics.Point;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.Trace;
-import android.provider.BlockedNumberContract;
 import android.telecom.Call;
 import android.telecom.Call.Details;
 import android.telecom.CallAudioState;
@@ -47,6 +46,7 @@ import androidx.annotation.Nullable;
 
 import com.android.contacts.common.compat.CallCompat;
 import com.android.dialer.R;
+import com.android.dialer.blocking.BlockedNumberMirror;
 import com.android.dialer.common.Assert;
 import com.android.dialer.common.LogUtil;
 import com.android.dialer.common.concurrent.DialerExecutorComponent;
@@ -60,6 +60,7 @@ import com.android.incallui.audiomode.AudioModeProvider;
 import com.android.incallui.call.CallList;
 import com.android.incallui.call.DialerCall;
 import com.android.incallui.call.ExternalCallList;
+import com.android.incallui.call.FrameAlignedDispatcher;
 import com.android.incallui.call.TelecomAdapter;
 import com.android.incallui.call.state.DialerCallState;
 import com.android.incallui.disconnectdialog.DisconnectMessage;
@@ -73,6 +74,7 @@ import com.android.incallui.videotech.utils.VideoUtils;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -110,6 +112,18 @@ public class InCallPresenter implements CallList.Listener, AudioModeProvider.Aud
   private final Set<InCallEventListener> inCallEventListeners =
       Collections.newSetFromMap(new ConcurrentHashMap<>(8, 0.9f, 1));
 
+  /** Coalesces telecom detail changes per call until the next frame. */
+  private final FrameAlignedDispatcher<DialerCall, Details> detailsDispatcher =
+      new FrameAlignedDispatcher<>(
+          "InCallPresenter.detailsDispatcher",
+          changes -> {
+            for (Map.Entry<DialerCall, Details> change : changes.entrySet()) {
+              for (InCallDetailsListener listener : detailsListeners) {
+                listener.onDetailsChanged(change.getKey(), change.getValue());
+              }
+            }
+          });
+
   private StatusBarNotifier statusBarNotifier;
   private ExternalCallNotifier externalCallNotifier;
   private InCallVibrationHandler vibrationHandler;
@@ -156,9 +170,7 @@ public class InCallPresenter implements CallList.Listener, AudioModeProvider.Aud
             return;
           }
 
-          for (InCallDetailsListener listener : detailsListeners) {
-            listener.onDetailsChanged(call, details);
-          }
+          detailsDispatcher.post(call, details);
         }
 
         @Override
@@ -329,6 +341,10 @@ public class InCallPresenter implements CallList.Listener, AudioModeProvider.Aud
     // This only gets called by the service so this is okay.
     serviceConnected = true;
 
+    // Deliver bursts of call and details updates once per frame.
+    this.callList.setFrameAlignedDispatchEnabled(true);
+    detailsDispatcher.setEnabled(true);
+
     // The final thing we do in this set up is add ourselves as a listener to CallList.  This
     // will kick off an update and the whole process can start.
     this.callList.addListener(this);
@@ -366,6 +382,10 @@ public class InCallPresenter implements CallList.Listener, AudioModeProvider.Aud
   public void tearDown() {
     LogUtil.d("InCallPresenter.tearDown", "tearDown");
     callList.clearOnDisconnect();
+    callList.logDispatchStatistics();
+    callList.cancelFrameAlignedDispatch();
+    LogUtil.i("InCallPresenter.tearDown", String.valueOf(detailsDispatcher));
+    detailsDispatcher.cancel();
 
     serviceConnected = false;
 
@@ -517,8 +537,7 @@ public class InCallPresenter implements CallList.Listener, AudioModeProvider.Aud
         incomingNumber = PhoneNumberUtils.formatNumberToE164(incomingNumber, countryIso);
 
         // Check if the number is blocked, to silence the ringer.
-        if (BlockedNumberContract.canCurrentUserBlockNumbers(context) &&
-                BlockedNumberContract.isBlocked(context, incomingNumber)) {
+        if (BlockedNumberMirror.isBlocked(context, incomingNumber)) {
           TelecomUtil.silenceRinger(context);
         }
       }
@@ -0,0 +1,259 @@
+/*
+ * SPDX-FileCopyrightText: The LineageOS Project
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.android.incallui;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.telecom.Call.Details;
+import android.util.ArraySet;
+import android.util.LruCache;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import androidx.core.content.res.ResourcesCompat;
+
+import com.android.dialer.R;
+import com.android.dialer.common.Assert;
+import com.android.dialer.common.LogUtil;
+import com.android.dialer.common.concurrent.DialerExecutorComponent;
+import com.android.dialer.common.concurrent.ThreadUtil;
+import com.android.dialer.contactphoto.BitmapUtil;
+import com.android.dialer.lettertile.LetterTileDrawable;
+import com.android.dialer.lettertile.LetterTileDrawable.ContactType;
+import com.android.dialer.util.DrawableConverter;
+import com.android.incallui.ContactInfoCache.ContactCacheEntry;
+import com.android.incallui.call.DialerCall;
+import com.android.incallui.call.state.DialerCallState;
+import com.google.auto.value.AutoValue;
+
+import java.util.Set;
+
+/**
+ * Caches the rounded large icons shown in the in-call notification.
+ *
+ * <p>Call state updates rebuild the notification many times per call, but the large icon rarely
+ * changes. Icons are keyed by everything that affects how they are drawn, and rendered on a
+ * background thread on a cache miss. The same {@link Bitmap} instance is returned for repeated
+ * lookups, so comparing it with the previously shown icon is cheap.
+ *
+ * <p>Ringing calls are the exception: their heads-up notification is posted once and should not
+ * be reposted just to add the icon, so a miss for them is rendered right away.
+ */
+final class NotificationLargeIconCache {
+
+  /** Notified on the main thread when an icon that was missing from the cache is ready. */
+  interface Listener {
+    void onLargeIconLoaded();
+  }
+
+  private static final int MAX_ENTRIES = 8;
+
+  private final Context context;
+  private final Listener listener;
+  private final LruCache<IconKey, Bitmap> cache = new LruCache<>(MAX_ENTRIES);
+  private final Set<IconKey> pendingKeys = new ArraySet<>();
+
+  /** Increased by {@link #clear()}, so icons rendered before are dropped. */
+  private int generation;
+
+  NotificationLargeIconCache(@NonNull Context context, @NonNull Listener listener) {
+    this.context = Assert.isNotNull(context);
+    this.listener = Assert.isNotNull(listener);
+  }
+
+  /**
+   * Returns the rounded large icon for the given contact and call, or {@code null} if there is no
+   * icon to show or it is still being rendered. In the latter case {@link
+   * Listener#onLargeIconLoaded()} is called once it becomes available. Icons for ringing calls are
+   * never rendered in the background.
+   */
+  @MainThread
+  @Nullable
+  Bitmap get(ContactCacheEntry contactInfo, DialerCall call) {
+    Assert.isMainThread();
+    IconKey key = createKey(contactInfo, call);
+    if (key == null) {
+      return null;
+    }
+    Bitmap icon = cache.get(key);
+    if (icon != null) {
+      return icon;
+    }
+    if (isRinging(call)) {
+      icon = render(key);
+      if (icon != null) {
+        cache.put(key, icon);
+      }
+      return icon;
+    }
+    if (pendingKeys.add(key)) {
+      int renderGeneration = generation;
+      DialerExecutorComponent.get(context)
+          .lowPriorityThreadPool()
+          .execute(() -> renderInBackground(key, renderGeneration));
+    }
+    return null;
+  }
+
+  /** Drops all cached icons, e.g. once there are no more calls. */
+  @MainThread
+  void clear() {
+    cache.evictAll();
+    pendingKeys.clear();
+    generation++;
+  }
+
+  private static boolean isRinging(DialerCall call) {
+    int state = call.getState();
+    return state == DialerCallState.INCOMING || state == DialerCallState.CALL_WAITING;
+  }
+
+  @Nullable
+  private IconKey createKey(ContactCacheEntry contactInfo, DialerCall call) {
+    Resources resources = context.getResources();
+    int width = (int) resources.getDimension(android.R.dimen.notification_large_icon_width);
+    int height = (int) resources.getDimension(android.R.dimen.notification_large_icon_height);
+    if (call.isSpam()) {
+      return IconKey.builder().setSpam(true).setWidth(width).setHeight(height).build();
+    }
+    if (contactInfo.photo instanceof BitmapDrawable) {
+      return IconKey.builder()
+          .setPhoto(((BitmapDrawable) contactInfo.photo).getBitmap())
+          .setWidth(width)
+          .setHeight(height)
+          .build();
+    }
+    if (contactInfo.photo != null) {
+      // Other drawables were never shown as a large icon.
+      return null;
+    }
+    @ContactType
+    int contactType =
+        LetterTileDrawable.getContactTypeFromPrimitives(
+            call.isVoiceMailNumber(),
+            call.isSpam(),
+            contactInfo.isBusiness,
+            call.getNumberPresentation(),
+            call.isConferenceCall() && !call.hasProperty(Details.PROPERTY_GENERIC_CONFERENCE));
+    return IconKey.builder()
+        .setDisplayName(
+            contactInfo.namePrimary == null ? contactInfo.number : contactInfo.namePrimary)
+        .setLookupKey(contactInfo.lookupKey)
+        .setContactType(contactType)
+        .setWidth(width)
+        .setHeight(height)
+        .build();
+  }
+
+  @WorkerThread
+  private void renderInBackground(IconKey key, int renderGeneration) {
+    Bitmap icon = render(key);
+    ThreadUtil.postOnUiThread(
+        () -> {
+          if (renderGeneration != generation) {
+            return;
+          }
+          pendingKeys.remove(key);
+          if (icon != null) {
+            cache.put(key, icon);
+            listener.onLargeIconLoaded();
+          }
+        });
+  }
+
+  @Nullable
+  private Bitmap render(IconKey key) {
+    Trace.beginSection("NotificationLargeIconCache.render");
+    long startMillis = SystemClock.elapsedRealtime();
+    Bitmap icon = null;
+    try {
+      icon = BitmapUtil.getRoundedBitmap(renderUnrounded(key), key.width(), key.height());
+    } catch (RuntimeException e) {
+      LogUtil.e("NotificationLargeIconCache.render", "failed to render icon", e);
+    }
+    LogUtil.d(
+        "NotificationLargeIconCache.render",
+        "rendered icon in %d ms",
+        SystemClock.elapsedRealtime() - startMillis);
+    Trace.endSection();
+    return icon;
+  }
+
+  @Nullable
+  private Bitmap renderUnrounded(IconKey key) {
+    Resources resources = context.getResources();
+    if (key.spam()) {
+      Drawable drawable =
+          ResourcesCompat.getDrawable(resources, R.drawable.blocked_contact, context.getTheme());
+      return DrawableConverter.drawableToBitmap(drawable);
+    }
+    if (key.photo() != null) {
+      return key.photo();
+    }
+    LetterTileDrawable letterTile = new LetterTileDrawable(resources);
+    letterTile.setCanonicalDialerLetterTileDetails(
+        key.displayName(), key.lookupKey(), LetterTileDrawable.SHAPE_CIRCLE, key.contactType());
+    return letterTile.getBitmap(key.width(), key.height());
+  }
+
+  /**
+   * Everything that determines how a large icon is drawn. Photos are compared by identity, which
+   * matches how {@link ContactInfoCache} hands out the same drawable for the same contact.
+   */
+  @AutoValue
+  abstract static class IconKey {
+
+    @Nullable
+    abstract Bitmap photo();
+
+    @Nullable
+    abstract String displayName();
+
+    @Nullable
+    abstract String lookupKey();
+
+    @ContactType
+    abstract int contactType();
+
+    abstract boolean spam();
+
+    abstract int width();
+
+    abstract int height();
+
+    static Builder builder() {
+      return new AutoValue_NotificationLargeIconCache_IconKey.Builder()
+          .setContactType(LetterTileDrawable.TYPE_DEFAULT)
+          .setSpam(false);
+    }
+
+    @AutoValue.Builder
+    abstract static class Builder {
+      abstract Builder setPhoto(@Nullable Bitmap photo);
+
+      abstract Builder setDisplayName(@Nullable String displayName);
+
+      abstract Builder setLookupKey(@Nullable String lookupKey);
+
+      abstract Builder setContactType(@ContactType int contactType);
+
+      abstract Builder setSpam(boolean spam);
+
+      abstract Builder setWidth(int width);
+
+      abstract Builder setHeight(int height);
+
+      abstract IconKey build();
+    }
+  }
+}
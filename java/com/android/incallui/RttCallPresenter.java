@@ -17,22 +17,28 @@
 
 package com.android.incallui;
 
+import android.content.Context;
 import android.os.Handler;
 import android.os.HandlerThread;
 import android.os.Looper;
 import android.telecom.Call.RttCall;
 
 import com.android.dialer.common.LogUtil;
+import com.android.dialer.common.concurrent.DefaultFutureCallback;
 import com.android.dialer.common.concurrent.ThreadUtil;
 import com.android.dialer.rtt.RttTranscript;
+import com.android.dialer.rtt.RttTranscriptUtil;
 import com.android.incallui.InCallPresenter.InCallState;
 import com.android.incallui.InCallPresenter.InCallStateListener;
 import com.android.incallui.call.CallList;
 import com.android.incallui.call.DialerCall;
 import com.android.incallui.rtt.protocol.RttCallScreen;
 import com.android.incallui.rtt.protocol.RttCallScreenDelegate;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Logic related to the {@link RttCallScreen} and for managing changes to the RTT calling surfaces
@@ -40,6 +46,11 @@ import java.io.IOException;
  */
 public class RttCallPresenter implements RttCallScreenDelegate, InCallStateListener {
 
+  /** Interval at which the transcript of a long RTT call is persisted while the call goes on. */
+  private static final long TRANSCRIPT_SNAPSHOT_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+  private final Runnable snapshotTranscriptRunnable = this::snapshotTranscript;
+
   private RttCallScreen rttCallScreen;
   private RttCall rttCall;
   private HandlerThread handlerThread;
@@ -68,6 +79,9 @@ public class RttCallPresenter implements RttCallScreenDelegate, InCallStateListe
     if (call != null) {
       rttCallScreen.onRestoreRttChat(call.getRttTranscript());
     }
+    ThreadUtil.getUiThreadHandler().removeCallbacks(snapshotTranscriptRunnable);
+    ThreadUtil.postDelayedOnUiThread(
+        snapshotTranscriptRunnable, TRANSCRIPT_SNAPSHOT_INTERVAL_MILLIS);
   }
 
   @Override
@@ -83,10 +97,37 @@ public class RttCallPresenter implements RttCallScreenDelegate, InCallStateListe
   public void onRttCallScreenUiUnready() {
     LogUtil.enterBlock("RttCallPresenter.onRttCallScreenUiUnready");
     InCallPresenter.getInstance().removeListener(this);
+    ThreadUtil.getUiThreadHandler().removeCallbacks(snapshotTranscriptRunnable);
     stopListenOnRemoteMessage();
     onSaveRttTranscript();
   }
 
+  /**
+   * Persists the transcript built so far, so that a long conversation is not only written once
+   * the call ends. {@link DialerCall} replaces this snapshot when the call is disconnected.
+   */
+  private void snapshotTranscript() {
+    DialerCall call = CallList.getInstance().getCallById(rttCallScreen.getCallId());
+    if (call == null) {
+      return;
+    }
+    saveTranscript(call);
+    RttTranscript rttTranscript = call.getRttTranscript();
+    Context context = rttCallScreen.getRttCallScreenFragment().getContext();
+    if (context != null && rttTranscript.getMessagesCount() > 0) {
+      LogUtil.i(
+          "RttCallPresenter.snapshotTranscript",
+          "messages: %d",
+          rttTranscript.getMessagesCount());
+      Futures.addCallback(
+          RttTranscriptUtil.saveRttTranscript(context, rttTranscript),
+          new DefaultFutureCallback<>(),
+          MoreExecutors.directExecutor());
+    }
+    ThreadUtil.postDelayedOnUiThread(
+        snapshotTranscriptRunnable, TRANSCRIPT_SNAPSHOT_INTERVAL_MILLIS);
+  }
+
   private void saveTranscript(DialerCall dialerCall) {
     LogUtil.enterBlock("RttCallPresenter.saveTranscript");
     RttTranscript.Builder builder = RttTranscript.newBuilder();
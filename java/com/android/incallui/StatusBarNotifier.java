@@ -39,10 +39,7 @@ import android.app.Person;
 import android.app.admin.DevicePolicyManager;
 import android.content.Context;
 import android.content.Intent;
-import android.content.res.Resources;
 import android.graphics.Bitmap;
-import android.graphics.drawable.BitmapDrawable;
-import android.graphics.drawable.Drawable;
 import android.graphics.drawable.Icon;
 import android.media.AudioAttributes;
 import android.net.Uri;
@@ -64,21 +61,16 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.RequiresPermission;
 import androidx.annotation.StringRes;
-import androidx.core.content.res.ResourcesCompat;
 
 import com.android.contacts.common.ContactsUtils;
 import com.android.contacts.common.ContactsUtils.UserType;
 import com.android.dialer.R;
 import com.android.dialer.common.Assert;
 import com.android.dialer.common.LogUtil;
-import com.android.dialer.contactphoto.BitmapUtil;
 import com.android.dialer.contacts.ContactsComponent;
-import com.android.dialer.lettertile.LetterTileDrawable;
-import com.android.dialer.lettertile.LetterTileDrawable.ContactType;
 import com.android.dialer.notification.NotificationChannelId;
 import com.android.dialer.oem.MotorolaUtils;
 import com.android.dialer.theme.base.ThemeComponent;
-import com.android.dialer.util.DrawableConverter;
 import com.android.incallui.ContactInfoCache.ContactCacheEntry;
 import com.android.incallui.ContactInfoCache.ContactInfoCacheCallback;
 import com.android.incallui.InCallPresenter.InCallState;
@@ -99,7 +91,8 @@ import java.util.Objects;
 /** This class adds Notifications to the status bar for the in-call experience. */
 public class StatusBarNotifier
     implements InCallPresenter.InCallStateListener,
-        ContactInfoCacheCallback {
+        ContactInfoCacheCallback,
+        NotificationLargeIconCache.Listener {
 
   private static final int NOTIFICATION_ID = 1;
 
@@ -119,6 +112,7 @@ public class StatusBarNotifier
   private final Context context;
   private final ContactInfoCache contactInfoCache;
   private final DialerRingtoneManager dialerRingtoneManager;
+  private final NotificationLargeIconCache largeIconCache;
   private int currentNotification = NOTIFICATION_NONE;
   private int callState = DialerCallState.INVALID;
   private int videoState = VideoProfile.STATE_AUDIO_ONLY;
@@ -138,6 +132,7 @@ public class StatusBarNotifier
         new DialerRingtoneManager(
             new InCallTonePlayer(new ToneGeneratorFactory(), new PausableExecutor()),
             CallList.getInstance());
+    largeIconCache = new NotificationLargeIconCache(context, this);
     currentNotification = NOTIFICATION_NONE;
     Trace.endSection();
   }
@@ -216,6 +211,7 @@ public class StatusBarNotifier
       TelecomAdapter.getInstance().stopForegroundNotification();
       currentNotification = NOTIFICATION_NONE;
     }
+    largeIconCache.clear();
   }
 
   /**
@@ -274,7 +270,7 @@ public class StatusBarNotifier
     Trace.beginSection("read icon and strings");
     // Check if data has changed; if nothing is different, don't issue another notification.
     final int iconResId = getIconToDisplay(call);
-    Bitmap largeIcon = getLargeIconToDisplay(context, contactInfo, call);
+    final Bitmap largeIcon = largeIconCache.get(contactInfo, call);
     final CharSequence content = getContentString(call, contactInfo.userType);
     final String contentTitle = getContentTitle(contactInfo, call);
     Trace.endSection();
@@ -309,10 +305,6 @@ public class StatusBarNotifier
       return;
     }
 
-    if (largeIcon != null) {
-      largeIcon = getRoundedIcon(largeIcon);
-    }
-
     // This builder is used for the notification shown when the device is locked and the user
     // has set their notification settings to 'hide sensitive content'
     // {@see Notification.Builder#setPublicVersion}.
@@ -562,56 +554,6 @@ public class StatusBarNotifier
     }
   }
 
-  /** Gets a large icon from the contact info object to display in the notification. */
-  private static Bitmap getLargeIconToDisplay(
-      Context context, ContactCacheEntry contactInfo, DialerCall call) {
-    Trace.beginSection("StatusBarNotifier.getLargeIconToDisplay");
-    Resources resources = context.getResources();
-    Bitmap largeIcon = null;
-    if (contactInfo.photo != null && (contactInfo.photo instanceof BitmapDrawable)) {
-      largeIcon = ((BitmapDrawable) contactInfo.photo).getBitmap();
-    }
-    if (contactInfo.photo == null) {
-      int width = (int) resources.getDimension(android.R.dimen.notification_large_icon_width);
-      int height = (int) resources.getDimension(android.R.dimen.notification_large_icon_height);
-      @ContactType
-      int contactType =
-          LetterTileDrawable.getContactTypeFromPrimitives(
-              call.isVoiceMailNumber(),
-              call.isSpam(),
-              contactInfo.isBusiness,
-              call.getNumberPresentation(),
-              call.isConferenceCall() && !call.hasProperty(Details.PROPERTY_GENERIC_CONFERENCE));
-      LetterTileDrawable lettertile = new LetterTileDrawable(resources);
-
-      lettertile.setCanonicalDialerLetterTileDetails(
-          contactInfo.namePrimary == null ? contactInfo.number : contactInfo.namePrimary,
-          contactInfo.lookupKey,
-          LetterTileDrawable.SHAPE_CIRCLE,
-          contactType);
-      largeIcon = lettertile.getBitmap(width, height);
-    }
-
-    if (call.isSpam()) {
-      Drawable drawable = ResourcesCompat.getDrawable(resources, R.drawable.blocked_contact,
-              context.getTheme());
-      largeIcon = DrawableConverter.drawableToBitmap(drawable);
-    }
-    Trace.endSection();
-    return largeIcon;
-  }
-
-  private Bitmap getRoundedIcon(Bitmap bitmap) {
-    if (bitmap == null) {
-      return null;
-    }
-    final int height =
-        (int) context.getResources().getDimension(android.R.dimen.notification_large_icon_height);
-    final int width =
-        (int) context.getResources().getDimension(android.R.dimen.notification_large_icon_width);
-    return BitmapUtil.getRoundedBitmap(bitmap, width, height);
-  }
-
   /**
    * Returns the appropriate icon res Id to display based on the call for which we want to display
    * information.
@@ -978,6 +920,12 @@ public class StatusBarNotifier
     }
   }
 
+  @Override
+  @RequiresPermission(Manifest.permission.READ_PHONE_STATE)
+  public void onLargeIconLoaded() {
+    updateInCallNotification();
+  }
+
   private class StatusBarCallListener implements DialerCallListener {
 
     private final DialerCall dialerCall;
@@ -22,7 +22,6 @@ import android.os.Handler;
 import android.os.Looper;
 import android.os.Message;
 import android.os.Trace;
-import android.provider.BlockedNumberContract;
 import android.telecom.Call;
 import android.telecom.DisconnectCause;
 import android.telecom.PhoneAccount;
@@ -32,6 +31,7 @@ import android.util.ArrayMap;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import com.android.dialer.blocking.BlockedNumberMirror;
 import com.android.dialer.common.Assert;
 import com.android.dialer.common.LogUtil;
 import com.android.dialer.promotion.impl.RttPromotion;
@@ -75,6 +75,14 @@ public class CallList implements DialerCallDelegate {
   private final Set<DialerCall> pendingDisconnectCalls =
       Collections.newSetFromMap(new ConcurrentHashMap<>(8, 0.9f, 1));
 
+  /**
+   * Coalesces {@link DialerCall} updates into one {@link Listener#onCallListChange} per frame when
+   * enabled with {@link #setFrameAlignedDispatchEnabled}.
+   */
+  private final FrameAlignedDispatcher<String, DialerCall> callUpdateDispatcher =
+      new FrameAlignedDispatcher<>(
+          "CallList.callUpdateDispatcher", changes -> dispatchCallListChange());
+
   private UiListener uiListeners;
   /** Handles the timeout for destroying disconnected calls. */
   private final Handler handler = new Handler(Looper.getMainLooper()) {
@@ -119,8 +127,7 @@ public class CallList implements DialerCallDelegate {
 
     Trace.beginSection("checkBlock");
 
-    if (BlockedNumberContract.canCurrentUserBlockNumbers(context) &&
-            BlockedNumberContract.isBlocked(context, call.getNumber())) {
+    if (BlockedNumberMirror.isBlocked(context, call.getNumber())) {
       call.setBlockedStatus(true);
     }
     Trace.endSection();
@@ -485,6 +492,12 @@ public class CallList implements DialerCallDelegate {
    * listeners to call back to determine what changed.
    */
   private void notifyGenericListeners() {
+    // Listeners read the whole call list, so pending coalesced updates are delivered as well.
+    callUpdateDispatcher.cancel();
+    dispatchCallListChange();
+  }
+
+  private void dispatchCallListChange() {
     Trace.beginSection("CallList.notifyGenericListeners");
     for (Listener listener : listeners) {
       listener.onCallListChange(this);
@@ -492,7 +505,43 @@ public class CallList implements DialerCallDelegate {
     Trace.endSection();
   }
 
+  /**
+   * Enables delivering {@link DialerCall} updates at most once per frame. Updates of calls are
+   * still applied to the call list right away; only {@link Listener#onCallListChange} is deferred
+   * to the next {@link android.view.Choreographer} frame. Must be called on the main thread.
+   */
+  public void setFrameAlignedDispatchEnabled(boolean enabled) {
+    callUpdateDispatcher.setEnabled(enabled);
+  }
+
+  /**
+   * Drops the call list change pending for the next frame and disables frame aligned delivery, so
+   * no change reaches listeners after the in-call UI was torn down. Must be called on the main
+   * thread.
+   */
+  public void cancelFrameAlignedDispatch() {
+    callUpdateDispatcher.cancel();
+    callUpdateDispatcher.setEnabled(false);
+  }
+
+  /** Returns the number of {@link DialerCall} updates received. */
+  public long getRawCallUpdateCount() {
+    return callUpdateDispatcher.getRawUpdateCount();
+  }
+
+  /** Returns the number of coalesced call list changes delivered for those updates. */
+  public long getDispatchedCallUpdateCount() {
+    return callUpdateDispatcher.getDispatchCount();
+  }
+
+  /** Logs how many call updates were received versus dispatched to listeners. */
+  public void logDispatchStatistics() {
+    LogUtil.i("CallList.logDispatchStatistics", String.valueOf(callUpdateDispatcher));
+  }
+
   private void notifyListenersOfDisconnect(DialerCall call) {
+    // Listeners expect to have seen the last state of the call before it disconnects.
+    callUpdateDispatcher.flush();
     for (Listener listener : listeners) {
       listener.onDisconnect(call);
     }
@@ -682,7 +731,7 @@ public class CallList implements DialerCallDelegate {
     public void onDialerCallUpdate() {
       Trace.beginSection("CallList.onDialerCallUpdate");
       onUpdateCall(call);
-      notifyGenericListeners();
+      callUpdateDispatcher.post(call.getId(), call);
       Trace.endSection();
     }
 
@@ -694,6 +743,7 @@ public class CallList implements DialerCallDelegate {
 
     @Override
     public void onDialerCallUpgradeToRtt(int rttRequestId) {
+      callUpdateDispatcher.flush();
       for (Listener listener : listeners) {
         listener.onUpgradeToRtt(call, rttRequestId);
       }
@@ -701,6 +751,7 @@ public class CallList implements DialerCallDelegate {
 
     @Override
     public void onDialerCallUpgradeToVideo() {
+      callUpdateDispatcher.flush();
       for (Listener listener : listeners) {
         listener.onUpgradeToVideo(call);
       }
@@ -730,6 +781,7 @@ public class CallList implements DialerCallDelegate {
 
     @Override
     public void onDialerCallSessionModificationStateChange() {
+      callUpdateDispatcher.flush();
       for (Listener listener : listeners) {
         listener.onSessionModificationStateChange(call);
       }
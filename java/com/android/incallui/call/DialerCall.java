@@ -148,6 +148,7 @@ public class DialerCall implements VideoTechListener {
   @CallHistoryStatus private int callHistoryStatus = CALL_HISTORY_STATUS_UNKNOWN;
 
   private boolean isBlocked;
+  private boolean isSpam;
   private boolean isOutgoing;
 
   private boolean didShowCameraPermission;
@@ -1212,7 +1213,18 @@ public class DialerCall implements VideoTechListener {
   }
 
   public boolean isSpam() {
-    return false;
+    return isSpam;
+  }
+
+  /** Sets whether the number is spam, updating the listeners if it changed. */
+  public void setSpam(boolean isSpam) {
+    if (this.isSpam == isSpam) {
+      return;
+    }
+    this.isSpam = isSpam;
+    for (DialerCallListener listener : listeners) {
+      listener.onDialerCallUpdate();
+    }
   }
 
   public boolean isBlocked() {
@@ -0,0 +1,120 @@
+/*
+ * SPDX-FileCopyrightText: The LineageOS Project
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.android.incallui.call;
+
+import android.os.Trace;
+import android.view.Choreographer;
+import android.view.Choreographer.FrameCallback;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+
+import com.android.dialer.common.Assert;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Coalesces keyed updates until the next {@link Choreographer} frame.
+ *
+ * <p>Bursts of telecom updates, e.g. a conference with several participants changing state, would
+ * otherwise recompute the whole in-call UI once per update. Updates posted here are collapsed per
+ * key, keeping the latest value, and delivered as one change set right before the next frame is
+ * drawn. When disabled, every update is delivered immediately.
+ *
+ * @param <K> identifies what was updated, e.g. a call
+ * @param <V> the latest value for that key
+ */
+public final class FrameAlignedDispatcher<K, V> {
+
+  /** Receives the consolidated change set. */
+  public interface Receiver<K, V> {
+    void onDispatch(@NonNull Map<K, V> changes);
+  }
+
+  private final String name;
+  private final Receiver<K, V> receiver;
+  private final FrameCallback frameCallback = frameTimeNanos -> flush();
+  private Map<K, V> pending = new LinkedHashMap<>();
+  private boolean enabled;
+  private boolean frameCallbackPosted;
+  private long rawUpdateCount;
+  private long dispatchCount;
+
+  public FrameAlignedDispatcher(@NonNull String name, @NonNull Receiver<K, V> receiver) {
+    this.name = Assert.isNotNull(name);
+    this.receiver = Assert.isNotNull(receiver);
+  }
+
+  /** Enables or disables coalescing. Pending updates are delivered when disabling. */
+  @MainThread
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+    if (!enabled) {
+      flush();
+    }
+  }
+
+  /** Records an update, delivering it immediately if coalescing is disabled. */
+  @MainThread
+  public void post(K key, V value) {
+    rawUpdateCount++;
+    pending.put(key, value);
+    if (!enabled) {
+      flush();
+      return;
+    }
+    if (!frameCallbackPosted) {
+      frameCallbackPosted = true;
+      Choreographer.getInstance().postFrameCallback(frameCallback);
+    }
+  }
+
+  /** Drops pending updates, e.g. because a full update was just delivered by other means. */
+  @MainThread
+  public void cancel() {
+    if (frameCallbackPosted) {
+      Choreographer.getInstance().removeFrameCallback(frameCallback);
+      frameCallbackPosted = false;
+    }
+    pending.clear();
+  }
+
+  /** Delivers pending updates now. */
+  @MainThread
+  public void flush() {
+    if (frameCallbackPosted) {
+      Choreographer.getInstance().removeFrameCallback(frameCallback);
+      frameCallbackPosted = false;
+    }
+    if (pending.isEmpty()) {
+      return;
+    }
+    Trace.beginSection(name + ".dispatch");
+    Map<K, V> changes = pending;
+    pending = new LinkedHashMap<>();
+    dispatchCount++;
+    receiver.onDispatch(Collections.unmodifiableMap(changes));
+    Trace.endSection();
+  }
+
+  /** Number of updates posted since creation. */
+  public long getRawUpdateCount() {
+    return rawUpdateCount;
+  }
+
+  /** Number of change sets delivered since creation. */
+  public long getDispatchCount() {
+    return dispatchCount;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "%s{raw updates: %d, dispatched: %d}", name, rawUpdateCount, dispatchCount);
+  }
+}
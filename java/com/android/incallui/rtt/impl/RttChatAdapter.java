@@ -33,14 +33,15 @@ import com.android.dialer.common.LogUtil;
 import com.android.dialer.rtt.RttTranscript;
 import com.android.dialer.rtt.RttTranscriptMessage;
 import com.android.incallui.rtt.protocol.RttChatMessage;
+import com.android.incallui.rtt.protocol.RttTranscriptModel;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
-import java.util.ArrayList;
 import java.util.List;
 
 /** Adapter class for holding RTT chat data. */
-public class RttChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+public class RttChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
+    implements RttTranscriptModel.Listener {
 
   /** IntDef for the different types of rows that can be shown in the call log. */
   @Retention(RetentionPolicy.SOURCE)
@@ -67,7 +68,7 @@ public class RttChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
   }
 
   private final Context context;
-  private List<RttChatMessage> rttMessages = new ArrayList<>();
+  private RttTranscriptModel rttMessages = new RttTranscriptModel();
   private int lastIndexOfLocalMessage = -1;
   private final MessageListener messageListener;
   private boolean shouldShowAdvisory;
@@ -75,6 +76,7 @@ public class RttChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
   RttChatAdapter(Context context, MessageListener listener) {
     this.context = context;
     this.messageListener = listener;
+    rttMessages.setListener(this);
   }
 
   @Override
@@ -136,15 +138,13 @@ public class RttChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
     if (rttChatMessage == null || rttChatMessage.isFinished()) {
       rttChatMessage = new RttChatMessage();
       rttChatMessage.append(newMessage);
-      rttMessages.add(rttChatMessage);
-      lastIndexOfLocalMessage = rttMessages.size() - 1;
-      notifyItemInserted(toItemPosition(lastIndexOfLocalMessage));
+      rttMessages.addLocalMessage(rttChatMessage);
+      lastIndexOfLocalMessage = rttMessages.getLastIndexLocalMessage();
     } else {
       rttChatMessage.append(newMessage);
       // Clear empty message bubble.
       if (TextUtils.isEmpty(rttChatMessage.getContent())) {
-        rttMessages.remove(lastIndexOfLocalMessage);
-        notifyItemRemoved(toItemPosition(lastIndexOfLocalMessage));
+        rttMessages.removeMessage(lastIndexOfLocalMessage);
         lastIndexOfLocalMessage = -1;
       } else {
         notifyItemChanged(toItemPosition(lastIndexOfLocalMessage));
@@ -173,9 +173,27 @@ public class RttChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
   }
 
   private void updateCurrentRemoteMessage(String newMessage) {
-    RttChatMessage.updateRemoteRttChatMessage(rttMessages, newMessage);
-    lastIndexOfLocalMessage = RttChatMessage.getLastIndexLocalMessage(rttMessages);
-    notifyDataSetChanged();
+    rttMessages.appendRemoteText(newMessage);
+    lastIndexOfLocalMessage = rttMessages.getLastIndexLocalMessage();
+  }
+
+  @Override
+  public void onMessageInserted(int position) {
+    notifyItemInserted(toItemPosition(position));
+  }
+
+  @Override
+  public void onMessageChanged(int position) {
+    notifyItemChanged(toItemPosition(position));
+  }
+
+  @Override
+  public void onMessageRemoved(int position) {
+    notifyItemRemoved(toItemPosition(position));
+    // The following message may now start a new group.
+    if (position < rttMessages.size()) {
+      notifyItemChanged(toItemPosition(position));
+    }
   }
 
   void addLocalMessage(String message) {
@@ -211,7 +229,7 @@ public class RttChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
     updateCurrentRemoteMessage(message);
     if (messageListener != null) {
       messageListener.onUpdateRemoteMessage(
-          toItemPosition(RttChatMessage.getLastIndexRemoteMessage(rttMessages)));
+          toItemPosition(rttMessages.getLastIndexRemoteMessage()));
     }
   }
 
@@ -231,7 +249,7 @@ public class RttChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
    */
   @Nullable
   String retrieveLastLocalMessage() {
-    lastIndexOfLocalMessage = RttChatMessage.getLastIndexLocalMessage(rttMessages);
+    lastIndexOfLocalMessage = rttMessages.getLastIndexLocalMessage();
     if (lastIndexOfLocalMessage >= 0) {
       RttChatMessage rttChatMessage = rttMessages.get(lastIndexOfLocalMessage);
       rttChatMessage.unfinish();
@@ -255,8 +273,9 @@ public class RttChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
   @Nullable
   String onRestoreRttChat(RttTranscript rttTranscript) {
     LogUtil.enterBlock("RttChatAdapater.onRestoreRttChat");
-    rttMessages = RttChatMessage.fromTranscript(rttTranscript);
-    lastIndexOfLocalMessage = RttChatMessage.getLastIndexLocalMessage(rttMessages);
+    rttMessages = RttTranscriptModel.fromTranscript(rttTranscript);
+    rttMessages.setListener(this);
+    lastIndexOfLocalMessage = rttMessages.getLastIndexLocalMessage();
     notifyDataSetChanged();
     if (lastIndexOfLocalMessage < 0) {
       return null;
@@ -270,6 +289,6 @@ public class RttChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
   }
 
   List<RttTranscriptMessage> getRttTranscriptMessageList() {
-    return RttChatMessage.toTranscriptMessageList(rttMessages);
+    return RttChatMessage.toTranscriptMessageList(rttMessages.getMessages());
   }
 }
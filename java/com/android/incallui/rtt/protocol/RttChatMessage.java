@@ -22,17 +22,13 @@ import androidx.annotation.NonNull;
 import com.android.dialer.common.Assert;
 import com.android.dialer.rtt.RttTranscript;
 import com.android.dialer.rtt.RttTranscriptMessage;
-import com.google.common.base.Splitter;
 
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 
 /** Message class that holds one RTT chat content. */
 public final class RttChatMessage {
 
-  private static final Splitter SPLITTER = Splitter.on(Constants.BUBBLE_BREAKER);
-
   public boolean isRemote;
   private long timstamp;
   private final StringBuilder content = new StringBuilder();
@@ -61,6 +57,21 @@ public final class RttChatMessage {
     }
   }
 
+  void appendCharacter(char c) {
+    content.append(c);
+  }
+
+  /** Removes the last character in constant time, the open end of the buffer is its tail. */
+  void deleteLastCharacter() {
+    if (content.length() > 0) {
+      content.setLength(content.length() - 1);
+    }
+  }
+
+  boolean isEmpty() {
+    return content.length() == 0;
+  }
+
   public String getContent() {
     return content.toString();
   }
@@ -109,73 +120,7 @@ public final class RttChatMessage {
   public static void updateRemoteRttChatMessage(
       List<RttChatMessage> messageList, @NonNull String text) {
     Assert.isNotNull(messageList);
-    Iterator<String> splitText = SPLITTER.split(text).iterator();
-
-    while (splitText.hasNext()) {
-      String singleMessageContent = splitText.next();
-      RttChatMessage message;
-      int index = getLastIndexUnfinishedRemoteMessage(messageList);
-      if (index < 0) {
-        message = new RttChatMessage();
-        message.append(singleMessageContent);
-        message.isRemote = true;
-        if (splitText.hasNext()) {
-          message.finish();
-        }
-        if (message.content.length() != 0) {
-          messageList.add(message);
-        }
-      } else {
-        message = messageList.get(index);
-        message.append(singleMessageContent);
-        if (splitText.hasNext()) {
-          message.finish();
-        }
-        if (message.content.length() == 0) {
-          messageList.remove(index);
-        }
-      }
-      StringBuilder content = message.content;
-      // Delete previous messages.
-      while (content.length() > 0 && content.charAt(0) == '\b') {
-        messageList.remove(message);
-        content.delete(0, 1);
-        int previous = getLastIndexRemoteMessage(messageList);
-        // There are more backspaces than existing characters.
-        if (previous < 0) {
-          while (content.length() > 0 && content.charAt(0) == '\b') {
-            content.deleteCharAt(0);
-          }
-          // Add message if there are still characters after backspaces.
-          if (content.length() > 0) {
-            message = new RttChatMessage();
-            message.append(content.toString());
-            message.isRemote = true;
-            if (splitText.hasNext()) {
-              message.finish();
-            }
-            messageList.add(message);
-          }
-          break;
-        }
-        message = messageList.get(previous);
-        message.unfinish();
-        message.append(content.toString());
-        content = message.content;
-      }
-    }
-    if (text.endsWith(Constants.BUBBLE_BREAKER)) {
-      int lastIndexRemoteMessage = getLastIndexRemoteMessage(messageList);
-      messageList.get(lastIndexRemoteMessage).finish();
-    }
-  }
-
-  private static int getLastIndexUnfinishedRemoteMessage(List<RttChatMessage> messageList) {
-    int i = messageList.size() - 1;
-    while (i >= 0 && (!messageList.get(i).isRemote || messageList.get(i).isFinished)) {
-      i--;
-    }
-    return i;
+    new RttTranscriptModel(messageList).appendRemoteText(text);
   }
 
   public static int getLastIndexRemoteMessage(List<RttChatMessage> messageList) {
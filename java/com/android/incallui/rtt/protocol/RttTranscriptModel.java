@@ -0,0 +1,209 @@
+/*
+ * SPDX-FileCopyrightText: The LineageOS Project
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.android.incallui.rtt.protocol;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.android.dialer.common.Assert;
+import com.android.dialer.rtt.RttTranscript;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Incrementally maintained list of {@link RttChatMessage} for one RTT call.
+ *
+ * <p>Messages are only ever appended, except for bubbles that are emptied by backspaces. The index
+ * of the last remote message and of the remote message still being typed are tracked, so applying
+ * a chunk of remote text costs time proportional to the chunk, not to the whole conversation.
+ * Backspaces remove the last character of the open message in constant time.
+ */
+public final class RttTranscriptModel {
+
+  private static final char BUBBLE_BREAKER = Constants.BUBBLE_BREAKER.charAt(0);
+
+  /** Receives fine grained change notifications, in message positions. */
+  public interface Listener {
+    void onMessageInserted(int position);
+
+    void onMessageChanged(int position);
+
+    void onMessageRemoved(int position);
+  }
+
+  private final List<RttChatMessage> messages;
+  @Nullable private Listener listener;
+  private int lastRemoteIndex;
+  private int openRemoteIndex;
+  private int lastLocalIndex;
+
+  public RttTranscriptModel() {
+    this(new ArrayList<>());
+  }
+
+  /** Creates a model on top of an existing, mutable list of messages. */
+  public RttTranscriptModel(@NonNull List<RttChatMessage> messages) {
+    this.messages = Assert.isNotNull(messages);
+    recomputeIndices();
+  }
+
+  public static RttTranscriptModel fromTranscript(@Nullable RttTranscript rttTranscript) {
+    return new RttTranscriptModel(RttChatMessage.fromTranscript(rttTranscript));
+  }
+
+  public void setListener(@Nullable Listener listener) {
+    this.listener = listener;
+  }
+
+  public int size() {
+    return messages.size();
+  }
+
+  public RttChatMessage get(int position) {
+    return messages.get(position);
+  }
+
+  public List<RttChatMessage> getMessages() {
+    return messages;
+  }
+
+  public int getLastIndexRemoteMessage() {
+    return lastRemoteIndex;
+  }
+
+  public int getLastIndexLocalMessage() {
+    return lastLocalIndex;
+  }
+
+  /** Appends a new local message at the end of the transcript. */
+  public void addLocalMessage(RttChatMessage message) {
+    Assert.checkArgument(!message.isRemote);
+    messages.add(message);
+    lastLocalIndex = messages.size() - 1;
+    notifyInserted(lastLocalIndex);
+  }
+
+  /** Removes the message at the given position, e.g. a local bubble that became empty. */
+  public void removeMessage(int position) {
+    messages.remove(position);
+    recomputeIndices();
+    if (listener != null) {
+      listener.onMessageRemoved(position);
+    }
+  }
+
+  /** Notifies the listener that the message at the given position was edited in place. */
+  public void notifyMessageChanged(int position) {
+    if (listener != null && position >= 0) {
+      listener.onMessageChanged(position);
+    }
+  }
+
+  /**
+   * Applies a chunk of remote text.
+   *
+   * <p>{@link Constants#BUBBLE_BREAKER} finishes the current remote bubble. A backspace removes the
+   * last character of the current remote bubble; once a bubble is empty it is removed, and the next
+   * backspace reopens the previous remote bubble, consuming the bubble breaker.
+   */
+  public void appendRemoteText(@NonNull String text) {
+    Assert.isNotNull(text);
+    int changedIndex = -1;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c == BUBBLE_BREAKER) {
+        if (openRemoteIndex >= 0) {
+          messages.get(openRemoteIndex).finish();
+          changedIndex = flushChange(changedIndex, openRemoteIndex);
+          openRemoteIndex = -1;
+        }
+      } else if (c == '\b') {
+        changedIndex = applyRemoteBackspace(changedIndex);
+      } else {
+        if (openRemoteIndex < 0) {
+          changedIndex = flushChange(changedIndex, -1);
+          RttChatMessage message = new RttChatMessage();
+          message.isRemote = true;
+          messages.add(message);
+          openRemoteIndex = messages.size() - 1;
+          lastRemoteIndex = openRemoteIndex;
+          notifyInserted(openRemoteIndex);
+        }
+        messages.get(openRemoteIndex).appendCharacter(c);
+        changedIndex = flushChange(changedIndex, openRemoteIndex);
+      }
+    }
+    flushChange(changedIndex, -1);
+  }
+
+  private int applyRemoteBackspace(int changedIndex) {
+    if (openRemoteIndex < 0) {
+      // The backspace deletes the bubble breaker of the previous remote message.
+      if (lastRemoteIndex >= 0) {
+        messages.get(lastRemoteIndex).unfinish();
+        openRemoteIndex = lastRemoteIndex;
+        return flushChange(changedIndex, openRemoteIndex);
+      }
+      return changedIndex;
+    }
+    RttChatMessage message = messages.get(openRemoteIndex);
+    message.deleteLastCharacter();
+    if (!message.isEmpty()) {
+      return flushChange(changedIndex, openRemoteIndex);
+    }
+    if (changedIndex != openRemoteIndex) {
+      flushChange(changedIndex, -1);
+    }
+    int removed = openRemoteIndex;
+    messages.remove(removed);
+    recomputeIndices();
+    if (listener != null) {
+      listener.onMessageRemoved(removed);
+    }
+    return -1;
+  }
+
+  /**
+   * Coalesces consecutive edits of the same message into one change notification. Returns the
+   * position whose change is still pending.
+   */
+  private int flushChange(int pendingIndex, int newIndex) {
+    if (pendingIndex != newIndex && pendingIndex >= 0 && pendingIndex < messages.size()) {
+      notifyMessageChanged(pendingIndex);
+    }
+    return newIndex;
+  }
+
+  private void notifyInserted(int position) {
+    if (listener != null) {
+      listener.onMessageInserted(position);
+    }
+  }
+
+  /** Only used when the message list is restored or shrinks, which is rare. */
+  private void recomputeIndices() {
+    lastRemoteIndex = -1;
+    lastLocalIndex = -1;
+    openRemoteIndex = -1;
+    for (int i = messages.size() - 1; i >= 0; i--) {
+      if (lastRemoteIndex >= 0 && lastLocalIndex >= 0) {
+        break;
+      }
+      RttChatMessage message = messages.get(i);
+      if (message.isRemote) {
+        if (lastRemoteIndex < 0) {
+          lastRemoteIndex = i;
+          if (!message.isFinished()) {
+            openRemoteIndex = i;
+          }
+        }
+      } else if (lastLocalIndex < 0) {
+        lastLocalIndex = i;
+      }
+    }
+  }
+}
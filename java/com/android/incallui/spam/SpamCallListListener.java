@@ -31,6 +31,7 @@ import com.android.dialer.common.Assert;
 import com.android.dialer.common.LogUtil;
 import com.android.dialer.common.concurrent.DialerExecutor.Worker;
 import com.android.dialer.common.concurrent.DialerExecutorFactory;
+import com.android.dialer.spam.Spam;
 import com.android.dialer.telecom.TelecomUtil;
 import com.android.dialer.util.PermissionsUtil;
 import com.android.incallui.call.CallList;
@@ -98,6 +99,26 @@ public class SpamCallListListener implements CallList.Listener {
     }
   }
 
+  /** Checks if the number is spam according to the offline reputation database. */
+  private static final class NumberIsSpamWorker implements Worker<Void, Boolean> {
+
+    private final Context appContext;
+    private final String number;
+    private final String countryIso;
+
+    NumberIsSpamWorker(@NonNull Context appContext, String number, String countryIso) {
+      this.appContext = Assert.isNotNull(appContext);
+      this.number = number;
+      this.countryIso = countryIso;
+    }
+
+    @Override
+    @NonNull
+    public Boolean doInBackground(@Nullable Void input) throws Throwable {
+      return Spam.isSpam(appContext, number, countryIso);
+    }
+  }
+
   @Override
   public void onIncomingCall(final DialerCall call) {
     String number = call.getNumber();
@@ -105,6 +126,12 @@ public class SpamCallListListener implements CallList.Listener {
       return;
     }
 
+    dialerExecutorFactory
+        .createNonUiTaskBuilder(new NumberIsSpamWorker(context, number, call.getCountryIso()))
+        .onSuccess(call::setSpam)
+        .build()
+        .executeParallel(null);
+
     if (!PermissionsUtil.hasCallLogReadPermissions(context)) {
       LogUtil.i(
           "SpamCallListListener.onIncomingCall",
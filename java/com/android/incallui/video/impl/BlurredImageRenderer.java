@@ -0,0 +1,298 @@
+/*
+ * SPDX-FileCopyrightText: The LineageOS Project
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.android.incallui.video.impl;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.os.SystemClock;
+import android.renderscript.Allocation;
+import android.renderscript.Element;
+import android.renderscript.RSRuntimeException;
+import android.renderscript.RenderScript;
+import android.renderscript.ScriptIntrinsicBlur;
+import android.view.TextureView;
+import android.view.View;
+import android.widget.ImageView;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.android.dialer.common.Assert;
+import com.android.dialer.common.LogUtil;
+import com.android.dialer.common.concurrent.DialerExecutorComponent;
+import com.android.dialer.common.concurrent.ThreadUtil;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Shows a blurred copy of the last frame of a {@link TextureView} in an {@link ImageView}, e.g.
+ * when the camera is turned off or the call is put on hold.
+ *
+ * <p>Only grabbing the frame happens on the UI thread, into a reused bitmap. Blurring runs on a
+ * background thread with RenderScript, or with {@link StackBlur} if RenderScript is unavailable.
+ * Output bitmaps are double buffered so the bitmap being displayed is never written to. Frames that
+ * did not change since the last blur are skipped, and requests made while a blur is running are
+ * coalesced into one.
+ */
+final class BlurredImageRenderer {
+
+  /** ScriptIntrinsicBlur does not support a larger radius. */
+  private static final float MAX_RENDERSCRIPT_RADIUS = 25f;
+
+  private final Context appContext;
+  private final ImageView imageView;
+  private final Executor executor;
+  private final Object workerLock = new Object();
+
+  // Accessed on the UI thread only.
+  private Bitmap captureBitmap;
+  @Nullable private Bitmap displayedBitmap;
+  @Nullable private Request pendingRequest;
+  private boolean inFlight;
+  private int generation;
+
+  // Accessed on the worker thread only, guarded by workerLock.
+  private final Bitmap[] blurredBuffers = new Bitmap[2];
+  private final Bitmap[] transformedBuffers = new Bitmap[2];
+  private int nextBuffer;
+  private int[] pixels = new int[0];
+  private int[] scratch = new int[0];
+  private int lastChecksum;
+  private float lastRadius;
+  @Nullable private Matrix lastTransform;
+  @Nullable private RenderScript renderScript;
+  @Nullable private ScriptIntrinsicBlur blurScript;
+  private boolean renderScriptUnavailable;
+
+  BlurredImageRenderer(Context context, ImageView imageView) {
+    this.appContext = context.getApplicationContext();
+    this.imageView = imageView;
+    this.executor = DialerExecutorComponent.get(context).backgroundExecutor();
+  }
+
+  /** Blurs the current frame of {@code textureView} and shows it once ready. */
+  @MainThread
+  void render(TextureView textureView, float blurRadius, float scaleFactor) {
+    Assert.isMainThread();
+    Request request = new Request(textureView, blurRadius, scaleFactor);
+    if (inFlight) {
+      pendingRequest = request;
+      return;
+    }
+    int width = Math.round(textureView.getWidth() * scaleFactor);
+    int height = Math.round(textureView.getHeight() * scaleFactor);
+    if (width <= 0 || height <= 0) {
+      clear();
+      return;
+    }
+
+    long startTimeMillis = SystemClock.elapsedRealtime();
+    if (captureBitmap == null
+        || captureBitmap.getWidth() != width
+        || captureBitmap.getHeight() != height) {
+      captureBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    }
+    Bitmap frame = textureView.getBitmap(captureBitmap);
+    if (frame == null) {
+      clear();
+      return;
+    }
+    long captureMillis = SystemClock.elapsedRealtime() - startTimeMillis;
+
+    // TODO(mdooley): Figure out why only have to apply the transform in landscape mode
+    Matrix transform = width > height ? textureView.getTransform(null) : null;
+    boolean mayReuseDisplayed = displayedBitmap != null;
+    int requestGeneration = ++generation;
+    inFlight = true;
+    executor.execute(
+        () -> {
+          Bitmap result =
+              blurInBackground(frame, blurRadius, transform, mayReuseDisplayed, captureMillis);
+          ThreadUtil.postOnUiThread(() -> onBlurComplete(requestGeneration, result));
+        });
+  }
+
+  /** Hides the blurred image and drops any blur in progress. */
+  @MainThread
+  void clear() {
+    generation++;
+    pendingRequest = null;
+    displayedBitmap = null;
+    imageView.setImageBitmap(null);
+    imageView.setVisibility(View.GONE);
+  }
+
+  /** Releases the RenderScript context and the pooled bitmaps. */
+  @MainThread
+  void release() {
+    clear();
+    captureBitmap = null;
+    executor.execute(
+        () -> {
+          synchronized (workerLock) {
+            if (blurScript != null) {
+              blurScript.destroy();
+              blurScript = null;
+            }
+            if (renderScript != null) {
+              renderScript.destroy();
+              renderScript = null;
+            }
+            blurredBuffers[0] = blurredBuffers[1] = null;
+            transformedBuffers[0] = transformedBuffers[1] = null;
+            pixels = new int[0];
+            scratch = new int[0];
+            lastTransform = null;
+          }
+        });
+  }
+
+  @MainThread
+  private void onBlurComplete(int requestGeneration, @Nullable Bitmap result) {
+    inFlight = false;
+    if (requestGeneration == generation && result != null) {
+      displayedBitmap = result;
+      imageView.setImageBitmap(result);
+      imageView.setVisibility(View.VISIBLE);
+    }
+    if (pendingRequest != null) {
+      Request request = pendingRequest;
+      pendingRequest = null;
+      render(request.textureView, request.blurRadius, request.scaleFactor);
+    }
+  }
+
+  /**
+   * Returns the blurred frame, or {@code null} if the frame is the same as the one already shown.
+   */
+  @WorkerThread
+  @Nullable
+  private Bitmap blurInBackground(
+      Bitmap frame,
+      float blurRadius,
+      @Nullable Matrix transform,
+      boolean mayReuseDisplayed,
+      long captureMillis) {
+    synchronized (workerLock) {
+      long startTimeMillis = SystemClock.elapsedRealtime();
+      int width = frame.getWidth();
+      int height = frame.getHeight();
+      int size = width * height;
+      if (pixels.length < size) {
+        pixels = new int[size];
+        scratch = new int[size];
+      }
+      frame.getPixels(pixels, 0, width, 0, 0, width, height);
+
+      int checksum = 1;
+      for (int i = 0; i < size; i++) {
+        checksum = 31 * checksum + pixels[i];
+      }
+      Bitmap previous = blurredBuffers[(nextBuffer + 1) % 2];
+      if (mayReuseDisplayed
+          && previous != null
+          && previous.getWidth() == width
+          && previous.getHeight() == height
+          && checksum == lastChecksum
+          && blurRadius == lastRadius
+          && (transform == null ? lastTransform == null : transform.equals(lastTransform))) {
+        LogUtil.i("BlurredImageRenderer.blurInBackground", "frame unchanged, skipping blur");
+        return null;
+      }
+      lastChecksum = checksum;
+      lastRadius = blurRadius;
+      lastTransform = transform;
+
+      Bitmap blurred = reuse(blurredBuffers, nextBuffer, width, height);
+      boolean usedRenderScript = blurWithRenderScript(frame, blurred, blurRadius);
+      if (!usedRenderScript) {
+        StackBlur.blur(pixels, scratch, width, height, Math.round(blurRadius));
+        blurred.setPixels(pixels, 0, width, 0, 0, width, height);
+      }
+
+      Bitmap result = blurred;
+      if (transform != null) {
+        RectF bounds = new RectF(0, 0, width, height);
+        transform.mapRect(bounds);
+        result =
+            reuse(
+                transformedBuffers,
+                nextBuffer,
+                Math.max(1, Math.round(bounds.width())),
+                Math.max(1, Math.round(bounds.height())));
+        result.eraseColor(0);
+        Canvas canvas = new Canvas(result);
+        canvas.translate(-bounds.left, -bounds.top);
+        canvas.concat(transform);
+        canvas.drawBitmap(blurred, 0, 0, new Paint(Paint.FILTER_BITMAP_FLAG));
+      }
+      nextBuffer = (nextBuffer + 1) % 2;
+
+      LogUtil.i(
+          "BlurredImageRenderer.blurInBackground",
+          "%dx%d frame, capture took %d millis, blur took %d millis (%s)",
+          width,
+          height,
+          captureMillis,
+          SystemClock.elapsedRealtime() - startTimeMillis,
+          usedRenderScript ? "RenderScript" : "stack blur");
+      return result;
+    }
+  }
+
+  /** Returns false if RenderScript can't be used, in which case {@code output} is untouched. */
+  @WorkerThread
+  private boolean blurWithRenderScript(Bitmap input, Bitmap output, float blurRadius) {
+    if (renderScriptUnavailable || blurRadius <= 0 || blurRadius > MAX_RENDERSCRIPT_RADIUS) {
+      return false;
+    }
+    try {
+      if (renderScript == null) {
+        renderScript = RenderScript.create(appContext);
+        blurScript = ScriptIntrinsicBlur.create(renderScript, Element.U8_4(renderScript));
+      }
+      Allocation allocationIn = Allocation.createFromBitmap(renderScript, input);
+      Allocation allocationOut = Allocation.createFromBitmap(renderScript, output);
+      blurScript.setRadius(blurRadius);
+      blurScript.setInput(allocationIn);
+      blurScript.forEach(allocationOut);
+      allocationOut.copyTo(output);
+      allocationIn.destroy();
+      allocationOut.destroy();
+      return true;
+    } catch (RSRuntimeException e) {
+      LogUtil.e("BlurredImageRenderer.blurWithRenderScript", "falling back to stack blur", e);
+      renderScriptUnavailable = true;
+      return false;
+    }
+  }
+
+  private static Bitmap reuse(Bitmap[] pool, int index, int width, int height) {
+    Bitmap bitmap = pool[index];
+    if (bitmap == null || bitmap.getWidth() != width || bitmap.getHeight() != height) {
+      bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+      pool[index] = bitmap;
+    }
+    return bitmap;
+  }
+
+  private static final class Request {
+    final TextureView textureView;
+    final float blurRadius;
+    final float scaleFactor;
+
+    Request(TextureView textureView, float blurRadius, float scaleFactor) {
+      this.textureView = textureView;
+      this.blurRadius = blurRadius;
+      this.scaleFactor = scaleFactor;
+    }
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * SPDX-FileCopyrightText: The LineageOS Project
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.android.incallui.video.impl;
+
+import com.android.dialer.common.Assert;
+
+/**
+ * Pure Java stack blur for ARGB pixel buffers.
+ *
+ * <p>A stack blur weighs neighbours linearly by distance (a tent kernel), which looks close to a
+ * gaussian blur. Running sums are kept per channel so each pass costs O(width * height) regardless
+ * of the radius. Used when RenderScript is not available.
+ */
+final class StackBlur {
+
+  private StackBlur() {}
+
+  /**
+   * Blurs {@code pixels} in place.
+   *
+   * @param pixels ARGB pixels, row major, at least {@code width * height} long
+   * @param scratch buffer of at least {@code width * height} ints, reused between calls
+   */
+  static void blur(int[] pixels, int[] scratch, int width, int height, int radius) {
+    Assert.checkArgument(pixels.length >= width * height);
+    Assert.checkArgument(scratch.length >= width * height);
+    if (radius < 1 || width == 0 || height == 0) {
+      return;
+    }
+    int[] sums = new int[12];
+    for (int y = 0; y < height; y++) {
+      blurLine(pixels, y * width, 1, scratch, y * width, 1, width, radius, sums);
+    }
+    for (int x = 0; x < width; x++) {
+      blurLine(scratch, x, width, pixels, x, width, height, radius, sums);
+    }
+  }
+
+  /**
+   * Blurs one row or column. {@code sums} holds, per channel, the weighted sum, the sum of the
+   * pixels leaving the window and the sum of the pixels entering it.
+   */
+  private static void blurLine(
+      int[] src,
+      int srcOffset,
+      int srcStride,
+      int[] dst,
+      int dstOffset,
+      int dstStride,
+      int length,
+      int radius,
+      int[] sums) {
+    int divisor = (radius + 1) * (radius + 1);
+    for (int i = 0; i < sums.length; i++) {
+      sums[i] = 0;
+    }
+    for (int i = -radius; i <= radius + 1; i++) {
+      int pixel = src[srcOffset + clamp(i, length) * srcStride];
+      int weight = Math.max(radius + 1 - Math.abs(i), 0);
+      for (int channel = 0; channel < 4; channel++) {
+        int value = (pixel >>> (24 - channel * 8)) & 0xff;
+        sums[channel] += value * weight;
+        if (i <= 0) {
+          sums[4 + channel] += value;
+        } else {
+          sums[8 + channel] += value;
+        }
+      }
+    }
+    for (int x = 0; x < length; x++) {
+      dst[dstOffset + x * dstStride] =
+          (sums[0] / divisor) << 24
+              | (sums[1] / divisor) << 16
+              | (sums[2] / divisor) << 8
+              | (sums[3] / divisor);
+      int leaving = src[srcOffset + clamp(x - radius, length) * srcStride];
+      int crossing = src[srcOffset + clamp(x + 1, length) * srcStride];
+      int entering = src[srcOffset + clamp(x + radius + 2, length) * srcStride];
+      for (int channel = 0; channel < 4; channel++) {
+        int shift = 24 - channel * 8;
+        sums[channel] += sums[8 + channel] - sums[4 + channel];
+        int crossingValue = (crossing >>> shift) & 0xff;
+        sums[4 + channel] += crossingValue - ((leaving >>> shift) & 0xff);
+        sums[8 + channel] += ((entering >>> shift) & 0xff) - crossingValue;
+      }
+    }
+  }
+
+  private static int clamp(int index, int length) {
+    return index < 0 ? 0 : (index >= length ? length - 1 : index);
+  }
+}
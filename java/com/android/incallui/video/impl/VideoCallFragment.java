@@ -20,17 +20,11 @@ package com.android.incallui.video.impl;
 import android.Manifest.permission;
 import android.content.Context;
 import android.content.res.Resources;
-import android.graphics.Bitmap;
 import android.graphics.Insets;
 import android.graphics.Outline;
 import android.graphics.Point;
 import android.graphics.drawable.Animatable;
 import android.os.Bundle;
-import android.os.SystemClock;
-import android.renderscript.Allocation;
-import android.renderscript.Element;
-import android.renderscript.RenderScript;
-import android.renderscript.ScriptIntrinsicBlur;
 import android.telecom.CallAudioState;
 import android.text.TextUtils;
 import android.view.LayoutInflater;
@@ -140,9 +134,11 @@ public class VideoCallFragment extends Fragment
   private SwitchOnHoldCallController switchOnHoldCallController;
   private TextView remoteVideoOff;
   private ImageView remoteOffBlurredImageView;
+  private BlurredImageRenderer remoteOffBlurRenderer;
   private View mutePreviewOverlay;
   private View previewOffOverlay;
   private ImageView previewOffBlurredImageView;
+  private BlurredImageRenderer previewOffBlurRenderer;
   private View controls;
   private View controlsContainer;
   private TextureView previewTextureView;
@@ -244,6 +240,7 @@ public class VideoCallFragment extends Fragment
     previewOffOverlay = view.findViewById(R.id.videocall_video_preview_off_overlay);
     previewOffBlurredImageView =
         (ImageView) view.findViewById(R.id.videocall_preview_off_blurred_image_view);
+    previewOffBlurRenderer = new BlurredImageRenderer(getContext(), previewOffBlurredImageView);
     swapCameraButton = (ImageButton) view.findViewById(R.id.videocall_switch_video);
     swapCameraButton.setOnClickListener(this);
     view.findViewById(R.id.videocall_switch_controls)
@@ -253,6 +250,7 @@ public class VideoCallFragment extends Fragment
     remoteVideoOff = (TextView) view.findViewById(R.id.videocall_remote_video_off);
     remoteVideoOff.setAccessibilityLiveRegion(View.ACCESSIBILITY_LIVE_REGION_POLITE);
     remoteOffBlurredImageView = view.findViewById(R.id.videocall_remote_off_blurred_image_view);
+    remoteOffBlurRenderer = new BlurredImageRenderer(getContext(), remoteOffBlurredImageView);
     endCallButton = view.findViewById(R.id.videocall_end_call);
     endCallButton.setOnClickListener(this);
     previewTextureView = view.findViewById(R.id.videocall_video_preview);
@@ -339,6 +337,8 @@ public class VideoCallFragment extends Fragment
   public void onDestroyView() {
     super.onDestroyView();
     LogUtil.i("VideoCallFragment.onDestroyView", null);
+    previewOffBlurRenderer.release();
+    remoteOffBlurRenderer.release();
     inCallButtonUiDelegate.onInCallButtonUiUnready();
     inCallScreenDelegate.onInCallScreenUnready();
   }
@@ -1090,7 +1090,7 @@ public class VideoCallFragment extends Fragment
     previewOffOverlay.setVisibility(previewEnabled ? View.GONE : View.VISIBLE);
     updateBlurredImageView(
         previewTextureView,
-        previewOffBlurredImageView,
+        previewOffBlurRenderer,
         shouldShowPreview,
         BLUR_PREVIEW_RADIUS,
         BLUR_PREVIEW_SCALE_FACTOR);
@@ -1120,7 +1120,7 @@ public class VideoCallFragment extends Fragment
     }
     updateBlurredImageView(
         remoteTextureView,
-        remoteOffBlurredImageView,
+        remoteOffBlurRenderer,
         shouldShowRemote,
         BLUR_REMOTE_RADIUS,
         BLUR_REMOTE_SCALE_FACTOR);
@@ -1128,58 +1128,24 @@ public class VideoCallFragment extends Fragment
 
   void updateBlurredImageView(
       TextureView textureView,
-      ImageView blurredImageView,
+      BlurredImageRenderer blurRenderer,
       boolean isVideoEnabled,
       float blurRadius,
       float scaleFactor) {
-    Context context = getContext();
-
-    if (isVideoEnabled || context == null) {
-      blurredImageView.setImageBitmap(null);
-      blurredImageView.setVisibility(View.GONE);
-      return;
-    }
-
-    long startTimeMillis = SystemClock.elapsedRealtime();
-    int width = Math.round(textureView.getWidth() * scaleFactor);
-    int height = Math.round(textureView.getHeight() * scaleFactor);
-
-    LogUtil.i("VideoCallFragment.updateBlurredImageView", "width: %d, height: %d", width, height);
-
-    // This call takes less than 10 milliseconds.
-    Bitmap bitmap = textureView.getBitmap(width, height);
-
-    if (bitmap == null) {
-      blurredImageView.setImageBitmap(null);
-      blurredImageView.setVisibility(View.GONE);
+    if (isVideoEnabled || getContext() == null) {
+      blurRenderer.clear();
       return;
     }
 
-    // TODO(mdooley): When the view is first displayed after a rotation the bitmap is empty
-    // and thus this blur has no effect.
-    // This call can take 100 milliseconds.
-    blur(getContext(), bitmap, blurRadius);
-
-    // TODO(mdooley): Figure out why only have to apply the transform in landscape mode
-    if (width > height) {
-      bitmap =
-          Bitmap.createBitmap(
-              bitmap,
-              0,
-              0,
-              bitmap.getWidth(),
-              bitmap.getHeight(),
-              textureView.getTransform(null),
-              true);
-    }
-
-    blurredImageView.setImageBitmap(bitmap);
-    blurredImageView.setVisibility(View.VISIBLE);
-
     LogUtil.i(
         "VideoCallFragment.updateBlurredImageView",
-        "took %d millis",
-        (SystemClock.elapsedRealtime() - startTimeMillis));
+        "width: %d, height: %d",
+        Math.round(textureView.getWidth() * scaleFactor),
+        Math.round(textureView.getHeight() * scaleFactor));
+    // TODO(mdooley): When the view is first displayed after a rotation the bitmap is empty
+    // and thus this blur has no effect.
+    // Only grabbing the frame happens here, the blur itself runs in the background.
+    blurRenderer.render(textureView, blurRadius, scaleFactor);
   }
 
   private void updateOverlayBackground() {
@@ -1233,21 +1199,6 @@ public class VideoCallFragment extends Fragment
         .start();
   }
 
-  private static void blur(Context context, Bitmap image, float blurRadius) {
-    RenderScript renderScript = RenderScript.create(context);
-    ScriptIntrinsicBlur blurScript =
-        ScriptIntrinsicBlur.create(renderScript, Element.U8_4(renderScript));
-    Allocation allocationIn = Allocation.createFromBitmap(renderScript, image);
-    Allocation allocationOut = Allocation.createFromBitmap(renderScript, image);
-    blurScript.setRadius(blurRadius);
-    blurScript.setInput(allocationIn);
-    blurScript.forEach(allocationOut);
-    allocationOut.copyTo(image);
-    blurScript.destroy();
-    allocationIn.destroy();
-    allocationOut.destroy();
-  }
-
   @Override
   public void onSystemUiVisibilityChange(int visibility) {
     boolean navBarVisible = (visibility & View.SYSTEM_UI_FLAG_HIDE_NAVIGATION) == 0;